@@ -18,18 +18,33 @@ public abstract class AbstractCacheSupport {
      */
     private final String cacheNamePrefix;
 
+    /**
+     * 缓存名带哈希标签？
+     */
+    private final boolean useHashTag;
+
     public AbstractCacheSupport(boolean useCacheNamePrefix, String cacheNamePrefix) {
+        this(useCacheNamePrefix, cacheNamePrefix, false);
+    }
+
+    public AbstractCacheSupport(boolean useCacheNamePrefix, String cacheNamePrefix, boolean useHashTag) {
         this.useCacheNamePrefix = useCacheNamePrefix;
         this.cacheNamePrefix = cacheNamePrefix(cacheNamePrefix);
+        this.useHashTag = useHashTag;
     }
 
     /**
      * 拼接缓存名前缀和缓存名
+     * 带哈希标签时，缓存名前缀 + {缓存名}，缓存名已含哈希标签时不变，如，"limit:{tenant}:api"
      *
      * @param cacheName 格式化后的缓存名
      * @return 拼接缓存名前缀？ 缓存名前缀 + 缓存名，否则无前缀的缓存名
      */
     public String prefixedCacheName(String cacheName) {
+        if (isUseHashTag()) {
+            cacheName = hashTag(cacheName);
+        }
+
         if (isUseCacheNamePrefix()) {
             String cacheNamePrefix = getCacheNamePrefix();
             if (StringUtils.hasLength(cacheNamePrefix)) {
@@ -42,6 +57,18 @@ public abstract class AbstractCacheSupport {
         }
     }
 
+    /**
+     * 带上哈希标签
+     * 默认处理方式，整个缓存名，重写时可只取一部分，如，租户id
+     *
+     * @param cacheName 格式化后的缓存名
+     * @return 带哈希标签的缓存名
+     * @see KeyPrefix#hashTag(String)
+     */
+    public String hashTag(String cacheName) {
+        return KeyPrefix.hashTag(cacheName);
+    }
+
     /**
      * 格式化缓存名前缀
      *
@@ -70,4 +97,8 @@ public abstract class AbstractCacheSupport {
         return cacheNamePrefix;
     }
 
+    public boolean isUseHashTag() {
+        return useHashTag;
+    }
+
 }
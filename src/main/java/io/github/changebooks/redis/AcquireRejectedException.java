@@ -0,0 +1,26 @@
+package io.github.changebooks.redis;
+
+/**
+ * 注解方法，加锁失败，或未取得许可
+ *
+ * @author changebooks@qq.com
+ * @see DistributedLock
+ * @see RateLimited
+ * @see TokenBucketLimited
+ */
+public class AcquireRejectedException extends RuntimeException {
+    /**
+     * 锁名或缓存名
+     */
+    private final String name;
+
+    public AcquireRejectedException(String message, String name) {
+        super(message + ", name: " + name);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
@@ -0,0 +1,356 @@
+package io.github.changebooks.redis;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式限流（自适应，固定时间窗口）
+ * x秒内，许可n次，n跟随下游的真实容量调整
+ * <pre>
+ * 计数与 {@link RateLimiter} 相同，n存于 "{名称}:limit"，所有客户端共享
+ * 计数和n的存储名带相同的哈希标签，集群模式下在同一个槽位
+ * 调整的间隔取Redis服务端时间，n长时间未调整时过期，恢复初始许可数
+ * 调用方报告成功（及耗时）或失败
+ * 未超过耗时阈值的成功，加性增，每个时间窗口至多一次
+ * 失败或超过耗时阈值，乘性减，每个时间窗口至多一次
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class AdaptiveRateLimiter {
+    /**
+     * 当前许可数的存储名的后缀
+     */
+    private static final String LIMIT_SUFFIX = ":limit";
+
+    /**
+     * 默认的当前许可数的过期时间，单位：毫秒
+     */
+    public static final long LIMIT_TTL = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 获取许可，脚本路径
+     */
+    private static final String SCRIPT_PATH = "adaptive-rate-limiter.lua";
+
+    /**
+     * 调整许可数，脚本路径
+     */
+    private static final String ADJUST_SCRIPT_PATH = "adaptive-rate-limiter-adjust.lua";
+
+    /**
+     * 获取许可，脚本命令
+     */
+    private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>();
+
+    /**
+     * 调整许可数，脚本命令
+     */
+    private static final DefaultRedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        SCRIPT.setResultType(Long.class);
+        SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource(SCRIPT_PATH)));
+
+        ADJUST_SCRIPT.setResultType(Long.class);
+        ADJUST_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource(ADJUST_SCRIPT_PATH)));
+    }
+
+    /**
+     * 调整方向，增加
+     */
+    private static final String INCREASE = "1";
+
+    /**
+     * 调整方向，减少
+     */
+    private static final String DECREASE = "0";
+
+    /**
+     * 名称
+     */
+    private final String name;
+
+    /**
+     * 总秒数（x秒内）
+     */
+    private int seconds;
+
+    /**
+     * 初始许可数
+     */
+    private int initialPermits;
+
+    /**
+     * 最小许可数
+     */
+    private int minPermits;
+
+    /**
+     * 最大许可数
+     */
+    private int maxPermits;
+
+    /**
+     * 每次增加的许可数
+     */
+    private int increaseStep = 1;
+
+    /**
+     * 每次减少的比例
+     */
+    private double decreaseFactor = 0.5;
+
+    /**
+     * 耗时阈值，单位：毫秒，超过时视为拥塞
+     */
+    private long latencyThreshold = Long.MAX_VALUE;
+
+    /**
+     * 当前许可数的过期时间，单位：毫秒，每次调整时刷新
+     */
+    private long limitTtl = LIMIT_TTL;
+
+    /**
+     * 最近一次观察到的许可数
+     */
+    private volatile long limit;
+
+    /**
+     * 本客户端上次请求增加的时刻，单位：纳秒
+     */
+    private final AtomicLong increasedAt = new AtomicLong();
+
+    /**
+     * 本客户端上次请求减少的时刻，单位：纳秒
+     */
+    private final AtomicLong decreasedAt = new AtomicLong();
+
+    /**
+     * keys = [{name}, {name}:limit]
+     */
+    private final List<String> keys;
+
+    /**
+     * keys = [{name}:limit]
+     */
+    private final List<String> limitKeys;
+
+    /**
+     * {@link StringRedisTemplate}
+     */
+    private final StringRedisTemplate template;
+
+    /**
+     * 创建 {@link AdaptiveRateLimiter} 实例
+     *
+     * @param template       {@link StringRedisTemplate} 实例
+     * @param name           名称
+     * @param seconds        总秒数（x秒内）
+     * @param minPermits     最小许可数
+     * @param maxPermits     最大许可数
+     * @param initialPermits 初始许可数
+     * @return {@link AdaptiveRateLimiter} 实例
+     */
+    public static AdaptiveRateLimiter create(StringRedisTemplate template, String name, int seconds,
+                                             int minPermits, int maxPermits, int initialPermits) {
+        Assert.isTrue(minPermits > 0, "minPermits must be greater than 0");
+        Assert.isTrue(maxPermits >= minPermits, "maxPermits can't be less than minPermits");
+        Assert.isTrue(initialPermits >= minPermits && initialPermits <= maxPermits,
+                "initialPermits must be between minPermits and maxPermits");
+
+        AdaptiveRateLimiter result = new AdaptiveRateLimiter(template, name).
+                setSeconds(seconds);
+
+        result.minPermits = minPermits;
+        result.maxPermits = maxPermits;
+        result.initialPermits = initialPermits;
+        result.limit = initialPermits;
+
+        return result;
+    }
+
+    private AdaptiveRateLimiter(StringRedisTemplate template, String name) {
+        Assert.notNull(template, "template can't be null");
+        Assert.hasText(name, "name can't be empty");
+
+        // 已含哈希标签时不变
+        String taggedName = KeyPrefix.hashTag(name);
+
+        this.template = template;
+        this.name = name;
+        this.keys = Arrays.asList(taggedName, taggedName + LIMIT_SUFFIX);
+        this.limitKeys = Collections.singletonList(taggedName + LIMIT_SUFFIX);
+    }
+
+    /**
+     * 获取许可
+     *
+     * @return 得到许可？
+     */
+    public Boolean acquire() {
+        String arg1 = String.valueOf(seconds);
+        String arg2 = String.valueOf(initialPermits);
+
+        // 总秒数、初始许可数
+        Long result = template.execute(SCRIPT, keys, arg1, arg2);
+        if (result == null) {
+            return null;
+        }
+
+        limit = Math.abs(result);
+        return result > 0;
+    }
+
+    /**
+     * 报告成功
+     *
+     * @param latency  耗时
+     * @param timeUnit 耗时的单位
+     */
+    public void onSuccess(long latency, TimeUnit timeUnit) {
+        if (timeUnit.toMillis(latency) > latencyThreshold) {
+            onFailure();
+        } else {
+            adjust(increasedAt, INCREASE);
+        }
+    }
+
+    /**
+     * 报告失败，如，超时、限流、服务不可用
+     */
+    public void onFailure() {
+        adjust(decreasedAt, DECREASE);
+    }
+
+    /**
+     * 调整许可数
+     * 每个时间窗口，本客户端至多请求一次，跨客户端的间隔由脚本保证
+     *
+     * @param adjustedAt 本客户端上次请求调整的时间
+     * @param direction  调整方向
+     */
+    private void adjust(AtomicLong adjustedAt, String direction) {
+        long nowNanos = System.nanoTime();
+        long cooldown = TimeUnit.SECONDS.toMillis(seconds);
+
+        long last = adjustedAt.get();
+        if ((last != 0 && nowNanos - last < TimeUnit.MILLISECONDS.toNanos(cooldown)) ||
+                !adjustedAt.compareAndSet(last, nowNanos)) {
+            return;
+        }
+
+        // 初始许可数、最小许可数、最大许可数、每次增加的许可数、每次减少的比例、最小间隔（毫秒）、调整方向、过期时间（毫秒）
+        Long result = template.execute(ADJUST_SCRIPT, limitKeys,
+                String.valueOf(initialPermits),
+                String.valueOf(minPermits),
+                String.valueOf(maxPermits),
+                String.valueOf(increaseStep),
+                String.valueOf(decreaseFactor),
+                String.valueOf(cooldown),
+                direction,
+                String.valueOf(limitTtl));
+
+        if (result != null) {
+            limit = result;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public AdaptiveRateLimiter setSeconds(int seconds) {
+        Assert.isTrue(seconds > 0, "seconds must be greater than 0");
+
+        this.seconds = seconds;
+        return this;
+    }
+
+    public int getInitialPermits() {
+        return initialPermits;
+    }
+
+    public int getMinPermits() {
+        return minPermits;
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+    public int getIncreaseStep() {
+        return increaseStep;
+    }
+
+    public AdaptiveRateLimiter setIncreaseStep(int increaseStep) {
+        Assert.isTrue(increaseStep > 0, "increaseStep must be greater than 0");
+
+        this.increaseStep = increaseStep;
+        return this;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public AdaptiveRateLimiter setDecreaseFactor(double decreaseFactor) {
+        Assert.isTrue(decreaseFactor > 0 && decreaseFactor < 1, "decreaseFactor must be between 0 and 1");
+
+        this.decreaseFactor = decreaseFactor;
+        return this;
+    }
+
+    public long getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    public AdaptiveRateLimiter setLatencyThreshold(long latencyThreshold, TimeUnit timeUnit) {
+        Assert.isTrue(latencyThreshold > 0, "latencyThreshold must be greater than 0");
+
+        this.latencyThreshold = timeUnit.toMillis(latencyThreshold);
+        return this;
+    }
+
+    public long getLimitTtl() {
+        return limitTtl;
+    }
+
+    public AdaptiveRateLimiter setLimitTtl(long limitTtl, TimeUnit timeUnit) {
+        Assert.isTrue(limitTtl > 0, "limitTtl must be greater than 0");
+
+        this.limitTtl = timeUnit.toMillis(limitTtl);
+        return this;
+    }
+
+    /**
+     * 最近一次观察到的许可数，获取许可和调整许可数时刷新
+     *
+     * @return 当前许可数
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public StringRedisTemplate getTemplate() {
+        return template;
+    }
+
+}
@@ -0,0 +1,179 @@
+package io.github.changebooks.redis;
+
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 支持异步读写的 {@link RedisCacheWriter}
+ * <pre>
+ * 同步方法，按原方式执行
+ * 异步方法，Lettuce的异步命令，返回 {@link CompletableFuture}，不阻塞调用方线程，如，事件循环线程、虚拟线程
+ * 异步方法直接访问Redis，不经过其它写缓存装饰器，如，延迟写入、过期时间偏移
+ * 缓存名开启了延迟写入、大值分片、旧值、热点副本时，不支持异步方法，见 {@link #supports(String)}
+ * 首次调用异步方法时，创建连接，共用至 {@link #close()}
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class AsyncRedisCacheWriter extends RedisCacheWriterDecorator implements AutoCloseable {
+    /**
+     * 连接工厂
+     */
+    private final LettuceConnectionFactory connectionFactory;
+
+    /**
+     * 连接，首次使用时创建
+     */
+    private volatile LettuceConnection connection;
+
+    /**
+     * 创建 {@link AsyncRedisCacheWriter} 实例
+     *
+     * @param delegate          被装饰的写缓存，执行同步方法
+     * @param connectionFactory Lettuce连接工厂，执行异步方法
+     */
+    public AsyncRedisCacheWriter(RedisCacheWriter delegate, LettuceConnectionFactory connectionFactory) {
+        super(delegate);
+
+        Assert.notNull(connectionFactory, "connectionFactory can't be null");
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * 异步读
+     *
+     * @param name 缓存名
+     * @param key  缓存键
+     * @return 缓存值，不存在时为Null
+     */
+    public CompletableFuture<byte[]> getAsync(String name, byte[] key) {
+        Assert.notNull(name, "name can't be null");
+        Assert.notNull(key, "key can't be null");
+
+        return commands().get(key).toCompletableFuture();
+    }
+
+    /**
+     * 异步写
+     *
+     * @param name  缓存名
+     * @param key   缓存键
+     * @param value 缓存值
+     * @param ttl   过期时间，Null或小于等于0时不过期
+     * @return 写入完成
+     */
+    public CompletableFuture<Void> putAsync(String name, byte[] key, byte[] value, Duration ttl) {
+        Assert.notNull(name, "name can't be null");
+        Assert.notNull(key, "key can't be null");
+        Assert.notNull(value, "value can't be null");
+
+        RedisClusterAsyncCommands<byte[], byte[]> commands = commands();
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return commands.set(key, value).toCompletableFuture().thenApply(ok -> null);
+        }
+
+        return commands.set(key, value, SetArgs.Builder.px(ttl.toMillis())).toCompletableFuture().thenApply(ok -> null);
+    }
+
+    /**
+     * 异步删除
+     *
+     * @param name 缓存名
+     * @param key  缓存键
+     * @return 删除了？
+     */
+    public CompletableFuture<Boolean> removeAsync(String name, byte[] key) {
+        Assert.notNull(name, "name can't be null");
+        Assert.notNull(key, "key can't be null");
+
+        return commands().del(key).toCompletableFuture().thenApply(count -> count != null && count > 0);
+    }
+
+    /**
+     * 缓存名支持异步方法？
+     * 被装饰的写缓存对缓存名开启了延迟写入、大值分片、旧值、热点副本时，不支持
+     * 异步方法绕过它们，读到分片清单、缓冲区之前的值，写入和删除后，旧值和副本未清除
+     *
+     * @param name 缓存名
+     * @return 支持？
+     */
+    public boolean supports(String name) {
+        RedisCacheWriter cacheWriter = getDelegate();
+        while (cacheWriter instanceof RedisCacheWriterDecorator) {
+            if (intercepts(cacheWriter, name)) {
+                return false;
+            }
+
+            cacheWriter = ((RedisCacheWriterDecorator) cacheWriter).getDelegate();
+        }
+
+        return true;
+    }
+
+    private static boolean intercepts(RedisCacheWriter cacheWriter, String name) {
+        if (cacheWriter instanceof WriteBehindRedisCacheWriter) {
+            return ((WriteBehindRedisCacheWriter) cacheWriter).getCacheNames().contains(name);
+        }
+
+        if (cacheWriter instanceof ChunkedRedisCacheWriter) {
+            return ((ChunkedRedisCacheWriter) cacheWriter).getThresholds().containsKey(name);
+        }
+
+        if (cacheWriter instanceof StaleRedisCacheWriter) {
+            return ((StaleRedisCacheWriter) cacheWriter).getCacheNames().contains(name);
+        }
+
+        if (cacheWriter instanceof HotKeyRedisCacheWriter) {
+            return ((HotKeyRedisCacheWriter) cacheWriter).getCacheNames().contains(name);
+        }
+
+        return false;
+    }
+
+    /**
+     * 异步命令，首次使用时创建连接
+     *
+     * @return {@link RedisClusterAsyncCommands} 实例
+     */
+    private RedisClusterAsyncCommands<byte[], byte[]> commands() {
+        LettuceConnection result = connection;
+        if (result == null) {
+            synchronized (this) {
+                result = connection;
+                if (result == null) {
+                    RedisConnection redisConnection = connectionFactory.getConnection();
+                    Assert.isInstanceOf(LettuceConnection.class, redisConnection, "connection must be a LettuceConnection");
+
+                    result = (LettuceConnection) redisConnection;
+                    connection = result;
+                }
+            }
+        }
+        return result.getNativeConnection();
+    }
+
+    /**
+     * 关闭连接
+     */
+    @Override
+    public synchronized void close() {
+        LettuceConnection current = connection;
+        if (current != null) {
+            connection = null;
+            current.close();
+        }
+    }
+
+    public LettuceConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+}
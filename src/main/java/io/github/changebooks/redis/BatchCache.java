@@ -0,0 +1,74 @@
+package io.github.changebooks.redis;
+
+import org.springframework.cache.Cache;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 支持批量读写的 {@link Cache}
+ * <pre>
+ * {@link ExtendedRedisCache} 和 {@link CacheDecorator} 实现，批量读写经过每一层缓存装饰器
+ * 通过 CacheDecorator.unwrap(cache, BatchCache.class) 取最外层
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public interface BatchCache extends Cache {
+    /**
+     * 批量读
+     *
+     * @param keys 缓存键列表
+     * @param <K>  缓存键的类型
+     * @param <V>  缓存值的类型
+     * @return [ 缓存键 : 缓存值 ]，仅含命中的，缓存的Null值也视为命中，值为Null
+     */
+    <K, V> Map<K, V> getAll(Collection<K> keys);
+
+    /**
+     * 批量写，过期时间与单个写入相同
+     *
+     * @param values [ 缓存键 : 缓存值 ]
+     */
+    void putAll(Map<?, ?> values);
+
+    /**
+     * 批量读，未命中的通过加载函数一次取回，再批量写入
+     *
+     * @param keys   缓存键列表
+     * @param loader 加载函数，入参为未命中的缓存键，返回 [ 缓存键 : 缓存值 ]
+     * @param <K>    缓存键的类型
+     * @param <V>    缓存值的类型
+     * @return [ 缓存键 : 缓存值 ]，含命中的和加载的
+     */
+    default <K, V> Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        Assert.notNull(loader, "loader can't be null");
+
+        Map<K, V> result = new LinkedHashMap<>(getAll(keys));
+        if (CollectionUtils.isEmpty(keys)) {
+            return result;
+        }
+
+        Set<K> misses = new LinkedHashSet<>();
+        for (K key : keys) {
+            if (!result.containsKey(key)) {
+                misses.add(key);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        Map<K, V> loaded = loader.apply(Collections.unmodifiableSet(misses));
+        if (!CollectionUtils.isEmpty(loaded)) {
+            putAll(loaded);
+            result.putAll(loaded);
+        }
+
+        return result;
+    }
+
+}
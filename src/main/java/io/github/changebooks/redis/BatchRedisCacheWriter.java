@@ -0,0 +1,99 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量读写，位于写缓存装饰器的最内层，其它装饰器的批量读写最终到达这里
+ * <pre>
+ * 批量读，MGET，集群模式下按槽位拆分
+ * 批量写，管道，集群模式下按槽位分组，每组一次脚本
+ * 不经过被装饰的写缓存，不计入 {@link org.springframework.data.redis.cache.CacheStatistics}
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class BatchRedisCacheWriter extends RedisCacheWriterDecorator {
+    /**
+     * 连接工厂
+     */
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * 创建 {@link BatchRedisCacheWriter} 实例
+     *
+     * @param delegate          被装饰的写缓存，如，RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory)
+     * @param connectionFactory 连接工厂，批量读写
+     */
+    public BatchRedisCacheWriter(RedisCacheWriter delegate, RedisConnectionFactory connectionFactory) {
+        super(delegate);
+
+        Assert.notNull(connectionFactory, "connectionFactory can't be null");
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        List<byte[]> result = new ArrayList<>(keys.size());
+        if (keys.isEmpty()) {
+            return result;
+        }
+
+        List<byte[]> values;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            values = connection.stringCommands().mGet(keys.toArray(new byte[0][]));
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            result.add(values != null && i < values.size() ? values.get(i) : null);
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            if (connection instanceof RedisClusterConnection) {
+                // 集群模式不支持管道，按槽位分组，每组一次脚本
+                SlotBatch.set((RedisClusterConnection) connection, keys, values, ttls);
+                return;
+            }
+
+            connection.openPipeline();
+            try {
+                for (int i = 0; i < keys.size(); i++) {
+                    connection.stringCommands().set(keys.get(i), values.get(i), expiration(ttls.get(i)),
+                            RedisStringCommands.SetOption.upsert());
+                }
+            } finally {
+                connection.closePipeline();
+            }
+        }
+    }
+
+    private static Expiration expiration(Duration ttl) {
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return Expiration.persistent();
+        } else {
+            return Expiration.from(ttl);
+        }
+    }
+
+    public RedisConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+}
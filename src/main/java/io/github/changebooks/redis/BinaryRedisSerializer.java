@@ -0,0 +1,193 @@
+package io.github.changebooks.redis;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 序列化缓存value，紧凑的二进制格式
+ * <pre>
+ * 首字节为类型标记
+ * String、Integer、Long、Double、Boolean、byte[]，直接编码，无类型名
+ * 其它类型，Smile（二进制json），类型名仅写一次，重复字符串引用前文
+ * 首字节不是类型标记时，按json解析，兼容切换前写入的缓存
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class BinaryRedisSerializer implements RedisSerializer<Object> {
+    /**
+     * 类型标记，{@link NullValue}
+     */
+    public static final byte NULL_VALUE = 0x10;
+
+    /**
+     * 类型标记，{@link String}，UTF-8
+     */
+    public static final byte STRING = 0x11;
+
+    /**
+     * 类型标记，{@link Integer}，4字节
+     */
+    public static final byte INTEGER = 0x12;
+
+    /**
+     * 类型标记，{@link Long}，8字节
+     */
+    public static final byte LONG = 0x13;
+
+    /**
+     * 类型标记，{@link Double}，8字节
+     */
+    public static final byte DOUBLE = 0x14;
+
+    /**
+     * 类型标记，{@link Boolean#TRUE}
+     */
+    public static final byte TRUE = 0x15;
+
+    /**
+     * 类型标记，{@link Boolean#FALSE}
+     */
+    public static final byte FALSE = 0x16;
+
+    /**
+     * 类型标记，byte[]
+     */
+    public static final byte BYTES = 0x17;
+
+    /**
+     * 类型标记，Smile
+     */
+    public static final byte SMILE = 0x18;
+
+    /**
+     * 序列化其它类型，Smile
+     */
+    private final GenericJackson2JsonRedisSerializer smileSerializer;
+
+    /**
+     * 解析切换前写入的json
+     */
+    private final RedisSerializer<Object> jsonSerializer;
+
+    public BinaryRedisSerializer() {
+        this(smileMapper());
+    }
+
+    /**
+     * 自定义的Smile解析器
+     *
+     * @param smileMapper 基于 {@link SmileFactory} 的 {@link ObjectMapper}，需开启类型信息
+     */
+    public BinaryRedisSerializer(ObjectMapper smileMapper) {
+        this.smileSerializer = new GenericJackson2JsonRedisSerializer(smileMapper);
+        this.jsonSerializer = RedisSerializer.json();
+    }
+
+    /**
+     * 默认的Smile解析器
+     * 与 {@link RedisSerializer#json()} 相同，写入类型信息，支持 {@link NullValue}
+     *
+     * @return {@link ObjectMapper} 实例
+     */
+    public static ObjectMapper smileMapper() {
+        ObjectMapper result = new ObjectMapper(new SmileFactory());
+
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(result, null);
+        result.activateDefaultTyping(result.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.EVERYTHING, JsonTypeInfo.As.PROPERTY);
+
+        return result;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        if (value instanceof String) {
+            return tagged(STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (value instanceof Integer) {
+            return ByteBuffer.allocate(5).put(INTEGER).putInt((Integer) value).array();
+        }
+
+        if (value instanceof Long) {
+            return ByteBuffer.allocate(9).put(LONG).putLong((Long) value).array();
+        }
+
+        if (value instanceof Double) {
+            return ByteBuffer.allocate(9).put(DOUBLE).putDouble((Double) value).array();
+        }
+
+        if (value instanceof Boolean) {
+            return new byte[]{(Boolean) value ? TRUE : FALSE};
+        }
+
+        if (value instanceof byte[]) {
+            return tagged(BYTES, (byte[]) value);
+        }
+
+        if (value instanceof NullValue) {
+            return new byte[]{NULL_VALUE};
+        }
+
+        return tagged(SMILE, smileSerializer.serialize(value));
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        switch (bytes[0]) {
+            case NULL_VALUE:
+                return NullValue.INSTANCE;
+            case STRING:
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            case INTEGER:
+                return ByteBuffer.wrap(bytes, 1, 4).getInt();
+            case LONG:
+                return ByteBuffer.wrap(bytes, 1, 8).getLong();
+            case DOUBLE:
+                return ByteBuffer.wrap(bytes, 1, 8).getDouble();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTES:
+                return Arrays.copyOfRange(bytes, 1, bytes.length);
+            case SMILE:
+                return smileSerializer.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+            default:
+                return jsonSerializer.deserialize(bytes);
+        }
+    }
+
+    /**
+     * 首字节写入类型标记
+     *
+     * @param tag     类型标记
+     * @param payload 内容
+     * @return 类型标记 + 内容
+     */
+    private static byte[] tagged(byte tag, byte[] payload) {
+        byte[] result = new byte[payload.length + 1];
+        result[0] = tag;
+        System.arraycopy(payload, 0, result, 1, payload.length);
+        return result;
+    }
+
+}
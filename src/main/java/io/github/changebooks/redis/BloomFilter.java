@@ -0,0 +1,506 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 布隆过滤器，进程内，无锁
+ * 不存在时一定不存在，存在时可能不存在（误判）
+ * <pre>
+ * 可选，共享，位数组与Redis同步，任一进程写入的键，同步后其它进程可见
+ *   查询只读进程内，写入先进入待同步队列，读写均不访问Redis
+ *   定时同步，待同步的位写入Redis，Redis中的位数组有变化时（BITCOUNT），分段读回，合并到进程内
+ *   位数不超过2^32，Redis字符串的上限
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class BloomFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BloomFilter.class);
+
+    /**
+     * 共享时，写入的脚本路径
+     */
+    private static final String PUT_SCRIPT_PATH = "bloom-filter-put.lua";
+
+    /**
+     * 共享时，写入的脚本命令
+     */
+    private static final DefaultRedisScript<Long> PUT_SCRIPT = script(PUT_SCRIPT_PATH, Long.class);
+
+    /**
+     * 共享时，批量写入，每次脚本最多写入的键数
+     */
+    private static final int PUT_BATCH_SIZE = 1000;
+
+    /**
+     * 共享时，待同步的最大键数，超过时同步写入Redis
+     */
+    private static final int PENDING_CAPACITY = 100000;
+
+    /**
+     * 共享时，读回位数组，每段的字节数
+     */
+    private static final int SYNC_CHUNK_BYTES = 64 * 1024;
+
+    /**
+     * 共享时，位数的上限
+     */
+    private static final long MAX_SHARED_BIT_SIZE = 1L << 32;
+
+    /**
+     * 位数组
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * 总位数
+     */
+    private final long bitSize;
+
+    /**
+     * 哈希函数个数
+     */
+    private final int hashCount;
+
+    /**
+     * 已写入次数，含重复写入
+     */
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * 共享时，{@link StringRedisTemplate}，Null时仅进程内
+     */
+    private volatile StringRedisTemplate template;
+
+    /**
+     * 共享时，Redis中位数组的键
+     */
+    private volatile List<String> sharedKeys;
+
+    /**
+     * 共享时，待写入Redis的位，每个元素是一个键的位
+     */
+    private final Queue<long[]> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 待写入Redis的键数
+     */
+    private final AtomicInteger pendingSize = new AtomicInteger();
+
+    /**
+     * 上次读回时，Redis中位数组的BITCOUNT，未变化时不读回
+     */
+    private volatile long syncedBitCount = -1;
+
+    /**
+     * 定时同步的句柄，Null时未开启
+     */
+    private volatile ScheduledFuture<?> syncFuture;
+
+    /**
+     * 创建 {@link BloomFilter} 实例
+     *
+     * @param expectedInsertions 预计写入数
+     * @param fpp                预计误判率，如，0.01
+     * @return {@link BloomFilter} 实例
+     */
+    public static BloomFilter create(long expectedInsertions, double fpp) {
+        Assert.isTrue(expectedInsertions > 0, "expectedInsertions must be greater than 0");
+        Assert.isTrue(fpp > 0 && fpp < 1, "fpp must be between 0 and 1");
+
+        long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+
+        return new BloomFilter(bitSize, hashCount);
+    }
+
+    private BloomFilter(long bitSize, int hashCount) {
+        long words = (bitSize + 63) >>> 6;
+        Assert.isTrue(words <= Integer.MAX_VALUE, "bitSize is too large");
+
+        this.bits = new AtomicLongArray((int) words);
+        this.bitSize = words << 6;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * 共享，位数组与Redis同步，需调用 {@link #sync()} 或 {@link #startSync(ScheduledExecutorService, Duration)}
+     * 开启前进程内已写入的键，不会写入Redis
+     *
+     * @param template  {@link StringRedisTemplate} 实例
+     * @param sharedKey Redis中位数组的键
+     * @return 本实例
+     */
+    public BloomFilter setShared(StringRedisTemplate template, String sharedKey) {
+        Assert.notNull(template, "template can't be null");
+        Assert.hasText(sharedKey, "sharedKey can't be empty");
+        Assert.isTrue(bitSize <= MAX_SHARED_BIT_SIZE, "bitSize is too large to be shared");
+
+        this.sharedKeys = Collections.singletonList(sharedKey);
+        this.template = template;
+        return this;
+    }
+
+    /**
+     * 共享时，开启定时同步，立即执行第一次
+     *
+     * @param executor 执行同步
+     * @param interval 同步间隔，其它进程写入的键，最迟一个间隔后可见
+     * @return 本实例
+     */
+    public BloomFilter startSync(ScheduledExecutorService executor, Duration interval) {
+        Assert.isTrue(isShared(), "bloomFilter must be shared");
+        Assert.notNull(executor, "executor can't be null");
+        Assert.isTrue(interval != null && interval.toMillis() > 0, "interval must be greater than 0");
+
+        ScheduledFuture<?> previous = syncFuture;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+
+        long millis = interval.toMillis();
+        this.syncFuture = executor.scheduleWithFixedDelay(this::syncQuietly, 0, millis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * 停止定时同步，待同步的位写入Redis
+     */
+    public void stop() {
+        ScheduledFuture<?> future = syncFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+
+        if (isShared()) {
+            flush();
+        }
+    }
+
+    /**
+     * 写入，只写进程内，共享时进入待同步队列
+     * 待同步队列满时，先同步写入Redis
+     *
+     * @param key 键
+     */
+    public void put(String key) {
+        long[] indexes = indexes(key);
+        for (long index : indexes) {
+            setBit(index);
+        }
+
+        insertions.increment();
+
+        if (template != null) {
+            if (pendingSize.get() >= PENDING_CAPACITY) {
+                flush();
+            }
+
+            pending.add(indexes);
+            pendingSize.incrementAndGet();
+        }
+    }
+
+    /**
+     * 批量写入，如，启动时加载全部存在的键，共享时直接写入Redis，每 {@link #PUT_BATCH_SIZE} 个键一次脚本
+     *
+     * @param keys 键列表
+     */
+    public void putAll(Collection<String> keys) {
+        List<long[]> batch = new ArrayList<>(Math.min(keys.size(), PUT_BATCH_SIZE));
+        for (String key : keys) {
+            long[] indexes = indexes(key);
+            for (long index : indexes) {
+                setBit(index);
+            }
+
+            insertions.increment();
+            batch.add(indexes);
+            if (batch.size() >= PUT_BATCH_SIZE) {
+                putShared(batch);
+                batch.clear();
+            }
+        }
+
+        putShared(batch);
+    }
+
+    /**
+     * 可能存在？只查进程内
+     * 共享时，其它进程写入的键，同步后可见
+     *
+     * @param key 键
+     * @return false时一定不存在，true时可能存在
+     */
+    public boolean mightContain(String key) {
+        for (long index : indexes(key)) {
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 共享时，同步一次
+     * 待同步的位写入Redis，Redis中的位数组有变化时，读回并合并到进程内
+     */
+    public void sync() {
+        Assert.isTrue(isShared(), "bloomFilter must be shared");
+
+        flush();
+
+        byte[] rawKey = getSharedKey().getBytes(StandardCharsets.UTF_8);
+        Long bitCount = template.execute((RedisCallback<Long>) connection -> connection.stringCommands().bitCount(rawKey));
+        if (bitCount == null || bitCount == syncedBitCount) {
+            return;
+        }
+
+        long byteSize = bitSize >>> 3;
+        for (long start = 0; start < byteSize; start += SYNC_CHUNK_BYTES) {
+            long end = Math.min(start + SYNC_CHUNK_BYTES, byteSize) - 1;
+            long offset = start;
+            byte[] chunk = template.execute((RedisCallback<byte[]>) connection ->
+                    connection.stringCommands().getRange(rawKey, offset, end));
+            if (chunk == null || chunk.length == 0) {
+                break;
+            }
+
+            merge(offset, chunk);
+            if (chunk.length < end - start + 1) {
+                // 已到Redis中位数组的末尾
+                break;
+            }
+        }
+
+        // 读回期间的新写入，BITCOUNT不同，下次再读回
+        syncedBitCount = bitCount;
+    }
+
+    /**
+     * 定时同步，失败时等待下次
+     */
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("sync failed, sharedKey: {}, throwable: ", getSharedKey(), ex);
+        }
+    }
+
+    /**
+     * 待同步的位写入Redis，每 {@link #PUT_BATCH_SIZE} 个键一次脚本
+     * 失败时未写入的位回到待同步队列
+     */
+    private void flush() {
+        List<long[]> batch = new ArrayList<>();
+        long[] indexes;
+        while ((indexes = pending.poll()) != null) {
+            pendingSize.decrementAndGet();
+            batch.add(indexes);
+            if (batch.size() >= PUT_BATCH_SIZE) {
+                flushBatch(batch);
+                batch.clear();
+            }
+        }
+
+        flushBatch(batch);
+    }
+
+    private void flushBatch(List<long[]> batch) {
+        try {
+            putShared(batch);
+        } catch (RuntimeException ex) {
+            pending.addAll(batch);
+            pendingSize.addAndGet(batch.size());
+            throw ex;
+        }
+    }
+
+    /**
+     * 合并Redis中的一段位数组到进程内
+     * Redis中每个字节高位在前，进程内每个long低位在前
+     *
+     * @param byteOffset 起始字节
+     * @param chunk      一段位数组
+     */
+    private void merge(long byteOffset, byte[] chunk) {
+        for (int i = 0; i < chunk.length; i++) {
+            int value = chunk[i] & 0xFF;
+            if (value == 0) {
+                continue;
+            }
+
+            long position = (byteOffset + i) << 3;
+            int wordIndex = (int) (position >>> 6);
+            if (wordIndex >= bits.length()) {
+                return;
+            }
+
+            long mask = (long) (Integer.reverse(value) >>> 24) << (position & 63);
+            long oldValue;
+            do {
+                oldValue = bits.get(wordIndex);
+                if ((oldValue & mask) == mask) {
+                    break;
+                }
+            } while (!bits.compareAndSet(wordIndex, oldValue, oldValue | mask));
+        }
+    }
+
+    /**
+     * 共享？
+     *
+     * @return 位数组同时写入Redis？
+     */
+    public boolean isShared() {
+        return template != null;
+    }
+
+    /**
+     * 哈希函数对应的位
+     *
+     * @param key 键
+     * @return 位的序号列表
+     */
+    private long[] indexes(String key) {
+        long hash64 = hash(key);
+        int hash1 = (int) hash64;
+        int hash2 = (int) (hash64 >>> 32);
+
+        long[] result = new long[hashCount];
+        for (int i = 1; i <= hashCount; i++) {
+            result[i - 1] = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitSize;
+        }
+        return result;
+    }
+
+    private void putShared(List<long[]> batch) {
+        StringRedisTemplate redisTemplate = template;
+        if (redisTemplate != null && !batch.isEmpty()) {
+            redisTemplate.execute(PUT_SCRIPT, sharedKeys, toArgs(batch));
+        }
+    }
+
+    private static Object[] toArgs(List<long[]> batch) {
+        List<String> result = new ArrayList<>();
+        for (long[] indexes : batch) {
+            for (long index : indexes) {
+                result.add(Long.toString(index));
+            }
+        }
+        return result.toArray();
+    }
+
+    private void setBit(long index) {
+        int wordIndex = (int) (index >>> 6);
+        long mask = 1L << index;
+
+        long oldValue;
+        do {
+            oldValue = bits.get(wordIndex);
+            if ((oldValue & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(wordIndex, oldValue, oldValue | mask));
+    }
+
+    /**
+     * 64位哈希，MurmurHash3的混淆函数
+     *
+     * @param key 键
+     * @return 哈希值
+     */
+    private static long hash(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+
+        long h = 0x9E3779B97F4A7C15L ^ bytes.length;
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 当前误判率的估算值
+     * (1 - e^(-k * n / m))^k
+     *
+     * @return 误判率
+     */
+    public double getExpectedFpp() {
+        double n = insertions.sum();
+        return Math.pow(1 - Math.exp(-hashCount * n / bitSize), hashCount);
+    }
+
+    /**
+     * 占用内存
+     *
+     * @return 位数组的字节数
+     */
+    public long getMemoryBytes() {
+        return bitSize >>> 3;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * 待写入Redis的键数
+     *
+     * @return 键数
+     */
+    public int getPendingSize() {
+        return pendingSize.get();
+    }
+
+    public String getSharedKey() {
+        List<String> keys = sharedKeys;
+        return keys != null ? keys.get(0) : null;
+    }
+
+    private static <T> DefaultRedisScript<T> script(String path, Class<T> resultType) {
+        DefaultRedisScript<T> result = new DefaultRedisScript<>();
+        result.setResultType(resultType);
+        result.setScriptSource(new ResourceScriptSource(new ClassPathResource(path)));
+        return result;
+    }
+
+}
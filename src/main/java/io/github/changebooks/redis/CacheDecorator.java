@@ -0,0 +1,146 @@
+package io.github.changebooks.redis;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 缓存装饰器，默认全部委托给被装饰的缓存
+ * 子类重写需要增强的方法，含批量读写
+ * 被装饰的不是 {@link BatchCache} 时，批量读写逐个执行
+ *
+ * @author changebooks@qq.com
+ */
+public abstract class CacheDecorator implements BatchCache {
+    /**
+     * 被装饰的缓存
+     */
+    private final Cache delegate;
+
+    public CacheDecorator(Cache delegate) {
+        Assert.notNull(delegate, "delegate can't be null");
+
+        this.delegate = delegate;
+    }
+
+    /**
+     * 逐层拆开装饰器，查找指定类型的缓存
+     *
+     * @param cache 缓存
+     * @param type  缓存类型
+     * @param <T>   缓存类型
+     * @return 指定类型的缓存，未找到时返回Null
+     */
+    public static <T extends Cache> T unwrap(Cache cache, Class<T> type) {
+        Cache current = cache;
+        while (current != null) {
+            if (type.isInstance(current)) {
+                return type.cast(current);
+            }
+
+            if (current instanceof CacheDecorator) {
+                current = ((CacheDecorator) current).getDelegate();
+            } else if (current instanceof TransactionAwareCacheDecorator) {
+                current = ((TransactionAwareCacheDecorator) current).getTargetCache();
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys) {
+        if (delegate instanceof BatchCache) {
+            return ((BatchCache) delegate).getAll(keys);
+        }
+
+        Map<K, V> result = new LinkedHashMap<>();
+        if (keys == null) {
+            return result;
+        }
+
+        for (K key : keys) {
+            ValueWrapper wrapper = delegate.get(key);
+            if (wrapper != null) {
+                result.put(key, (V) wrapper.get());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        if (delegate instanceof BatchCache) {
+            ((BatchCache) delegate).putAll(values);
+        } else if (values != null) {
+            values.forEach(delegate::put);
+        }
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+}
@@ -1,29 +1,60 @@
 package io.github.changebooks.redis;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.lang.NonNull;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 通过默认的方法，或重写的子方法，创建实例
  * <pre>
  * {@link CacheLock}
  * {@link RateLimiter}
  * {@link TokenBucket}
+ * {@link ConcurrencyLimiter}
+ * {@link AdaptiveRateLimiter}
+ * {@link SegmentSequence}
  * </pre>
  *
  * @author changebooks@qq.com
  */
 public class CacheDistributedSupport extends AbstractCacheSupport {
+    /**
+     * 预取号段的线程池名称
+     */
+    private static final String SEGMENT_POOL_NAME = "SEGMENT-PREFETCH";
+
+    /**
+     * 预取号段的最大线程数
+     */
+    private static final int SEGMENT_THREADS = 2;
+
+    /**
+     * 预取号段的最大排队数
+     */
+    private static final int SEGMENT_QUEUE_CAPACITY = 64;
+
     /**
      * 执行模板
      */
     private final StringRedisTemplate stringRedisTemplate;
 
+    /**
+     * 预取号段的线程池，首次使用时创建
+     */
+    private volatile ExecutorService segmentExecutor;
+
     public CacheDistributedSupport(StringRedisTemplate stringRedisTemplate,
                                    @NonNull CachePrefixNameTtl cachePrefixNameTtl) {
-        super(cachePrefixNameTtl.isUseCacheNamePrefix(), cachePrefixNameTtl.getCacheNamePrefix());
+        super(cachePrefixNameTtl.isUseCacheNamePrefix(), cachePrefixNameTtl.getCacheNamePrefix(),
+                cachePrefixNameTtl.isUseHashTag());
         this.stringRedisTemplate = stringRedisTemplate;
     }
 
@@ -39,6 +70,28 @@ public class CacheDistributedSupport extends AbstractCacheSupport {
         this.stringRedisTemplate = stringRedisTemplate;
     }
 
+    /**
+     * 使用指定的连接工厂，如，与缓存读写分开的专用连接工厂
+     *
+     * @param connectionFactory  控制面的连接工厂
+     * @param cachePrefixNameTtl 缓存名前缀
+     * @see DedicatedConnectionFactory
+     */
+    public CacheDistributedSupport(RedisConnectionFactory connectionFactory,
+                                   @NonNull CachePrefixNameTtl cachePrefixNameTtl) {
+        this(new StringRedisTemplate(connectionFactory), cachePrefixNameTtl);
+    }
+
+    /**
+     * 使用指定的连接工厂，如，与缓存读写分开的专用连接工厂
+     *
+     * @param connectionFactory 控制面的连接工厂
+     * @see DedicatedConnectionFactory
+     */
+    public CacheDistributedSupport(RedisConnectionFactory connectionFactory) {
+        this(new StringRedisTemplate(connectionFactory));
+    }
+
     /**
      * 分布式锁
      *
@@ -54,7 +107,9 @@ public class CacheDistributedSupport extends AbstractCacheSupport {
         String prefixedCacheName = prefixedCacheName(cleanedCacheName);
         String cleanedToken = token(token);
 
-        return CacheLock.create(stringRedisTemplate, prefixedCacheName, cleanedToken);
+        CacheMetrics metrics = cacheMetrics();
+        return CacheLock.create(stringRedisTemplate, prefixedCacheName, cleanedToken).
+                setLockStats(metrics != null ? metrics.lock(cleanedCacheName) : null);
     }
 
     /**
@@ -72,7 +127,10 @@ public class CacheDistributedSupport extends AbstractCacheSupport {
         StringRedisTemplate stringRedisTemplate = getStringRedisTemplate();
         String prefixedCacheName = prefixedCacheName(cleanedCacheName);
 
-        return RateLimiter.create(stringRedisTemplate, prefixedCacheName, seconds, permits);
+        CacheMetrics metrics = cacheMetrics();
+        return RateLimiter.create(stringRedisTemplate, prefixedCacheName, seconds, permits).
+                setHotKeyDetector(hotKeyDetector()).
+                setLimiterStats(metrics != null ? metrics.limiter(cleanedCacheName) : null);
     }
 
     /**
@@ -90,7 +148,118 @@ public class CacheDistributedSupport extends AbstractCacheSupport {
         StringRedisTemplate stringRedisTemplate = getStringRedisTemplate();
         String prefixedCacheName = prefixedCacheName(cleanedCacheName);
 
-        return TokenBucket.create(stringRedisTemplate, prefixedCacheName, maxPermits, permitsPerSecond);
+        CacheMetrics metrics = cacheMetrics();
+        return TokenBucket.create(stringRedisTemplate, prefixedCacheName, maxPermits, permitsPerSecond).
+                setHotKeyDetector(hotKeyDetector()).
+                setLimiterStats(metrics != null ? metrics.limiter(cleanedCacheName) : null);
+    }
+
+    /**
+     * 分布式限流（并发数）
+     *
+     * @param cacheName      缓存名
+     * @param token          许可id的前缀，如，客户端id
+     * @param maxConcurrency 最大并发数
+     * @return {@link ConcurrencyLimiter} 实例
+     */
+    public ConcurrencyLimiter concurrencyLimiter(String cacheName, String token, int maxConcurrency) {
+        String cleanedCacheName = cacheName(cacheName);
+        Assert.hasText(cleanedCacheName, "cleanedCacheName can't be empty");
+
+        StringRedisTemplate stringRedisTemplate = getStringRedisTemplate();
+        String prefixedCacheName = prefixedCacheName(cleanedCacheName);
+        String cleanedToken = token(token);
+
+        return ConcurrencyLimiter.create(stringRedisTemplate, prefixedCacheName, cleanedToken, maxConcurrency);
+    }
+
+    /**
+     * 分布式限流（自适应，固定时间窗口）
+     *
+     * @param cacheName      缓存名
+     * @param seconds        总秒数（x秒内）
+     * @param minPermits     最小许可数
+     * @param maxPermits     最大许可数
+     * @param initialPermits 初始许可数
+     * @return {@link AdaptiveRateLimiter} 实例
+     */
+    public AdaptiveRateLimiter adaptiveRateLimiter(String cacheName, int seconds,
+                                                   int minPermits, int maxPermits, int initialPermits) {
+        String cleanedCacheName = cacheName(cacheName);
+        Assert.hasText(cleanedCacheName, "cleanedCacheName can't be empty");
+
+        StringRedisTemplate stringRedisTemplate = getStringRedisTemplate();
+        String prefixedCacheName = prefixedCacheName(cleanedCacheName);
+
+        return AdaptiveRateLimiter.create(stringRedisTemplate, prefixedCacheName, seconds,
+                minPermits, maxPermits, initialPermits);
+    }
+
+    /**
+     * 分布式序列号（号段）
+     * 同一个缓存名，应只创建一个实例，多个实例各自取号段，浪费序列号
+     *
+     * @param cacheName   缓存名
+     * @param segmentSize 号段长度，如，每秒分配数
+     * @return {@link SegmentSequence} 实例
+     */
+    public SegmentSequence segmentSequence(String cacheName, long segmentSize) {
+        String cleanedCacheName = cacheName(cacheName);
+        Assert.hasText(cleanedCacheName, "cleanedCacheName can't be empty");
+
+        StringRedisTemplate stringRedisTemplate = getStringRedisTemplate();
+        String prefixedCacheName = prefixedCacheName(cleanedCacheName);
+
+        return SegmentSequence.create(stringRedisTemplate, prefixedCacheName, segmentSize, segmentExecutor());
+    }
+
+    /**
+     * 预取号段的线程池，专用，有界，首次使用时创建，多个序列号共用
+     * 默认处理方式，最多 {@link #SEGMENT_THREADS} 个线程，队列满时不预取，切换号段时同步取号段
+     *
+     * @return {@link ExecutorService} 实例
+     */
+    public ExecutorService segmentExecutor() {
+        ExecutorService result = segmentExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = segmentExecutor;
+                if (result == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            SEGMENT_THREADS, SEGMENT_THREADS,
+                            60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(SEGMENT_QUEUE_CAPACITY),
+                            new DefaultThreadFactory(SEGMENT_POOL_NAME, true),
+                            new ThreadPoolExecutor.AbortPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+
+                    result = executor;
+                    segmentExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 限流的热点键检测，同一个实例可在多个限流间共用
+     * 默认处理方式，不检测
+     *
+     * @return {@link HotKeyDetector} 实例，Null时不检测
+     */
+    public HotKeyDetector hotKeyDetector() {
+        return null;
+    }
+
+    /**
+     * 分布式锁和限流的统计，按缓存名统计，同一个实例可在多处共用
+     * 默认处理方式，不统计
+     * 缓存名含业务id时，应重写，或不开启，避免统计无限增长
+     *
+     * @return {@link CacheMetrics} 实例，Null时不统计
+     */
+    public CacheMetrics cacheMetrics() {
+        return null;
     }
 
     /**
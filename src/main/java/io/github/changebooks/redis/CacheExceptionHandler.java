@@ -5,9 +5,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.interceptor.CacheErrorHandler;
 
+import java.time.Duration;
+
 /**
  * 统一异常处理
+ * <pre>
  * 默认处理方式，错误日志
+ * 可选，按缓存名和操作限流，每个间隔内最多输出一次，如，Redis故障、熔断探测失败时
+ * 写入失败时，不输出缓存值，仅输出类型
+ * </pre>
  *
  * @author changebooks@qq.com
  */
@@ -15,32 +21,67 @@ public class CacheExceptionHandler implements CacheErrorHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CacheExceptionHandler.class);
 
+    /**
+     * 日志限流
+     */
+    private final LogRateLimiter logRateLimiter;
+
+    public CacheExceptionHandler() {
+        this(null);
+    }
+
+    /**
+     * 日志限流
+     *
+     * @param logInterval 同一个缓存名和操作，日志的最小间隔，Null时不限流
+     */
+    public CacheExceptionHandler(Duration logInterval) {
+        this.logRateLimiter = new LogRateLimiter(logInterval);
+    }
+
     @Override
     public void handleCacheGetError(RuntimeException exception, Cache cache, Object key) {
         String cacheName = cache.getName();
-        LOGGER.error("handleCacheGetError, cacheName: {}, key: {}, throwable: ",
-                cacheName, key, exception);
+        long suppressed = logRateLimiter.tryAcquire(cacheName + ":get");
+        if (suppressed >= 0) {
+            LOGGER.error("handleCacheGetError, cacheName: {}, key: {}, suppressed: {}, throwable: ",
+                    cacheName, key, suppressed, exception);
+        }
     }
 
     @Override
     public void handleCachePutError(RuntimeException exception, Cache cache, Object key, Object value) {
         String cacheName = cache.getName();
-        LOGGER.error("handleCachePutError, cacheName: {}, key: {}, value: {}, throwable: ",
-                cacheName, key, value, exception);
+        long suppressed = logRateLimiter.tryAcquire(cacheName + ":put");
+        if (suppressed >= 0) {
+            String valueType = value != null ? value.getClass().getName() : null;
+            LOGGER.error("handleCachePutError, cacheName: {}, key: {}, valueType: {}, suppressed: {}, throwable: ",
+                    cacheName, key, valueType, suppressed, exception);
+        }
     }
 
     @Override
     public void handleCacheEvictError(RuntimeException exception, Cache cache, Object key) {
         String cacheName = cache.getName();
-        LOGGER.error("handleCacheEvictError, cacheName: {}, key: {}, throwable: ",
-                cacheName, key, exception);
+        long suppressed = logRateLimiter.tryAcquire(cacheName + ":evict");
+        if (suppressed >= 0) {
+            LOGGER.error("handleCacheEvictError, cacheName: {}, key: {}, suppressed: {}, throwable: ",
+                    cacheName, key, suppressed, exception);
+        }
     }
 
     @Override
     public void handleCacheClearError(RuntimeException exception, Cache cache) {
         String cacheName = cache.getName();
-        LOGGER.error("handleCacheClearError, cacheName: {}, throwable: ",
-                cacheName, exception);
+        long suppressed = logRateLimiter.tryAcquire(cacheName + ":clear");
+        if (suppressed >= 0) {
+            LOGGER.error("handleCacheClearError, cacheName: {}, suppressed: {}, throwable: ",
+                    cacheName, suppressed, exception);
+        }
+    }
+
+    public LogRateLimiter getLogRateLimiter() {
+        return logRateLimiter;
     }
 
 }
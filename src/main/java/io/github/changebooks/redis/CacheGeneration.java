@@ -0,0 +1,157 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存代数，拼入缓存键前缀，清空缓存时代数 + 1，旧代的缓存等待过期
+ * <pre>
+ * 代数存于 "缓存名前缀 + 缓存名#generation"，不在缓存键的命名空间内，不被清空和快照
+ * 进程内缓存代数，超过刷新间隔后重新读取
+ * 代数 + 1 后，通过 {@link CacheNotifier} 通知其它进程重新读取
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class CacheGeneration {
+    /**
+     * 代数存储名的后缀
+     */
+    private static final String GENERATION_SUFFIX = "generation";
+
+    /**
+     * 进程内的代数，[ 缓存名 : 代数 ]
+     */
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    /**
+     * {@link StringRedisTemplate}
+     */
+    private final StringRedisTemplate template;
+
+    /**
+     * 跨进程通知
+     */
+    private final CacheNotifier notifier;
+
+    /**
+     * 拼接缓存名前缀、缓存名
+     */
+    private final AbstractCacheSupport cacheSupport;
+
+    /**
+     * 通知频道
+     */
+    private final String channel;
+
+    /**
+     * 刷新间隔，单位：纳秒
+     */
+    private final long refreshInterval;
+
+    /**
+     * 创建 {@link CacheGeneration} 实例
+     *
+     * @param template        {@link StringRedisTemplate} 实例
+     * @param notifier        跨进程通知
+     * @param cacheSupport    拼接缓存名前缀、缓存名
+     * @param channel         通知频道
+     * @param refreshInterval 进程内代数的刷新间隔
+     */
+    public CacheGeneration(StringRedisTemplate template, CacheNotifier notifier, AbstractCacheSupport cacheSupport,
+                           String channel, Duration refreshInterval) {
+        Assert.notNull(template, "template can't be null");
+        Assert.notNull(notifier, "notifier can't be null");
+        Assert.notNull(cacheSupport, "cacheSupport can't be null");
+        Assert.hasText(channel, "channel can't be empty");
+        Assert.isTrue(refreshInterval != null && refreshInterval.toMillis() > 0, "refreshInterval must be greater than 0");
+
+        this.template = template;
+        this.notifier = notifier;
+        this.cacheSupport = cacheSupport;
+        this.channel = channel;
+        this.refreshInterval = refreshInterval.toNanos();
+
+        notifier.subscribe(channel, generations::remove);
+    }
+
+    /**
+     * 当前代数
+     *
+     * @param cacheName 缓存名
+     * @return 代数，未清空过时返回0
+     */
+    public long get(String cacheName) {
+        long nowTime = System.nanoTime();
+
+        Generation generation = generations.get(cacheName);
+        if (generation != null && nowTime - generation.loadedAt < refreshInterval) {
+            return generation.value;
+        }
+
+        String value = template.opsForValue().get(key(cacheName));
+        long result = value != null ? Long.parseLong(value) : 0;
+
+        generations.put(cacheName, new Generation(result, nowTime));
+        return result;
+    }
+
+    /**
+     * 代数 + 1，旧代的缓存不再读取
+     *
+     * @param cacheName 缓存名
+     * @return 新的代数
+     */
+    public long increment(String cacheName) {
+        Long value = template.opsForValue().increment(key(cacheName));
+        long result = value != null ? value : 0;
+
+        generations.put(cacheName, new Generation(result, System.nanoTime()));
+        notifier.publish(channel, cacheName);
+
+        return result;
+    }
+
+    /**
+     * 代数的存储名
+     *
+     * @param cacheName 缓存名
+     * @return 缓存名前缀 + 缓存名#generation
+     * @see KeyPrefix#internal(String, String)
+     */
+    public String key(String cacheName) {
+        return KeyPrefix.internal(cacheSupport.prefixedCacheName(cacheName), GENERATION_SUFFIX);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public Duration getRefreshInterval() {
+        return Duration.ofNanos(refreshInterval);
+    }
+
+    /**
+     * 代数和读取时间
+     */
+    private static final class Generation {
+
+        final long value;
+
+        /**
+         * 读取时间，单位：纳秒
+         */
+        final long loadedAt;
+
+        Generation(long value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+
+    }
+
+}
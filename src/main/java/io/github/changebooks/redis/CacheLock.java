@@ -1,5 +1,6 @@
 package io.github.changebooks.redis;
 
+import io.netty.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.connection.RedisStringCommands;
@@ -9,6 +10,8 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.util.Assert;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -51,6 +54,22 @@ public final class CacheLock {
      */
     private final StringRedisTemplate template;
 
+    /**
+     * 统计，Null时不统计
+     */
+    private CacheMetrics.LockStats lockStats;
+
+    /**
+     * 统计时，[ 线程id : 加锁成功的时刻，单位：纳秒 ]
+     * 同一时刻只有一个持有者，加锁成功时清除其它线程的，它们的锁已过期，未解锁
+     */
+    private final Map<Long, Long> lockedAt = new ConcurrentHashMap<>();
+
+    /**
+     * [ 线程id : 定时续期的任务句柄 ]
+     */
+    private final Map<Long, Timeout> renewals = new ConcurrentHashMap<>();
+
     /**
      * 创建 {@link CacheLock} 实例
      *
@@ -97,11 +116,31 @@ public final class CacheLock {
         Assert.isTrue(expirationTime > 0, "expirationTime must be greater than 0");
 
         Expiration expiredAt = Expiration.from(expirationTime, timeUnit);
-        return template.execute((RedisCallback<Boolean>) conn -> conn.set(
+        CacheMetrics.LockStats stats = lockStats;
+        if (stats == null) {
+            return template.execute((RedisCallback<Boolean>) conn -> conn.set(
+                    name,
+                    token(threadId),
+                    expiredAt,
+                    RedisStringCommands.SetOption.SET_IF_ABSENT));
+        }
+
+        long startTime = System.nanoTime();
+        Boolean result = template.execute((RedisCallback<Boolean>) conn -> conn.set(
                 name,
                 token(threadId),
                 expiredAt,
                 RedisStringCommands.SetOption.SET_IF_ABSENT));
+
+        long now = System.nanoTime();
+        boolean acquired = result != null && result;
+        stats.recordAcquire(acquired, now - startTime);
+        if (acquired) {
+            lockedAt.clear();
+            lockedAt.put(threadId, now);
+        }
+
+        return result;
     }
 
     /**
@@ -116,12 +155,22 @@ public final class CacheLock {
     }
 
     /**
-     * 解锁
+     * 解锁，并取消定时续期
      *
      * @param threadId 线程id
      * @return 解锁成功？
      */
     public Boolean unlock(long threadId) {
+        cancelRenewal(threadId);
+
+        CacheMetrics.LockStats stats = lockStats;
+        if (stats != null) {
+            Long startTime = lockedAt.remove(threadId);
+            if (startTime != null) {
+                stats.recordRelease(System.nanoTime() - startTime);
+            }
+        }
+
         return template.execute((RedisCallback<Boolean>) conn -> conn.eval(
                 UNLOCK_SCRIPT,
                 ReturnType.BOOLEAN,
@@ -192,17 +241,54 @@ public final class CacheLock {
         Assert.isTrue(delayTime > 0, "delayTime must be greater than 0");
         Assert.isTrue(expirationTime > 0, "expirationTime must be greater than 0");
 
-        TimeoutScheduler.newTimeout(timeout -> {
+        // 同一个线程只保留一个续期任务，取消之前的
+        Timeout previous = renewals.put(threadId, newRenewal(threadId, delayTime, expirationTime, timeUnit));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private Timeout newRenewal(long threadId, long delayTime, long expirationTime, TimeUnit timeUnit) {
+        return TimeoutScheduler.newTimeout(timeout -> {
+            if (renewals.get(threadId) != timeout) {
+                // 已取消
+                return;
+            }
+
             Boolean r = renewal(threadId, expirationTime, timeUnit);
             if (r != null && r) {
-                scheduleRenewal(threadId, delayTime, expirationTime, timeUnit);
+                // 续期期间被取消时，不再继续
+                Timeout next = newRenewal(threadId, delayTime, expirationTime, timeUnit);
+                if (!renewals.replace(threadId, timeout, next)) {
+                    next.cancel();
+                }
                 LOGGER.debug("scheduleRenewal start, token: {}, threadId: {}", getToken(), threadId);
             } else {
+                renewals.remove(threadId, timeout);
                 LOGGER.debug("scheduleRenewal stop, token: {}, threadId: {}", getToken(), threadId);
             }
         }, delayTime, timeUnit);
     }
 
+    /**
+     * 取消定时续期
+     */
+    public void cancelRenewal() {
+        cancelRenewal(Thread.currentThread().getId());
+    }
+
+    /**
+     * 取消定时续期
+     *
+     * @param threadId 线程id
+     */
+    public void cancelRenewal(long threadId) {
+        Timeout timeout = renewals.remove(threadId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
     /**
      * 格式化令牌，解锁和续期的令牌
      *
@@ -233,4 +319,13 @@ public final class CacheLock {
         return template;
     }
 
+    public CacheMetrics.LockStats getLockStats() {
+        return lockStats;
+    }
+
+    public CacheLock setLockStats(CacheMetrics.LockStats lockStats) {
+        this.lockStats = lockStats;
+        return this;
+    }
+
 }
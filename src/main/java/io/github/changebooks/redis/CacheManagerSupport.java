@@ -1,121 +1,1486 @@
 package io.github.changebooks.redis;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.BatchStrategy;
 import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.lang.NonNull;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * 通过默认的方法，或重写的子方法，创建实例
  * <pre>
  * {@link CacheManager}
+ * {@link StampedeProtectedCache}
+ * {@link RefreshAheadCache}
+ * {@link NearCache}
  * {@link RedisCacheWriter}
  * {@link RedisCacheConfiguration}
+ * {@link CacheSnapshot}
  * </pre>
  *
  * @author changebooks@qq.com
  */
-public class CacheManagerSupport extends AbstractCacheSupport {
+public class CacheManagerSupport extends AbstractCacheSupport implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheManagerSupport.class);
+
+    /**
+     * 快照每批的默认数量
+     */
+    private static final int SNAPSHOT_BATCH_SIZE = 1000;
+    /**
+     * 二级缓存的通知频道的后缀
+     */
+    private static final String NEAR_CACHE_CHANNEL = "near-cache";
+
+    /**
+     * 进程内墓碑的默认最大数量
+     */
+    private static final int NEGATIVE_CACHE_SIZE = 10000;
+
+    /**
+     * 布隆过滤器的默认误判率
+     */
+    private static final double BLOOM_FILTER_FPP = 0.01;
+
+    /**
+     * 布隆过滤器与Redis同步的默认间隔
+     */
+    private static final Duration BLOOM_FILTER_SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * 布隆过滤器同步的线程池名称
+     */
+    private static final String BLOOM_FILTER_SYNC_POOL_NAME = "BLOOM-FILTER-SYNC";
+
+    /**
+     * 熔断打开时，日志的默认最小间隔
+     */
+    private static final Duration CIRCUIT_BREAKER_LOG_INTERVAL = Duration.ofSeconds(10);
+
+    /**
+     * 已知存在的键，Redis中位数组的后缀，内部键，不被清空和快照
+     */
+    private static final String KNOWN_KEYS = "known-keys";
+
+    /**
+     * 防缓存击穿的锁名的中缀，内部键
+     */
+    private static final String STAMPEDE_LOCK = "lock";
+
+    /**
+     * 防缓存击穿的通知频道的后缀
+     */
+    private static final String STAMPEDE_CHANNEL = "loaded";
+
+    /**
+     * 提前刷新的线程池名称
+     */
+    private static final String REFRESH_POOL_NAME = "REFRESH-AHEAD";
+
+    /**
+     * 提前刷新的最大线程数
+     */
+    private static final int REFRESH_THREADS = 4;
+
+    /**
+     * 提前刷新的最大排队数
+     */
+    private static final int REFRESH_QUEUE_CAPACITY = 1024;
+
+    /**
+     * 缓存代数的通知频道
+     */
+    private static final String GENERATION_CHANNEL = "cache-generation";
+
+    /**
+     * 进程内缓存代数的默认刷新间隔
+     */
+    private static final Duration GENERATION_REFRESH_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * 后台删除的线程池名称
+     */
+    private static final String CLEANUP_POOL_NAME = "CACHE-CLEANUP";
+
+    /**
+     * 后台删除的最大排队数
+     */
+    private static final int CLEANUP_QUEUE_CAPACITY = 64;
+
+    /**
+     * 热点键检测的默认列数
+     */
+    private static final int HOT_KEY_WIDTH = 4096;
+
+    /**
+     * 热点键的默认阈值，一个衰减周期内的估算访问次数
+     */
+    private static final long HOT_KEY_THRESHOLD = 1000;
+
+    /**
+     * 热点键检测的默认采样率
+     */
+    private static final int HOT_KEY_SAMPLE_RATE = 8;
+
+    /**
+     * 热点键检测的默认衰减周期，单位：秒
+     */
+    private static final long HOT_KEY_DECAY_SECONDS = 10;
+
+    /**
+     * 热点键副本的默认最大数量
+     */
+    private static final int HOT_KEY_REPLICA_SIZE = 1000;
+
+    /**
+     * 延迟写入的线程池名称
+     */
+    private static final String WRITE_BEHIND_POOL_NAME = "WRITE-BEHIND";
+
+    /**
+     * 延迟写入的默认间隔
+     */
+    private static final Duration WRITE_BEHIND_INTERVAL = Duration.ofMillis(100);
+
+    /**
+     * 延迟写入的默认批量数
+     */
+    private static final int WRITE_BEHIND_BATCH_SIZE = 500;
+
+    /**
+     * 延迟写入的缓冲区的默认最大数量
+     */
+    private static final int WRITE_BEHIND_CAPACITY = 10000;
+
+    /**
+     * 旧值的默认最大数量
+     */
+    private static final int STALE_SIZE = 10000;
+
+    /**
+     * 旧值的默认最大字节数
+     */
+    private static final long STALE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 大值分块的默认块大小
+     */
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * 紧凑的二进制序列化，无状态，共用一个实例
+     */
+    private static final BinaryRedisSerializer BINARY_SERIALIZER = new BinaryRedisSerializer();
+
+    /**
+     * 连接工厂
+     */
+    private final RedisConnectionFactory redisConnectionFactory;
+
+    /**
+     * 控制面的专用连接工厂，开启时首次使用时创建，停止时销毁
+     */
+    private volatile LettuceConnectionFactory dedicatedConnectionFactory;
+
+    /**
+     * 执行模板，首次使用时创建
+     */
+    private volatile StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 跨进程通知，首次使用时创建
+     */
+    private volatile CacheNotifier cacheNotifier;
+
+    /**
+     * 执行提前刷新的线程池，首次使用时创建
+     */
+    private volatile ExecutorService refreshExecutor;
+
+    /**
+     * 缓存代数，首次使用时创建
+     */
+    private volatile CacheGeneration cacheGeneration;
+
+    /**
+     * 执行后台删除的线程池，首次使用时创建
+     */
+    private volatile ExecutorService cleanupExecutor;
+
+    /**
+     * 热点键检测，首次使用时创建
+     */
+    private volatile HotKeyDetector hotKeyDetector;
+
+    /**
+     * 统计，首次使用时创建
+     */
+    private volatile CacheMetrics cacheMetrics;
+
+    /**
+     * 执行延迟写入的线程池，首次使用时创建
+     */
+    private volatile ScheduledExecutorService writeBehindExecutor;
+
+    /**
+     * 执行布隆过滤器同步的线程池，首次使用时创建
+     */
+    private volatile ScheduledExecutorService bloomFilterSyncExecutor;
+
+    /**
+     * Redis故障时，返回进程内的旧值，开启时创建
+     */
+    private volatile StaleRedisCacheWriter staleRedisCacheWriter;
+
+    /**
+     * 延迟写入，开启时创建，停止时写入缓冲区中剩余的
+     */
+    private volatile WriteBehindRedisCacheWriter writeBehindRedisCacheWriter;
+
+    /**
+     * 大值分块，开启时创建
+     */
+    private volatile ChunkedRedisCacheWriter chunkedRedisCacheWriter;
+
+    /**
+     * 异步读写，开启时创建，停止时关闭连接
+     */
+    private volatile AsyncRedisCacheWriter asyncRedisCacheWriter;
+
+    /**
+     * [ 缓存名 : 已知存在的键 ]，停止时写入待同步的位
+     */
+    private final Map<String, BloomFilter> knownKeysFilters = new ConcurrentHashMap<>();
+
+    /**
+     * [ 缓存名 : 熔断器 ]
+     */
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /**
+     * [ 缓存名 : 压缩序列化 ]
+     */
+    private final Map<String, CompressionRedisSerializer<?>> compressionSerializers = new ConcurrentHashMap<>();
+
+    /**
+     * 默认的缓存过期时间
+     */
+    private final Duration ttl;
+
+    /**
+     * 缓存名和过期时间列表
+     */
+    private final List<CacheNameTtl> cacheNameTtlList;
+
+    public CacheManagerSupport(RedisConnectionFactory redisConnectionFactory,
+                               @NonNull CachePrefixNameTtl cachePrefixNameTtl) {
+        super(cachePrefixNameTtl.isUseCacheNamePrefix(), cachePrefixNameTtl.getCacheNamePrefix(),
+                cachePrefixNameTtl.isUseHashTag());
+
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.ttl = cachePrefixNameTtl.getTtl();
+        this.cacheNameTtlList = cacheNameTtlList(cachePrefixNameTtl.getCacheNameTtlList());
+    }
+
+    public CacheManagerSupport(RedisConnectionFactory redisConnectionFactory) {
+        super(true, null);
+
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.ttl = null;
+        this.cacheNameTtlList = null;
+    }
+
+    public CacheManagerSupport(RedisConnectionFactory redisConnectionFactory,
+                               boolean useCacheNamePrefix,
+                               String cacheNamePrefix,
+                               Duration ttl,
+                               List<CacheNameTtl> cacheNameTtlList) {
+        super(useCacheNamePrefix, cacheNamePrefix);
+
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.ttl = ttl;
+        this.cacheNameTtlList = cacheNameTtlList(cacheNameTtlList);
+    }
+
+    /**
+     * 创建 {@link CacheManager} 实例
+     *
+     * @return {@link CacheManager} 实例
+     */
+    public CacheManager cacheManager() {
+        return cacheManager(
+                redisCacheWriter(),
+                redisCacheConfiguration(),
+                redisCacheConfigurationMap());
+    }
+
+    /**
+     * 创建 {@link CacheManager} 实例
+     *
+     * @param redisCacheWriter               {@link RedisCacheWriter} 实例
+     * @param defaultRedisCacheConfiguration {@link RedisCacheConfiguration} 实例
+     * @param redisCacheConfigurationMap     [ 缓存名 : {@link RedisCacheConfiguration} 实例 ]
+     * @return {@link CacheManager} 实例
+     */
+    public CacheManager cacheManager(RedisCacheWriter redisCacheWriter,
+                                     RedisCacheConfiguration defaultRedisCacheConfiguration,
+                                     Map<String, RedisCacheConfiguration> redisCacheConfigurationMap) {
+        Map<String, RedisCacheConfiguration> initialCacheConfigurations = Optional.ofNullable(redisCacheConfigurationMap).
+                orElse(Collections.emptyMap());
+
+        return new DecoratingRedisCacheManager(
+                redisCacheWriter,
+                getRedisConnectionFactory(),
+                defaultRedisCacheConfiguration,
+                initialCacheConfigurations,
+                true,
+                this::decorateCache);
+    }
+
+    /**
+     * 装饰缓存
+     * 默认处理方式，按缓存名开启，由内到外
+     * 1，过长的缓存键替换为摘要
+     * 2，缓存不存在的结果
+     * 3，防缓存击穿
+     * 4，提前刷新
+     * 5，熔断
+     * 6，二级缓存
+     *
+     * @param cache {@link RedisCache} 实例
+     * @return 装饰后的缓存
+     * @see #keyHashThreshold(String)
+     * @see #negativeCacheTtl(String)
+     * @see #stampedeLockTime(String)
+     * @see #refreshAheadBeta(String)
+     * @see #refreshAfterWrite(String)
+     * @see #useCircuitBreaker(String)
+     * @see #nearCacheSize(String)
+     */
+    public Cache decorateCache(Cache cache) {
+        String cacheName = cache.getName();
+        String prefixedCacheName = prefixedCacheName(cacheName);
+        RedisCache redisCache = CacheDecorator.unwrap(cache, RedisCache.class);
+        Duration redisTtl = redisCache != null ? redisCache.getCacheConfiguration().getTtl() : null;
+
+        if (redisCache instanceof ExtendedRedisCache) {
+            ((ExtendedRedisCache) redisCache).
+                    setKeyHashThreshold(keyHashThreshold(cacheName)).
+                    setVerifyHashedKey(verifyHashedKey(cacheName));
+        }
+
+        Duration negativeCacheTtl = negativeCacheTtl(cacheName);
+        if (negativeCacheTtl != null) {
+            long expectedInsertions = bloomFilterExpectedInsertions(cacheName);
+            BloomFilter knownKeys = expectedInsertions > 0 ?
+                    BloomFilter.create(expectedInsertions, bloomFilterFpp(cacheName)).
+                            setShared(stringRedisTemplate(), KeyPrefix.internal(prefixedCacheName, KNOWN_KEYS)).
+                            startSync(bloomFilterSyncExecutor(), bloomFilterSyncInterval(cacheName)) : null;
+            if (knownKeys != null) {
+                BloomFilter previous = knownKeysFilters.put(cacheName, knownKeys);
+                if (previous != null) {
+                    previous.stop();
+                }
+            }
+            cache = new NegativeCache(cache, negativeCacheTtl, negativeCacheSize(cacheName), knownKeys);
+        }
+
+        Duration stampedeLockTime = stampedeLockTime(cacheName);
+        if (stampedeLockTime != null) {
+            // 锁在缓存键的命名空间外，清空缓存时不删除其它进程持有的锁
+            String lockPrefix = KeyPrefix.internal(prefixedCacheName, STAMPEDE_LOCK) + KeyPrefix.SEPARATOR;
+            String channel = prefixedCacheName + KeyPrefix.SEPARATOR + STAMPEDE_CHANNEL;
+            cache = new StampedeProtectedCache(cache, stringRedisTemplate(), cacheNotifier(),
+                    lockPrefix, channel, stampedeLockTime);
+        }
+
+        double refreshAheadBeta = refreshAheadBeta(cacheName);
+        Duration refreshAfterWrite = refreshAfterWrite(cacheName);
+        if (refreshAheadBeta > 0 || refreshAfterWrite != null) {
+            // 过期时间有随机偏移时，按偏移后的最短过期时间计算，不晚于实际过期
+            TtlJitter jitter = ttlJitter(cacheName);
+            Duration refreshTtl = jitter != null ? jitter.min(redisTtl) : redisTtl;
+            cache = new RefreshAheadCache(cache, refreshTtl, refreshAheadBeta, refreshAfterWrite, refreshExecutor(),
+                    refreshLoader(cacheName));
+            disableAsync(redisCache);
+        }
+
+        if (useCircuitBreaker(cacheName)) {
+            CircuitBreaker breaker = circuitBreakers.computeIfAbsent(cacheName, this::circuitBreaker);
+            cache = new CircuitBreakerCache(cache, breaker, new LogRateLimiter(circuitBreakerLogInterval()));
+        }
+
+        int nearCacheSize = nearCacheSize(cacheName);
+        if (nearCacheSize > 0) {
+            Duration nearCacheTtl = nearCacheTtl(cacheName, redisTtl);
+            String channel = prefixedCacheName + KeyPrefix.SEPARATOR + NEAR_CACHE_CHANNEL;
+            cache = new NearCache(cache, nearCacheSize, nearCacheTtl, cacheNotifier(), channel);
+            disableAsync(redisCache);
+        }
+
+        return cache;
+    }
+
+    /**
+     * 异步方法绕过缓存装饰器，如，本地缓存未失效、读到提前刷新的包装值，不支持
+     */
+    private static void disableAsync(RedisCache redisCache) {
+        if (redisCache instanceof ExtendedRedisCache) {
+            ((ExtendedRedisCache) redisCache).setAsyncSupported(false);
+        }
+    }
+
+    /**
+     * 缓存键（不含缓存名前缀）超过多少个字符时，替换为摘要，缓存名前缀保持可读
+     * 默认处理方式，不替换
+     *
+     * @param cacheName 缓存名
+     * @return 字符数，如，64，小于等于0时不替换
+     */
+    public int keyHashThreshold(String cacheName) {
+        return 0;
+    }
+
+    /**
+     * 缓存键替换为摘要时，缓存值带上原始键，读取时校验，不一致时视为未命中
+     * 默认处理方式，不校验，SHA-256的冲突概率可忽略
+     *
+     * @param cacheName 缓存名
+     * @return 校验？
+     */
+    public boolean verifyHashedKey(String cacheName) {
+        return false;
+    }
+
+    /**
+     * 缓存不存在的结果，墓碑的过期时间，应远小于正常的过期时间
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 墓碑的过期时间，如，30秒，Null时不开启
+     */
+    public Duration negativeCacheTtl(String cacheName) {
+        return null;
+    }
+
+    /**
+     * 缓存不存在的结果，进程内墓碑的最大数量
+     * 默认处理方式，{@link #NEGATIVE_CACHE_SIZE}
+     *
+     * @param cacheName 缓存名
+     * @return 最大数量
+     */
+    public int negativeCacheSize(String cacheName) {
+        return NEGATIVE_CACHE_SIZE;
+    }
+
+    /**
+     * 缓存不存在的结果，布隆过滤器的预计写入数
+     * 默认处理方式，不开启布隆过滤器
+     *
+     * @param cacheName 缓存名
+     * @return 预计写入数，小于等于0时不开启
+     */
+    public long bloomFilterExpectedInsertions(String cacheName) {
+        return 0;
+    }
+
+    /**
+     * 缓存不存在的结果，布隆过滤器的预计误判率
+     * 默认处理方式，{@link #BLOOM_FILTER_FPP}
+     *
+     * @param cacheName 缓存名
+     * @return 预计误判率
+     */
+    public double bloomFilterFpp(String cacheName) {
+        return BLOOM_FILTER_FPP;
+    }
+
+    /**
+     * 缓存不存在的结果，布隆过滤器与Redis同步的间隔，其它进程写入的键，最迟一个间隔后可见
+     * 默认处理方式，{@link #BLOOM_FILTER_SYNC_INTERVAL}
+     *
+     * @param cacheName 缓存名
+     * @return 同步间隔
+     */
+    public Duration bloomFilterSyncInterval(String cacheName) {
+        return BLOOM_FILTER_SYNC_INTERVAL;
+    }
+
+    /**
+     * 执行布隆过滤器同步的线程池，单线程，首次使用时创建
+     *
+     * @return {@link ScheduledExecutorService} 实例
+     */
+    public ScheduledExecutorService bloomFilterSyncExecutor() {
+        ScheduledExecutorService result = bloomFilterSyncExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = bloomFilterSyncExecutor;
+                if (result == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                            new DefaultThreadFactory(BLOOM_FILTER_SYNC_POOL_NAME, true));
+                    executor.setRemoveOnCancelPolicy(true);
+
+                    result = executor;
+                    bloomFilterSyncExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 防缓存击穿，锁的过期时间，也是等待其它进程加载的最长时间
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 锁的过期时间，Null时不开启
+     */
+    public Duration stampedeLockTime(String cacheName) {
+        return null;
+    }
+
+    /**
+     * 提前刷新，XFetch系数，越大越早刷新
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return XFetch系数，如，1.0，小于等于0时不开启
+     */
+    public double refreshAheadBeta(String cacheName) {
+        return 0;
+    }
+
+    /**
+     * 提前刷新，写入后多久刷新
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 写入后多久刷新，Null时不开启
+     */
+    public Duration refreshAfterWrite(String cacheName) {
+        return null;
+    }
+
+    /**
+     * 提前刷新的刷新函数，在线程池中执行，事务、安全上下文等线程绑定的上下文不可用
+     * 默认处理方式，Null，调用 @Cacheable 方法的计算函数，方法需线程安全，且不依赖线程绑定的上下文
+     *
+     * @param cacheName 缓存名
+     * @return 刷新函数，入参为缓存键，Null时调用 @Cacheable 方法的计算函数
+     */
+    public Function<Object, ?> refreshLoader(String cacheName) {
+        return null;
+    }
+
+    /**
+     * 执行提前刷新的线程池，有界，首次使用时创建
+     * 默认处理方式，最多 {@link #REFRESH_THREADS} 个线程，队列满时放弃刷新
+     *
+     * @return {@link ExecutorService} 实例
+     */
+    public ExecutorService refreshExecutor() {
+        ExecutorService result = refreshExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = refreshExecutor;
+                if (result == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            REFRESH_THREADS, REFRESH_THREADS,
+                            60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+                            new DefaultThreadFactory(REFRESH_POOL_NAME, true),
+                            new ThreadPoolExecutor.AbortPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+
+                    result = executor;
+                    refreshExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 熔断，Redis故障时，跳过缓存，直接计算
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 开启熔断？
+     */
+    public boolean useCircuitBreaker(String cacheName) {
+        return false;
+    }
+
+    /**
+     * 创建熔断器
+     * 默认处理方式，10秒内至少20次访问，失败（异常或超过500毫秒）过半时打开，5秒后探测
+     *
+     * @param cacheName 缓存名
+     * @return {@link CircuitBreaker} 实例
+     */
+    public CircuitBreaker circuitBreaker(String cacheName) {
+        return CircuitBreaker.create(cacheName);
+    }
+
+    /**
+     * 熔断打开时，同一个缓存名和操作，日志的最小间隔
+     * 默认处理方式，{@link #CIRCUIT_BREAKER_LOG_INTERVAL}
+     *
+     * @return 最小间隔
+     */
+    public Duration circuitBreakerLogInterval() {
+        return CIRCUIT_BREAKER_LOG_INTERVAL;
+    }
+
+    /**
+     * 已创建的熔断器
+     *
+     * @param cacheName 缓存名
+     * @return {@link CircuitBreaker} 实例，未开启时返回Null
+     */
+    public CircuitBreaker getCircuitBreaker(String cacheName) {
+        return circuitBreakers.get(cacheName);
+    }
+
+    /**
+     * 二级缓存中，一级缓存的最大数量
+     * 默认处理方式，读取缓存名配置，如，city&PT6H&l1=10000，未配置时不开启二级缓存
+     *
+     * @param cacheName 缓存名
+     * @return 最大数量，小于等于0时不开启
+     */
+    public int nearCacheSize(String cacheName) {
+        CacheOptions options = findCacheOptions(cacheName);
+        Integer result = options != null ? options.getNearCacheSize() : null;
+        return result != null ? result : 0;
+    }
+
+    /**
+     * 二级缓存中，一级缓存的过期时间
+     * 默认处理方式，与Redis的过期时间相同
+     *
+     * @param cacheName 缓存名
+     * @return 过期时间，Null时不过期
+     */
+    public Duration nearCacheTtl(String cacheName) {
+        return null;
+    }
+
+    /**
+     * 一级缓存的过期时间，不超过Redis的过期时间
+     *
+     * @param cacheName 缓存名
+     * @param redisTtl  Redis的过期时间
+     * @return 过期时间，Null时不过期
+     */
+    private Duration nearCacheTtl(String cacheName, Duration redisTtl) {
+        Duration result = nearCacheTtl(cacheName);
+
+        if (redisTtl != null && !redisTtl.isZero() && !redisTtl.isNegative()) {
+            if (result == null || result.compareTo(redisTtl) > 0) {
+                result = redisTtl;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 跨进程通知，首次使用时创建
+     *
+     * @return {@link CacheNotifier} 实例
+     */
+    public CacheNotifier cacheNotifier() {
+        CacheNotifier result = cacheNotifier;
+        if (result == null) {
+            synchronized (this) {
+                result = cacheNotifier;
+                if (result == null) {
+                    result = new CacheNotifier(controlConnectionFactory(), stringRedisTemplate());
+                    cacheNotifier = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 执行模板，首次使用时创建，如，防缓存击穿的分布式锁、缓存代数
+     *
+     * @return {@link StringRedisTemplate} 实例
+     * @see #controlConnectionFactory()
+     */
+    public StringRedisTemplate stringRedisTemplate() {
+        StringRedisTemplate result = stringRedisTemplate;
+        if (result == null) {
+            synchronized (this) {
+                result = stringRedisTemplate;
+                if (result == null) {
+                    result = new StringRedisTemplate(controlConnectionFactory());
+                    stringRedisTemplate = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 控制面的专用连接？如，分布式锁、缓存代数、跨进程通知，与缓存读写的连接分开
+     * 默认处理方式，不开启，与缓存读写共用连接工厂，仅Lettuce连接工厂可开启
+     *
+     * @return 开启专用连接？
+     * @see DedicatedConnectionFactory
+     */
+    public boolean useDedicatedControlConnection() {
+        return false;
+    }
+
+    /**
+     * 控制面的连接工厂，执行模板和跨进程通知使用
+     * 默认处理方式，开启专用连接时，首次使用时创建，否则与缓存读写相同
+     * 重写时，可返回另一个连接工厂，由调用方销毁
+     *
+     * @return {@link RedisConnectionFactory} 实例
+     */
+    public RedisConnectionFactory controlConnectionFactory() {
+        RedisConnectionFactory redisConnectionFactory = getRedisConnectionFactory();
+        if (!useDedicatedControlConnection() || !(redisConnectionFactory instanceof LettuceConnectionFactory)) {
+            return redisConnectionFactory;
+        }
+
+        LettuceConnectionFactory result = dedicatedConnectionFactory;
+        if (result == null) {
+            synchronized (this) {
+                result = dedicatedConnectionFactory;
+                if (result == null) {
+                    result = DedicatedConnectionFactory.create((LettuceConnectionFactory) redisConnectionFactory);
+                    dedicatedConnectionFactory = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 启动时，从快照加载
+     */
+    @Override
+    public void afterPropertiesSet() {
+        Path file = snapshotFile();
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+
+        try {
+            loadSnapshot(file);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("loadSnapshot failed, file: {}, throwable: ", file, ex);
+        }
+    }
+
+    /**
+     * 快照文件，启动时加载，停止时写入
+     * 默认处理方式，不开启
+     *
+     * @return 快照文件，Null时不开启
+     */
+    public Path snapshotFile() {
+        return null;
+    }
+
+    /**
+     * 快照每批的数量，SCAN的COUNT，管道的命令数
+     * 默认处理方式，{@link #SNAPSHOT_BATCH_SIZE}
+     *
+     * @return 每批的数量
+     */
+    public int snapshotBatchSize() {
+        return SNAPSHOT_BATCH_SIZE;
+    }
+
+    /**
+     * 写入快照的缓存名和缓存键的前缀
+     * 默认处理方式，读取缓存名配置，如，city&PT6H&snapshot
+     *
+     * @return [ 缓存名 : 缓存键的前缀 ]
+     */
+    public Map<String, String> snapshotPrefixes() {
+        Map<String, String> result = new LinkedHashMap<>();
+
+        List<CacheNameTtl> cacheNameTtlList = getCacheNameTtlList();
+        if (cacheNameTtlList != null) {
+            for (CacheNameTtl cacheNameTtl : cacheNameTtlList) {
+                if (cacheNameTtl.isSnapshot()) {
+                    String cacheName = cacheNameTtl.getCacheName();
+                    result.put(cacheName, redisCacheConfiguration(cacheName, null).getKeyPrefixFor(cacheName));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param file 快照文件
+     * @return 写入的数量
+     * @throws IOException 写入文件失败
+     */
+    public long dumpSnapshot(Path file) throws IOException {
+        Map<String, String> prefixes = snapshotPrefixes();
+        if (prefixes.isEmpty()) {
+            return 0;
+        }
+
+        return new CacheSnapshot(getRedisConnectionFactory(), snapshotBatchSize()).dump(file, prefixes);
+    }
+
+    /**
+     * 从快照加载
+     *
+     * @param file 快照文件
+     * @return 写入的数量
+     * @throws IOException 读取文件失败，或格式错误
+     */
+    public long loadSnapshot(Path file) throws IOException {
+        Map<String, String> prefixes = snapshotPrefixes();
+        if (prefixes.isEmpty()) {
+            return 0;
+        }
+
+        return new CacheSnapshot(getRedisConnectionFactory(), snapshotBatchSize()).load(file, prefixes);
+    }
+
+    /**
+     * 释放资源，如，停止订阅、停止刷新
+     */
+    @Override
+    public void destroy() {
+        WriteBehindRedisCacheWriter writeBehindWriter = writeBehindRedisCacheWriter;
+        if (writeBehindWriter != null) {
+            writeBehindWriter.stop();
+        }
+
+        Path file = snapshotFile();
+        if (file != null) {
+            try {
+                dumpSnapshot(file);
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.error("dumpSnapshot failed, file: {}, throwable: ", file, ex);
+            }
+        }
+
+        ScheduledExecutorService scheduledExecutor = writeBehindExecutor;
+        if (scheduledExecutor != null) {
+            scheduledExecutor.shutdown();
+        }
+
+        for (Map.Entry<String, BloomFilter> entry : knownKeysFilters.entrySet()) {
+            try {
+                entry.getValue().stop();
+            } catch (RuntimeException ex) {
+                LOGGER.error("stop knownKeys failed, cacheName: {}, throwable: ", entry.getKey(), ex);
+            }
+        }
+
+        scheduledExecutor = bloomFilterSyncExecutor;
+        if (scheduledExecutor != null) {
+            scheduledExecutor.shutdown();
+        }
+
+        CacheNotifier notifier = cacheNotifier;
+        if (notifier != null) {
+            notifier.stop();
+        }
+
+        ExecutorService executor = refreshExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        executor = cleanupExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        HotKeyDetector detector = hotKeyDetector;
+        if (detector != null) {
+            detector.stop();
+        }
+
+        AsyncRedisCacheWriter asyncWriter = asyncRedisCacheWriter;
+        if (asyncWriter != null) {
+            asyncWriter.close();
+        }
+
+        LettuceConnectionFactory connectionFactory = dedicatedConnectionFactory;
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    /**
+     * 创建 {@link RedisCacheWriter} 实例
+     *
+     * @return {@link RedisCacheWriter} 实例
+     */
+    public RedisCacheWriter redisCacheWriter() {
+        RedisConnectionFactory redisConnectionFactory = getRedisConnectionFactory();
+        BatchStrategy batchStrategy = batchStrategy();
+        RedisCacheWriter result = batchStrategy != null ?
+                RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory, batchStrategy) :
+                RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory);
+        return decorateCacheWriter(result);
+    }
+
+    /**
+     * 清空缓存时，查找和删除缓存键的方式
+     * 默认处理方式，KEYS，重写时可返回 {@link BatchStrategies#scan(int)}
+     *
+     * @return {@link BatchStrategy} 实例，Null时为默认方式
+     */
+    public BatchStrategy batchStrategy() {
+        return null;
+    }
+
+    /**
+     * 装饰写缓存
+     * 默认处理方式，按缓存名开启，由内到外
+     * 0，批量读写，全部缓存名
+     * 1，大值分块
+     * 2，清空缓存时，代数 + 1
+     * 3，延迟写入
+     * 4，偏移过期时间
+     * 5，Redis故障时，返回进程内的旧值
+     * 6，热点键复制到进程内
+     * 7，统计命中数和耗时
+     * 8，异步读写，全部缓存名
+     *
+     * @param redisCacheWriter {@link RedisCacheWriter} 实例
+     * @return 装饰后的写缓存
+     * @see #chunkThreshold(String)
+     * @see #useGeneration(String)
+     * @see #writeBehind(String)
+     * @see #ttlJitter(String)
+     * @see #maxStaleness(String)
+     * @see #hotKeyReplicaTtl(String)
+     * @see #useMetrics(String)
+     * @see #useAsyncCacheWriter()
+     */
+    public RedisCacheWriter decorateCacheWriter(RedisCacheWriter redisCacheWriter) {
+        Map<String, TtlJitter> jitters = new HashMap<>();
+        Set<String> generationCacheNames = new HashSet<>();
+        Map<String, Duration> hotKeyReplicaTtls = new HashMap<>();
+        Set<String> writeBehindCacheNames = new HashSet<>();
+        Map<String, Duration> maxStaleness = new HashMap<>();
+        Set<String> metricsCacheNames = new HashSet<>();
+        Map<String, Integer> chunkThresholds = new HashMap<>();
+
+        for (String cacheName : cacheNames()) {
+            int chunkThreshold = chunkThreshold(cacheName);
+            if (chunkThreshold > 0) {
+                chunkThresholds.put(cacheName, chunkThreshold);
+            }
+
+            if (useMetrics(cacheName)) {
+                metricsCacheNames.add(cacheName);
+            }
+
+            Duration cacheMaxStaleness = maxStaleness(cacheName);
+            if (cacheMaxStaleness != null) {
+                maxStaleness.put(cacheName, cacheMaxStaleness);
+            }
+
+            if (writeBehind(cacheName)) {
+                writeBehindCacheNames.add(cacheName);
+            }
+
+            Duration hotKeyReplicaTtl = hotKeyReplicaTtl(cacheName);
+            if (hotKeyReplicaTtl != null) {
+                hotKeyReplicaTtls.put(cacheName, hotKeyReplicaTtl);
+            }
+
+            TtlJitter jitter = ttlJitter(cacheName);
+            if (jitter != null) {
+                jitters.put(cacheName, jitter);
+            }
+
+            if (useGeneration(cacheName)) {
+                generationCacheNames.add(cacheName);
+            }
+        }
+
+        if (!(redisCacheWriter instanceof RedisCacheWriterDecorator)) {
+            redisCacheWriter = new BatchRedisCacheWriter(redisCacheWriter, getRedisConnectionFactory());
+        }
+
+        if (!chunkThresholds.isEmpty()) {
+            ChunkedRedisCacheWriter chunkedWriter = new ChunkedRedisCacheWriter(redisCacheWriter,
+                    getRedisConnectionFactory(), chunkThresholds, chunkSize());
+
+            chunkedRedisCacheWriter = chunkedWriter;
+            redisCacheWriter = chunkedWriter;
+        }
+
+        if (!generationCacheNames.isEmpty()) {
+            int cleanupBatchSize = generationCleanupBatchSize();
+            RedisCacheWriter cleanupWriter = cleanupBatchSize > 0 ?
+                    RedisCacheWriter.nonLockingRedisCacheWriter(getRedisConnectionFactory(), BatchStrategies.scan(cleanupBatchSize)) :
+                    null;
+            ExecutorService executor = cleanupWriter != null ? cleanupExecutor() : null;
+
+            redisCacheWriter = new GenerationRedisCacheWriter(redisCacheWriter, cacheGeneration(),
+                    generationCacheNames, cleanupWriter, executor);
+        }
+
+        if (!writeBehindCacheNames.isEmpty()) {
+            WriteBehindRedisCacheWriter writeBehindWriter = new WriteBehindRedisCacheWriter(redisCacheWriter,
+                    writeBehindCacheNames, writeBehindInterval(), writeBehindBatchSize(), writeBehindCapacity(), writeBehindExecutor());
+
+            writeBehindRedisCacheWriter = writeBehindWriter;
+            redisCacheWriter = writeBehindWriter;
+        }
+
+        if (!jitters.isEmpty()) {
+            redisCacheWriter = new JitterRedisCacheWriter(redisCacheWriter, jitters);
+        }
+
+        if (!maxStaleness.isEmpty()) {
+            StaleRedisCacheWriter staleWriter = new StaleRedisCacheWriter(redisCacheWriter, maxStaleness,
+                    staleSize(), staleBytes(), new LogRateLimiter(circuitBreakerLogInterval()));
+
+            staleRedisCacheWriter = staleWriter;
+            redisCacheWriter = staleWriter;
+        }
+
+        if (!hotKeyReplicaTtls.isEmpty()) {
+            redisCacheWriter = new HotKeyRedisCacheWriter(redisCacheWriter, hotKeyDetector(),
+                    hotKeyReplicaTtls, hotKeyReplicaSize());
+        }
+
+        if (!metricsCacheNames.isEmpty()) {
+            redisCacheWriter = new MetricsRedisCacheWriter(redisCacheWriter, cacheMetrics(), metricsCacheNames);
+        }
+
+        RedisConnectionFactory redisConnectionFactory = getRedisConnectionFactory();
+        if (useAsyncCacheWriter() && redisConnectionFactory instanceof LettuceConnectionFactory) {
+            AsyncRedisCacheWriter asyncWriter = new AsyncRedisCacheWriter(redisCacheWriter,
+                    (LettuceConnectionFactory) redisConnectionFactory);
+
+            asyncRedisCacheWriter = asyncWriter;
+            redisCacheWriter = asyncWriter;
+        }
+
+        return redisCacheWriter;
+    }
+
     /**
-     * 连接工厂
+     * 异步读写，Lettuce的异步命令，见 {@link ExtendedRedisCache#retrieve(Object)}
+     * 默认处理方式，不开启，仅Lettuce连接工厂可开启
+     *
+     * @return 开启异步读写？
      */
-    private final RedisConnectionFactory redisConnectionFactory;
+    public boolean useAsyncCacheWriter() {
+        return false;
+    }
 
     /**
-     * 默认的缓存过期时间
+     * 异步读写
+     *
+     * @return {@link AsyncRedisCacheWriter} 实例，未开启时返回Null
      */
-    private final Duration ttl;
+    public AsyncRedisCacheWriter getAsyncRedisCacheWriter() {
+        return asyncRedisCacheWriter;
+    }
 
     /**
-     * 缓存名和过期时间列表
+     * 大值分块，序列化后超过阈值的值，拆成多个块写入
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 阈值，单位：字节，如，1MB，小于等于0时不开启
      */
-    private final List<CacheNameTtl> cacheNameTtlList;
+    public int chunkThreshold(String cacheName) {
+        return 0;
+    }
 
-    public CacheManagerSupport(RedisConnectionFactory redisConnectionFactory,
-                               @NonNull CachePrefixNameTtl cachePrefixNameTtl) {
-        super(cachePrefixNameTtl.isUseCacheNamePrefix(), cachePrefixNameTtl.getCacheNamePrefix());
+    /**
+     * 大值分块，块大小
+     * 默认处理方式，{@link #CHUNK_SIZE}
+     *
+     * @return 块大小，单位：字节
+     */
+    public int chunkSize() {
+        return CHUNK_SIZE;
+    }
 
-        this.redisConnectionFactory = redisConnectionFactory;
-        this.ttl = cachePrefixNameTtl.getTtl();
-        this.cacheNameTtlList = cacheNameTtlList(cachePrefixNameTtl.getCacheNameTtlList());
+    /**
+     * 大值分块
+     *
+     * @return {@link ChunkedRedisCacheWriter} 实例，未开启时返回Null
+     */
+    public ChunkedRedisCacheWriter getChunkedRedisCacheWriter() {
+        return chunkedRedisCacheWriter;
     }
 
-    public CacheManagerSupport(RedisConnectionFactory redisConnectionFactory) {
-        super(true, null);
+    /**
+     * 延迟写入，写入先进入缓冲区，合并同一个键的多次写入，定时批量写入
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 开启延迟写入？
+     */
+    public boolean writeBehind(String cacheName) {
+        return false;
+    }
 
-        this.redisConnectionFactory = redisConnectionFactory;
-        this.ttl = null;
-        this.cacheNameTtlList = null;
+    /**
+     * 延迟写入，定时写入的间隔
+     * 默认处理方式，{@link #WRITE_BEHIND_INTERVAL}
+     *
+     * @return 间隔
+     */
+    public Duration writeBehindInterval() {
+        return WRITE_BEHIND_INTERVAL;
     }
 
-    public CacheManagerSupport(RedisConnectionFactory redisConnectionFactory,
-                               boolean useCacheNamePrefix,
-                               String cacheNamePrefix,
-                               Duration ttl,
-                               List<CacheNameTtl> cacheNameTtlList) {
-        super(useCacheNamePrefix, cacheNamePrefix);
+    /**
+     * 延迟写入，缓冲区达到多少个时，提前批量写入
+     * 默认处理方式，{@link #WRITE_BEHIND_BATCH_SIZE}
+     *
+     * @return 批量数
+     */
+    public int writeBehindBatchSize() {
+        return WRITE_BEHIND_BATCH_SIZE;
+    }
 
-        this.redisConnectionFactory = redisConnectionFactory;
-        this.ttl = ttl;
-        this.cacheNameTtlList = cacheNameTtlList(cacheNameTtlList);
+    /**
+     * 延迟写入，缓冲区的最大数量，满时调用方线程同步写入
+     * 默认处理方式，{@link #WRITE_BEHIND_CAPACITY}
+     *
+     * @return 最大数量
+     */
+    public int writeBehindCapacity() {
+        return WRITE_BEHIND_CAPACITY;
     }
 
     /**
-     * 创建 {@link CacheManager} 实例
+     * 执行延迟写入的线程池，单线程，首次使用时创建
      *
-     * @return {@link CacheManager} 实例
+     * @return {@link ScheduledExecutorService} 实例
      */
-    public CacheManager cacheManager() {
-        return cacheManager(
-                redisCacheWriter(),
-                redisCacheConfiguration(),
-                redisCacheConfigurationMap());
+    public ScheduledExecutorService writeBehindExecutor() {
+        ScheduledExecutorService result = writeBehindExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = writeBehindExecutor;
+                if (result == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                            new DefaultThreadFactory(WRITE_BEHIND_POOL_NAME, true));
+                    executor.setRemoveOnCancelPolicy(true);
+
+                    result = executor;
+                    writeBehindExecutor = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
-     * 创建 {@link CacheManager} 实例
+     * 延迟写入
      *
-     * @param redisCacheWriter               {@link RedisCacheWriter} 实例
-     * @param defaultRedisCacheConfiguration {@link RedisCacheConfiguration} 实例
-     * @param redisCacheConfigurationMap     [ 缓存名 : {@link RedisCacheConfiguration} 实例 ]
-     * @return {@link CacheManager} 实例
+     * @return {@link WriteBehindRedisCacheWriter} 实例，未开启时返回Null
      */
-    public CacheManager cacheManager(RedisCacheWriter redisCacheWriter,
-                                     RedisCacheConfiguration defaultRedisCacheConfiguration,
-                                     Map<String, RedisCacheConfiguration> redisCacheConfigurationMap) {
-        RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager.builder(redisCacheWriter).
-                cacheDefaults(defaultRedisCacheConfiguration);
+    public WriteBehindRedisCacheWriter getWriteBehindRedisCacheWriter() {
+        return writeBehindRedisCacheWriter;
+    }
+
+    /**
+     * Redis故障时，返回进程内的旧值，旧值的最大陈旧时间
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 最大陈旧时间，如，5分钟，Null时不开启
+     */
+    public Duration maxStaleness(String cacheName) {
+        return null;
+    }
+
+    /**
+     * 每个缓存名，旧值的最大数量
+     * 默认处理方式，{@link #STALE_SIZE}
+     *
+     * @return 最大数量
+     */
+    public int staleSize() {
+        return STALE_SIZE;
+    }
+
+    /**
+     * 每个缓存名，旧值的最大字节数
+     * 默认处理方式，{@link #STALE_BYTES}
+     *
+     * @return 最大字节数
+     */
+    public long staleBytes() {
+        return STALE_BYTES;
+    }
+
+    /**
+     * Redis故障时，返回进程内的旧值
+     *
+     * @return {@link StaleRedisCacheWriter} 实例，未开启时返回Null
+     */
+    public StaleRedisCacheWriter getStaleRedisCacheWriter() {
+        return staleRedisCacheWriter;
+    }
+
+    /**
+     * 热点键副本的过期时间，应远小于正常的过期时间
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 副本的过期时间，如，1秒，Null时不开启
+     */
+    public Duration hotKeyReplicaTtl(String cacheName) {
+        return null;
+    }
+
+    /**
+     * 每个缓存名，热点键副本的最大数量
+     * 默认处理方式，{@link #HOT_KEY_REPLICA_SIZE}
+     *
+     * @return 最大数量
+     */
+    public int hotKeyReplicaSize() {
+        return HOT_KEY_REPLICA_SIZE;
+    }
+
+    /**
+     * 热点键检测，首次使用时创建，并开始定时衰减
+     * 默认处理方式，每 {@link #HOT_KEY_SAMPLE_RATE} 次读取采样1次，
+     * {@link #HOT_KEY_DECAY_SECONDS} 秒内估算读取超过 {@link #HOT_KEY_THRESHOLD} 次的为热点键
+     *
+     * @return {@link HotKeyDetector} 实例
+     */
+    public HotKeyDetector hotKeyDetector() {
+        HotKeyDetector result = hotKeyDetector;
+        if (result == null) {
+            synchronized (this) {
+                result = hotKeyDetector;
+                if (result == null) {
+                    result = HotKeyDetector.create(HOT_KEY_WIDTH, HOT_KEY_THRESHOLD).
+                            setSampleRate(HOT_KEY_SAMPLE_RATE);
+                    result.start(HOT_KEY_DECAY_SECONDS, TimeUnit.SECONDS);
 
-        if (CollectionUtils.isEmpty(redisCacheConfigurationMap)) {
-            return builder.build();
+                    hotKeyDetector = result;
+                }
+            }
         }
+        return result;
+    }
+
+    /**
+     * 统计，命中数、未命中数、读取和写入的耗时
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 开启统计？
+     * @see #cacheMetrics()
+     */
+    public boolean useMetrics(String cacheName) {
+        return false;
+    }
 
-        Set<String> cacheNameSet = redisCacheConfigurationMap.keySet();
-        return builder.
-                initialCacheNames(cacheNameSet).
-                withInitialCacheConfigurations(redisCacheConfigurationMap).
-                build();
+    /**
+     * 统计，首次使用时创建，可共用给 {@link CacheDistributedSupport#cacheMetrics()}
+     *
+     * @return {@link CacheMetrics} 实例
+     */
+    public CacheMetrics cacheMetrics() {
+        CacheMetrics result = cacheMetrics;
+        if (result == null) {
+            synchronized (this) {
+                result = cacheMetrics;
+                if (result == null) {
+                    result = CacheMetrics.create();
+                    cacheMetrics = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
-     * 创建 {@link RedisCacheWriter} 实例
+     * 过期时间的随机偏移
+     * 默认处理方式，读取缓存名配置，如，city&PT6H&jitter=10%
      *
-     * @return {@link RedisCacheWriter} 实例
+     * @param cacheName 缓存名
+     * @return {@link TtlJitter} 实例，Null时不偏移
      */
-    public RedisCacheWriter redisCacheWriter() {
-        RedisConnectionFactory redisConnectionFactory = getRedisConnectionFactory();
-        return RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory);
+    public TtlJitter ttlJitter(String cacheName) {
+        CacheOptions options = findCacheOptions(cacheName);
+        return options != null ? options.getTtlJitter() : null;
+    }
+
+    /**
+     * 清空缓存时，代数 + 1，不再逐个删除
+     * 默认处理方式，不开启
+     *
+     * @param cacheName 缓存名
+     * @return 开启代数？
+     * @see CacheGeneration
+     */
+    public boolean useGeneration(String cacheName) {
+        return false;
+    }
+
+    /**
+     * 代数 + 1 后，后台按SCAN分批删除旧代的缓存，每批数量
+     * 默认处理方式，不删除，等待旧代的缓存过期
+     *
+     * @return 每批数量，小于等于0时不删除
+     */
+    public int generationCleanupBatchSize() {
+        return 0;
+    }
+
+    /**
+     * 进程内缓存代数的刷新间隔
+     *
+     * @return 刷新间隔
+     */
+    public Duration generationRefreshInterval() {
+        return GENERATION_REFRESH_INTERVAL;
+    }
+
+    /**
+     * 缓存代数，首次使用时创建
+     *
+     * @return {@link CacheGeneration} 实例
+     */
+    public CacheGeneration cacheGeneration() {
+        CacheGeneration result = cacheGeneration;
+        if (result == null) {
+            synchronized (this) {
+                result = cacheGeneration;
+                if (result == null) {
+                    String channel = prefixedCacheName(GENERATION_CHANNEL);
+                    result = new CacheGeneration(stringRedisTemplate(), cacheNotifier(), this,
+                            channel, generationRefreshInterval());
+                    cacheGeneration = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 执行后台删除的线程池，单线程，首次使用时创建
+     *
+     * @return {@link ExecutorService} 实例
+     */
+    public ExecutorService cleanupExecutor() {
+        ExecutorService result = cleanupExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = cleanupExecutor;
+                if (result == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            1, 1,
+                            60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(CLEANUP_QUEUE_CAPACITY),
+                            new DefaultThreadFactory(CLEANUP_POOL_NAME, true),
+                            new ThreadPoolExecutor.AbortPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+
+                    result = executor;
+                    cleanupExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 已配置的缓存名列表
+     *
+     * @return 缓存名列表
+     */
+    public List<String> cacheNames() {
+        return Optional.ofNullable(getCacheNameTtlList()).
+                orElse(Collections.emptyList()).
+                stream().
+                map(CacheNameTtl::getCacheName).
+                collect(Collectors.toList());
+    }
+
+    /**
+     * 查询缓存名配置
+     *
+     * @param cacheName 缓存名
+     * @return {@link CacheNameTtl} 实例，未配置时返回Null
+     */
+    public CacheNameTtl findCacheNameTtl(String cacheName) {
+        List<CacheNameTtl> cacheNameTtlList = getCacheNameTtlList();
+        if (cacheNameTtlList == null || cacheName == null) {
+            return null;
+        }
+
+        for (CacheNameTtl cacheNameTtl : cacheNameTtlList) {
+            if (cacheName.equals(cacheNameTtl.getCacheName())) {
+                return cacheNameTtl;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 查询缓存名的选项
+     *
+     * @param cacheName 缓存名
+     * @return {@link CacheOptions} 实例，未配置时返回Null
+     */
+    public CacheOptions findCacheOptions(String cacheName) {
+        CacheNameTtl cacheNameTtl = findCacheNameTtl(cacheName);
+        return cacheNameTtl != null ? cacheNameTtl.getOptions() : null;
     }
 
     /**
@@ -133,7 +1498,7 @@ public class CacheManagerSupport extends AbstractCacheSupport {
      * 批量创建 {@link RedisCacheConfiguration} 实例
      *
      * @return [ 缓存名 : {@link RedisCacheConfiguration} 实例 ]
-     * @see #redisCacheConfiguration(Duration)
+     * @see #redisCacheConfiguration(String, Duration)
      */
     public Map<String, RedisCacheConfiguration> redisCacheConfigurationMap() {
         List<CacheNameTtl> cacheNameTtlList = getCacheNameTtlList();
@@ -154,7 +1519,7 @@ public class CacheManagerSupport extends AbstractCacheSupport {
 
             if (StringUtils.hasText(cacheName)) {
                 Duration chosenTtl = Optional.ofNullable(ttl).orElse(defaultTtl);
-                RedisCacheConfiguration configuration = redisCacheConfiguration(chosenTtl);
+                RedisCacheConfiguration configuration = redisCacheConfiguration(cacheName, chosenTtl);
                 result.put(cacheName, configuration);
             }
         }
@@ -197,6 +1562,53 @@ public class CacheManagerSupport extends AbstractCacheSupport {
         return result;
     }
 
+    /**
+     * 按缓存名创建 {@link RedisCacheConfiguration} 实例
+     * 默认处理方式，以 {@link #redisCacheConfiguration(Duration)} 为基础，重写的配置依然生效
+     * 设置1，按缓存名的缓存value的序列化适配器
+     * 设置2，拼接缓存代数
+     * 设置3，不缓存Null值
+     *
+     * @param cacheName 缓存名，Null时为默认配置
+     * @param ttl       缓存过期时间
+     * @return {@link RedisCacheConfiguration} 实例
+     */
+    public RedisCacheConfiguration redisCacheConfiguration(String cacheName, Duration ttl) {
+        RedisCacheConfiguration result = redisCacheConfiguration(ttl);
+        if (cacheName == null) {
+            return result;
+        }
+
+        RedisSerializationContext.SerializationPair<?> valueSerializationPair = valueSerializationPair(cacheName);
+        if (valueSerializationPair != null) {
+            result = result.serializeValuesWith(valueSerializationPair);
+        }
+
+        if (useGeneration(cacheName)) {
+            RedisCacheConfiguration prefixed = result;
+            result = result.computePrefixWith(KeyPrefix.generation(prefixed::getKeyPrefixFor, cacheGeneration()));
+        }
+
+        if (!cacheNullValues(cacheName)) {
+            result = result.disableCachingNullValues();
+        }
+
+        return result;
+    }
+
+    /**
+     * 缓存Null值？
+     * 默认处理方式，读取缓存名配置，如，city&PT6H&nulls=false，未配置时缓存
+     *
+     * @param cacheName 缓存名
+     * @return 缓存Null值？
+     */
+    public boolean cacheNullValues(String cacheName) {
+        CacheOptions options = findCacheOptions(cacheName);
+        Boolean result = options != null ? options.getCacheNullValues() : null;
+        return result == null || result;
+    }
+
     /**
      * 缓存key的序列化适配器
      *
@@ -225,6 +1637,82 @@ public class CacheManagerSupport extends AbstractCacheSupport {
         }
     }
 
+    /**
+     * 按缓存名的缓存value的序列化适配器
+     * 默认处理方式，未按缓存名配置序列化方式和压缩时，与 {@link #valueSerializationPair()} 相同，重写的依然生效
+     *
+     * @param cacheName 缓存名，Null时为默认配置
+     * @return {@link RedisSerializationContext.SerializationPair} 实例
+     */
+    public RedisSerializationContext.SerializationPair<?> valueSerializationPair(String cacheName) {
+        if (cacheName == null) {
+            return valueSerializationPair();
+        }
+
+        RedisSerializer<?> valueSerializer = valueSerializer(cacheName);
+        int compressThreshold = compressThreshold(cacheName);
+        if (valueSerializer == null && compressThreshold < 0) {
+            return valueSerializationPair();
+        }
+
+        if (valueSerializer == null) {
+            valueSerializer = valueSerializer();
+            if (valueSerializer == null) {
+                return valueSerializationPair();
+            }
+        }
+
+        if (compressThreshold >= 0) {
+            valueSerializer = compressionSerializer(cacheName, valueSerializer, compressThreshold);
+        }
+
+        return RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer);
+    }
+
+    /**
+     * 压缩缓存value的阈值，单位：字节
+     * 默认处理方式，读取缓存名配置，如，city&PT6H&compress=4k，未配置时不压缩
+     *
+     * @param cacheName 缓存名
+     * @return 压缩阈值，小于0时不压缩
+     */
+    public int compressThreshold(String cacheName) {
+        CacheOptions options = findCacheOptions(cacheName);
+        Integer result = options != null ? options.getCompressThreshold() : null;
+        return result != null ? result : -1;
+    }
+
+    /**
+     * 压缩算法
+     * 默认处理方式，Deflate，最快的压缩级别
+     *
+     * @param cacheName 缓存名
+     * @return {@link CompressionCodec} 实例
+     */
+    public CompressionCodec compressionCodec(String cacheName) {
+        return new DeflateCodec();
+    }
+
+    /**
+     * 查询压缩统计，如，压缩率、耗时
+     *
+     * @param cacheName 缓存名
+     * @return {@link CompressionRedisSerializer} 实例，未开启压缩时返回Null
+     */
+    public CompressionRedisSerializer<?> getCompressionSerializer(String cacheName) {
+        return compressionSerializers.get(cacheName);
+    }
+
+    /**
+     * 每个缓存名只创建一次，再次创建配置时（如，查询快照前缀），复用同一个实例，统计不丢失
+     */
+    private CompressionRedisSerializer<?> compressionSerializer(String cacheName,
+                                                                RedisSerializer<?> valueSerializer,
+                                                                int compressThreshold) {
+        return compressionSerializers.computeIfAbsent(cacheName, name ->
+                new CompressionRedisSerializer<>(valueSerializer, compressionCodec(name), compressThreshold));
+    }
+
     /**
      * 序列化缓存key
      * 默认处理方式，转字符串
@@ -245,15 +1733,51 @@ public class CacheManagerSupport extends AbstractCacheSupport {
         return RedisSerializer.json();
     }
 
+    /**
+     * 按缓存名序列化缓存value
+     * 默认处理方式，读取缓存名配置，如，city&PT6H&serializer=binary，未配置时返回Null
+     * 重写时，可返回 {@link #binaryValueSerializer()}
+     *
+     * @param cacheName 缓存名
+     * @return {@link RedisSerializer} 实例，Null时取 {@link #valueSerializationPair()}
+     */
+    public RedisSerializer<?> valueSerializer(String cacheName) {
+        CacheOptions options = findCacheOptions(cacheName);
+        String serializer = options != null ? options.getSerializer() : null;
+        if (CacheOptions.SERIALIZER_BINARY.equals(serializer)) {
+            return binaryValueSerializer();
+        } else if (CacheOptions.SERIALIZER_JSON.equals(serializer)) {
+            return valueSerializer();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * 序列化缓存value，紧凑的二进制格式
+     *
+     * @return {@link BinaryRedisSerializer} 实例
+     */
+    public RedisSerializer<?> binaryValueSerializer() {
+        return BINARY_SERIALIZER;
+    }
+
     /**
      * 拼接缓存名前缀、缓存名和缓存键的函数接口
+     * 带哈希标签时，如，"cacheNamePrefix::{cacheName}:"
      *
      * @return {@link CacheKeyPrefix} 函数接口
+     * @see #hashTag(String)
      */
     public CacheKeyPrefix cacheKeyPrefix() {
         boolean useCacheNamePrefix = isUseCacheNamePrefix();
         String cacheNamePrefix = getCacheNamePrefix();
-        return KeyPrefix.of(useCacheNamePrefix, cacheNamePrefix);
+        CacheKeyPrefix result = KeyPrefix.of(useCacheNamePrefix, cacheNamePrefix);
+        if (isUseHashTag()) {
+            CacheKeyPrefix untagged = result;
+            result = name -> untagged.compute(hashTag(name));
+        }
+        return result;
     }
 
     /**
@@ -287,7 +1811,9 @@ public class CacheManagerSupport extends AbstractCacheSupport {
 
         String cleanedCacheName = cacheName(cacheName);
         if (StringUtils.hasText(cleanedCacheName)) {
-            return new CacheNameTtl(cleanedCacheName, ttl);
+            CacheNameTtl result = new CacheNameTtl(cleanedCacheName, ttl);
+            result.setOptions(cacheNameTtl.getOptions());
+            return result;
         } else {
             return null;
         }
@@ -0,0 +1,414 @@
+package io.github.changebooks.redis;
+
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存、分布式锁、分布式限流的统计，按名称区分
+ * <pre>
+ * 缓存，命中数、未命中数、写入数、删除数、异常数，读取和写入的耗时
+ * 分布式锁，加锁成功数、加锁失败数（竞争），加锁耗时，持有时长
+ * 分布式限流，许可数、拒绝数
+ * 计数用 {@link LongAdder}，耗时用 {@link LatencyHistogram}
+ * 名称应为有限集合，如，缓存名，不应含业务id
+ * 可通过 {@link Listener} 接入监控系统，如，{@link MicrometerCacheMetricsBinder}
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class CacheMetrics {
+    /**
+     * [ 缓存名 : 缓存的统计 ]
+     */
+    private final ConcurrentMap<String, CacheStats> caches = new ConcurrentHashMap<>();
+
+    /**
+     * [ 锁名 : 分布式锁的统计 ]
+     */
+    private final ConcurrentMap<String, LockStats> locks = new ConcurrentHashMap<>();
+
+    /**
+     * [ 限流名 : 分布式限流的统计 ]
+     */
+    private final ConcurrentMap<String, LimiterStats> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * 新建统计时的回调
+     */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 创建 {@link CacheMetrics} 实例
+     *
+     * @return {@link CacheMetrics} 实例
+     */
+    public static CacheMetrics create() {
+        return new CacheMetrics();
+    }
+
+    private CacheMetrics() {
+    }
+
+    /**
+     * 缓存的统计，不存在时创建
+     *
+     * @param name 缓存名
+     * @return {@link CacheStats} 实例
+     */
+    public CacheStats cache(String name) {
+        CacheStats result = caches.get(name);
+        if (result != null) {
+            return result;
+        }
+
+        Assert.hasText(name, "name can't be empty");
+
+        CacheStats created = new CacheStats();
+        result = caches.putIfAbsent(name, created);
+        if (result != null) {
+            return result;
+        }
+
+        listeners.forEach(listener -> listener.onCache(name, created));
+        return created;
+    }
+
+    /**
+     * 分布式锁的统计，不存在时创建
+     *
+     * @param name 锁名
+     * @return {@link LockStats} 实例
+     */
+    public LockStats lock(String name) {
+        LockStats result = locks.get(name);
+        if (result != null) {
+            return result;
+        }
+
+        Assert.hasText(name, "name can't be empty");
+
+        LockStats created = new LockStats();
+        result = locks.putIfAbsent(name, created);
+        if (result != null) {
+            return result;
+        }
+
+        listeners.forEach(listener -> listener.onLock(name, created));
+        return created;
+    }
+
+    /**
+     * 分布式限流的统计，不存在时创建
+     *
+     * @param name 限流名
+     * @return {@link LimiterStats} 实例
+     */
+    public LimiterStats limiter(String name) {
+        LimiterStats result = limiters.get(name);
+        if (result != null) {
+            return result;
+        }
+
+        Assert.hasText(name, "name can't be empty");
+
+        LimiterStats created = new LimiterStats();
+        result = limiters.putIfAbsent(name, created);
+        if (result != null) {
+            return result;
+        }
+
+        listeners.forEach(listener -> listener.onLimiter(name, created));
+        return created;
+    }
+
+    /**
+     * 添加回调，并回调已存在的统计
+     *
+     * @param listener {@link Listener} 实例
+     */
+    public void addListener(Listener listener) {
+        Assert.notNull(listener, "listener can't be null");
+
+        listeners.add(listener);
+        caches.forEach(listener::onCache);
+        locks.forEach(listener::onLock);
+        limiters.forEach(listener::onLimiter);
+    }
+
+    public Map<String, CacheStats> getCaches() {
+        return Collections.unmodifiableMap(caches);
+    }
+
+    public Map<String, LockStats> getLocks() {
+        return Collections.unmodifiableMap(locks);
+    }
+
+    public Map<String, LimiterStats> getLimiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    /**
+     * 新建统计时的回调
+     */
+    public interface Listener {
+        /**
+         * 新建缓存的统计
+         *
+         * @param name  缓存名
+         * @param stats {@link CacheStats} 实例
+         */
+        default void onCache(String name, CacheStats stats) {
+        }
+
+        /**
+         * 新建分布式锁的统计
+         *
+         * @param name  锁名
+         * @param stats {@link LockStats} 实例
+         */
+        default void onLock(String name, LockStats stats) {
+        }
+
+        /**
+         * 新建分布式限流的统计
+         *
+         * @param name  限流名
+         * @param stats {@link LimiterStats} 实例
+         */
+        default void onLimiter(String name, LimiterStats stats) {
+        }
+    }
+
+    /**
+     * 缓存的统计
+     */
+    public static final class CacheStats {
+        /**
+         * 命中数
+         */
+        private final LongAdder hitCount = new LongAdder();
+
+        /**
+         * 未命中数
+         */
+        private final LongAdder missCount = new LongAdder();
+
+        /**
+         * 写入数
+         */
+        private final LongAdder putCount = new LongAdder();
+
+        /**
+         * 删除数，含清空
+         */
+        private final LongAdder removeCount = new LongAdder();
+
+        /**
+         * 异常数
+         */
+        private final LongAdder errorCount = new LongAdder();
+
+        /**
+         * 读取耗时
+         */
+        private final LatencyHistogram getLatency = LatencyHistogram.create();
+
+        /**
+         * 写入耗时
+         */
+        private final LatencyHistogram putLatency = LatencyHistogram.create();
+
+        private CacheStats() {
+        }
+
+        /**
+         * 记录一次读取
+         *
+         * @param hit          命中？
+         * @param elapsedNanos 耗时，单位：纳秒
+         */
+        public void recordGet(boolean hit, long elapsedNanos) {
+            if (hit) {
+                hitCount.increment();
+            } else {
+                missCount.increment();
+            }
+            getLatency.record(elapsedNanos);
+        }
+
+        /**
+         * 记录一次写入
+         *
+         * @param elapsedNanos 耗时，单位：纳秒
+         */
+        public void recordPut(long elapsedNanos) {
+            putCount.increment();
+            putLatency.record(elapsedNanos);
+        }
+
+        public void recordRemove() {
+            removeCount.increment();
+        }
+
+        public void recordError() {
+            errorCount.increment();
+        }
+
+        /**
+         * 命中率
+         *
+         * @return 命中数 / 读取数，无读取时返回0
+         */
+        public double getHitRatio() {
+            long hits = hitCount.sum();
+            long total = hits + missCount.sum();
+            return total > 0 ? (double) hits / total : 0;
+        }
+
+        public long getHitCount() {
+            return hitCount.sum();
+        }
+
+        public long getMissCount() {
+            return missCount.sum();
+        }
+
+        public long getPutCount() {
+            return putCount.sum();
+        }
+
+        public long getRemoveCount() {
+            return removeCount.sum();
+        }
+
+        public long getErrorCount() {
+            return errorCount.sum();
+        }
+
+        public LatencyHistogram getGetLatency() {
+            return getLatency;
+        }
+
+        public LatencyHistogram getPutLatency() {
+            return putLatency;
+        }
+
+    }
+
+    /**
+     * 分布式锁的统计
+     */
+    public static final class LockStats {
+        /**
+         * 加锁成功数
+         */
+        private final LongAdder acquiredCount = new LongAdder();
+
+        /**
+         * 加锁失败数，锁被他人持有
+         */
+        private final LongAdder contendedCount = new LongAdder();
+
+        /**
+         * 加锁耗时
+         */
+        private final LatencyHistogram acquireLatency = LatencyHistogram.create();
+
+        /**
+         * 持有时长，加锁成功到解锁
+         */
+        private final LatencyHistogram holdLatency = LatencyHistogram.create();
+
+        private LockStats() {
+        }
+
+        /**
+         * 记录一次加锁
+         *
+         * @param acquired     加锁成功？
+         * @param elapsedNanos 耗时，单位：纳秒
+         */
+        public void recordAcquire(boolean acquired, long elapsedNanos) {
+            if (acquired) {
+                acquiredCount.increment();
+            } else {
+                contendedCount.increment();
+            }
+            acquireLatency.record(elapsedNanos);
+        }
+
+        /**
+         * 记录一次解锁
+         *
+         * @param heldNanos 持有时长，单位：纳秒
+         */
+        public void recordRelease(long heldNanos) {
+            holdLatency.record(heldNanos);
+        }
+
+        public long getAcquiredCount() {
+            return acquiredCount.sum();
+        }
+
+        public long getContendedCount() {
+            return contendedCount.sum();
+        }
+
+        public LatencyHistogram getAcquireLatency() {
+            return acquireLatency;
+        }
+
+        public LatencyHistogram getHoldLatency() {
+            return holdLatency;
+        }
+
+    }
+
+    /**
+     * 分布式限流的统计
+     */
+    public static final class LimiterStats {
+        /**
+         * 许可数
+         */
+        private final LongAdder grantedCount = new LongAdder();
+
+        /**
+         * 拒绝数
+         */
+        private final LongAdder rejectedCount = new LongAdder();
+
+        private LimiterStats() {
+        }
+
+        /**
+         * 记录一次获取许可
+         *
+         * @param granted 得到许可？
+         */
+        public void record(boolean granted) {
+            if (granted) {
+                grantedCount.increment();
+            } else {
+                rejectedCount.increment();
+            }
+        }
+
+        public long getGrantedCount() {
+            return grantedCount.sum();
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount.sum();
+        }
+
+    }
+
+}
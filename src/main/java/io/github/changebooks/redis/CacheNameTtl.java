@@ -1,5 +1,6 @@
 package io.github.changebooks.redis;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -13,7 +14,7 @@ import java.io.Serializable;
 import java.time.Duration;
 
 /**
- * 缓存名和缓存过期时间
+ * 缓存名和缓存过期时间，及选项
  *
  * @author changebooks@qq.com
  */
@@ -38,6 +39,11 @@ public final class CacheNameTtl implements Serializable {
     @JsonDeserialize(using = DurationDeserializer.class)
     private Duration ttl;
 
+    /**
+     * 选项，如，序列化方式、压缩阈值、过期时间的随机偏移
+     */
+    private CacheOptions options = new CacheOptions();
+
     public CacheNameTtl() {
     }
 
@@ -46,6 +52,12 @@ public final class CacheNameTtl implements Serializable {
         this.ttl = ttl;
     }
 
+    public CacheNameTtl(String cacheName, Duration ttl, TtlJitter ttlJitter) {
+        this.cacheName = cacheName;
+        this.ttl = ttl;
+        this.options.setTtlJitter(ttlJitter);
+    }
+
     @Override
     public String toString() {
         try {
@@ -72,4 +84,30 @@ public final class CacheNameTtl implements Serializable {
         this.ttl = ttl;
     }
 
+    public CacheOptions getOptions() {
+        return options;
+    }
+
+    public void setOptions(CacheOptions options) {
+        this.options = options != null ? options : new CacheOptions();
+    }
+
+    @JsonIgnore
+    public TtlJitter getTtlJitter() {
+        return options.getTtlJitter();
+    }
+
+    public void setTtlJitter(TtlJitter ttlJitter) {
+        options.setTtlJitter(ttlJitter);
+    }
+
+    @JsonIgnore
+    public boolean isSnapshot() {
+        return options.isSnapshot();
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        options.setSnapshot(snapshot);
+    }
+
 }
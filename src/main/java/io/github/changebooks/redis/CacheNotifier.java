@@ -0,0 +1,100 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 跨进程通知，发布订阅
+ * 所有频道共用一个订阅连接
+ *
+ * @author changebooks@qq.com
+ */
+public final class CacheNotifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheNotifier.class);
+
+    /**
+     * 本实例id，用于忽略自己发出的通知
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 订阅容器
+     */
+    private final RedisMessageListenerContainer container;
+
+    /**
+     * {@link StringRedisTemplate}
+     */
+    private final StringRedisTemplate template;
+
+    public CacheNotifier(RedisConnectionFactory connectionFactory, StringRedisTemplate template) {
+        Assert.notNull(connectionFactory, "connectionFactory can't be null");
+        Assert.notNull(template, "template can't be null");
+
+        this.template = template;
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(connectionFactory);
+        this.container.afterPropertiesSet();
+        this.container.start();
+    }
+
+    /**
+     * 订阅
+     *
+     * @param channel  频道
+     * @param listener 收到通知，入参为通知内容
+     */
+    public void subscribe(String channel, Consumer<String> listener) {
+        Assert.hasText(channel, "channel can't be empty");
+        Assert.notNull(listener, "listener can't be null");
+
+        container.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                listener.accept(body);
+            } catch (RuntimeException ex) {
+                LOGGER.error("onMessage failed, channel: {}, message: {}, throwable: ", channel, body, ex);
+            }
+        }, new ChannelTopic(channel));
+    }
+
+    /**
+     * 发布
+     *
+     * @param channel 频道
+     * @param message 通知内容
+     */
+    public void publish(String channel, String message) {
+        template.convertAndSend(channel, message);
+    }
+
+    /**
+     * 停止订阅
+     */
+    public void stop() {
+        try {
+            container.destroy();
+        } catch (Exception ex) {
+            LOGGER.error("stop failed, throwable: ", ex);
+        }
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public StringRedisTemplate getTemplate() {
+        return template;
+    }
+
+}
@@ -0,0 +1,198 @@
+package io.github.changebooks.redis;
+
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * 按缓存名的选项，如，city&PT6H&serializer=binary&compress=4k&l1=10000&nulls=false&jitter=10%
+ * <pre>
+ * serializer，序列化方式，json或binary
+ * compress，压缩阈值，单位：字节，可带k、m后缀
+ * l1，二级缓存中，一级缓存的最大数量
+ * nulls，缓存Null值？
+ * jitter，过期时间的随机偏移，如，10%、PT5M
+ * snapshot，写入快照，启动时从快照加载
+ * 未配置的选项为Null，取 {@link CacheManagerSupport} 的默认值
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class CacheOptions implements Serializable {
+    /**
+     * 序列化方式，json
+     */
+    public static final String SERIALIZER_JSON = "json";
+
+    /**
+     * 序列化方式，紧凑的二进制格式
+     */
+    public static final String SERIALIZER_BINARY = "binary";
+
+    /**
+     * 序列化方式，Null时取默认值
+     */
+    private String serializer;
+
+    /**
+     * 压缩阈值，单位：字节，Null时取默认值
+     */
+    private Integer compressThreshold;
+
+    /**
+     * 一级缓存的最大数量，Null时取默认值
+     */
+    private Integer nearCacheSize;
+
+    /**
+     * 缓存Null值？Null时取默认值
+     */
+    private Boolean cacheNullValues;
+
+    /**
+     * 过期时间的随机偏移
+     */
+    private TtlJitter ttlJitter;
+
+    /**
+     * 写入快照？
+     */
+    private boolean snapshot;
+
+    public CacheOptions() {
+    }
+
+    /**
+     * 解析大小，如，"512"、"4k"、"1m"
+     *
+     * @param size 大小字符串
+     * @return 字节数，EmptyOrNull时返回Null，格式错误时抛出异常
+     */
+    public static Integer parseSize(String size) {
+        if (size == null || size.trim().isEmpty()) {
+            return null;
+        }
+
+        String cleanedSize = size.trim().toLowerCase(Locale.ROOT);
+        int unit = 1;
+        if (cleanedSize.endsWith("k")) {
+            unit = 1024;
+        } else if (cleanedSize.endsWith("m")) {
+            unit = 1024 * 1024;
+        }
+
+        if (unit > 1) {
+            cleanedSize = cleanedSize.substring(0, cleanedSize.length() - 1);
+        }
+
+        long result = Long.parseLong(cleanedSize) * unit;
+        Assert.isTrue(result >= 0 && result <= Integer.MAX_VALUE, "size must be between 0 and " + Integer.MAX_VALUE);
+
+        return (int) result;
+    }
+
+    /**
+     * 解析数量，不带单位，如，"10000"
+     *
+     * @param count 数量字符串
+     * @return 数量，EmptyOrNull时返回Null，格式错误时抛出异常
+     */
+    public static Integer parseCount(String count) {
+        if (count == null || count.trim().isEmpty()) {
+            return null;
+        }
+
+        int result = Integer.parseInt(count.trim());
+        Assert.isTrue(result >= 0, "count must be greater than or equal to 0");
+
+        return result;
+    }
+
+    /**
+     * 解析布尔值，无值时为true，如，"snapshot"、"snapshot=true"
+     *
+     * @param value 布尔字符串，仅支持true或false，忽略大小写
+     * @return 布尔值，格式错误时抛出异常
+     */
+    public static boolean parseBoolean(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return true;
+        }
+
+        String cleanedValue = value.trim();
+        if (Boolean.TRUE.toString().equalsIgnoreCase(cleanedValue)) {
+            return true;
+        }
+
+        Assert.isTrue(Boolean.FALSE.toString().equalsIgnoreCase(cleanedValue), "value must be true or false");
+        return false;
+    }
+
+    /**
+     * 解析序列化方式
+     *
+     * @param serializer 序列化方式，json或binary
+     * @return 小写的序列化方式，EmptyOrNull时返回Null，不支持时抛出异常
+     */
+    public static String parseSerializer(String serializer) {
+        if (serializer == null || serializer.trim().isEmpty()) {
+            return null;
+        }
+
+        String result = serializer.trim().toLowerCase(Locale.ROOT);
+        Assert.isTrue(SERIALIZER_JSON.equals(result) || SERIALIZER_BINARY.equals(result),
+                "serializer must be " + SERIALIZER_JSON + " or " + SERIALIZER_BINARY);
+
+        return result;
+    }
+
+    public String getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(String serializer) {
+        this.serializer = serializer;
+    }
+
+    public Integer getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(Integer compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public Integer getNearCacheSize() {
+        return nearCacheSize;
+    }
+
+    public void setNearCacheSize(Integer nearCacheSize) {
+        this.nearCacheSize = nearCacheSize;
+    }
+
+    public Boolean getCacheNullValues() {
+        return cacheNullValues;
+    }
+
+    public void setCacheNullValues(Boolean cacheNullValues) {
+        this.cacheNullValues = cacheNullValues;
+    }
+
+    public TtlJitter getTtlJitter() {
+        return ttlJitter;
+    }
+
+    public void setTtlJitter(TtlJitter ttlJitter) {
+        this.ttlJitter = ttlJitter;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+}
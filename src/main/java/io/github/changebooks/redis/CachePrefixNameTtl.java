@@ -37,6 +37,11 @@ public final class CachePrefixNameTtl implements Serializable {
      */
     private String cacheNamePrefix;
 
+    /**
+     * 缓存名带哈希标签？
+     */
+    private boolean useHashTag;
+
     /**
      * 过期时间
      */
@@ -76,6 +81,14 @@ public final class CachePrefixNameTtl implements Serializable {
         this.cacheNamePrefix = cacheNamePrefix;
     }
 
+    public boolean isUseHashTag() {
+        return useHashTag;
+    }
+
+    public void setUseHashTag(boolean useHashTag) {
+        this.useHashTag = useHashTag;
+    }
+
     public Duration getTtl() {
         return ttl;
     }
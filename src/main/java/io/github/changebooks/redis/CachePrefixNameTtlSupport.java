@@ -11,6 +11,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +29,49 @@ public class CachePrefixNameTtlSupport {
      */
     private static final String SEPARATOR = "&";
 
+    /**
+     * 选项名和选项值的拼接符
+     * 如，city&PT6H&jitter=10%
+     */
+    private static final String OPTION_SEPARATOR = "=";
+
+    /**
+     * 选项名，过期时间的随机偏移
+     * 按比例，如，jitter=10%
+     * 按时长，如，jitter=PT5M
+     */
+    private static final String JITTER = "jitter";
+
+    /**
+     * 选项名，写入快照，启动时从快照加载
+     * 如，city&PT6H&snapshot，或，snapshot=true
+     */
+    private static final String SNAPSHOT = "snapshot";
+
+    /**
+     * 选项名，序列化方式
+     * 如，serializer=binary，或，serializer=json
+     */
+    private static final String SERIALIZER = "serializer";
+
+    /**
+     * 选项名，压缩阈值，单位：字节，可带k、m后缀
+     * 如，compress=4k
+     */
+    private static final String COMPRESS = "compress";
+
+    /**
+     * 选项名，二级缓存中，一级缓存的最大数量
+     * 如，l1=10000
+     */
+    private static final String NEAR_CACHE_SIZE = "l1";
+
+    /**
+     * 选项名，缓存Null值？
+     * 如，nulls=false
+     */
+    private static final String NULLS = "nulls";
+
     /**
      * 格式化缓存名前缀、缓存名、缓存过期时间
      *
@@ -57,12 +101,24 @@ public class CachePrefixNameTtlSupport {
 
         result.setUseCacheNamePrefix(useCacheNamePrefix);
         result.setCacheNamePrefix(cacheNamePrefix);
+        result.setUseHashTag(useHashTag());
         result.setTtl(ttl);
         result.setCacheNameTtlList(cacheNameTtlList);
 
         return result;
     }
 
+    /**
+     * 缓存名带哈希标签？集群模式下，同一个缓存名的缓存键在同一个槽位
+     * 默认处理方式，不带
+     *
+     * @return 带哈希标签？
+     * @see KeyPrefix#hashTagged(boolean, String)
+     */
+    public boolean useHashTag() {
+        return false;
+    }
+
     /**
      * 批量格式化缓存名和缓存过期时间
      *
@@ -80,9 +136,11 @@ public class CachePrefixNameTtlSupport {
 
     /**
      * 格式化缓存名和缓存过期时间
+     * 如，token&P1D，city&PT6H&jitter=10%，city&PT6H&snapshot，city&PT6H&serializer=binary&compress=4k&l1=10000
      *
-     * @param cacheNameTtl 缓存名拼接过期时间
+     * @param cacheNameTtl 缓存名拼接过期时间，及选项
      * @return {@link CacheNameTtl} 实例
+     * @see CacheOptions
      */
     public CacheNameTtl cacheNameTtl(String cacheNameTtl) {
         if (cacheNameTtl == null) {
@@ -91,6 +149,7 @@ public class CachePrefixNameTtlSupport {
 
         String cacheName;
         Duration ttl;
+        CacheOptions options = new CacheOptions();
 
         String separator = separator();
         if (StringUtils.hasLength(separator) && cacheNameTtl.contains(separator)) {
@@ -106,12 +165,73 @@ public class CachePrefixNameTtlSupport {
             } else {
                 ttl = null;
             }
+
+            for (int i = 2; i < splitR.length; i++) {
+                String[] option = splitR[i].split(OPTION_SEPARATOR, 2);
+                String optionName = StringUtils.trimAllWhitespace(option[0]);
+                String optionValue = option.length > 1 ? option[1] : null;
+
+                if (JITTER.equals(optionName)) {
+                    options.setTtlJitter(parseTtlJitter(optionValue));
+                } else if (SNAPSHOT.equals(optionName)) {
+                    options.setSnapshot(parseOption(optionName, optionValue, CacheOptions::parseBoolean));
+                } else if (SERIALIZER.equals(optionName)) {
+                    options.setSerializer(parseOption(optionName, optionValue, CacheOptions::parseSerializer));
+                } else if (COMPRESS.equals(optionName)) {
+                    options.setCompressThreshold(parseOption(optionName, optionValue, CacheOptions::parseSize));
+                } else if (NEAR_CACHE_SIZE.equals(optionName)) {
+                    options.setNearCacheSize(parseOption(optionName, optionValue, CacheOptions::parseCount));
+                } else if (NULLS.equals(optionName)) {
+                    options.setCacheNullValues(parseOption(optionName, optionValue, CacheOptions::parseBoolean));
+                } else {
+                    LOGGER.warn("unknown option, cacheNameTtl: {}, option: {}", cacheNameTtl, splitR[i]);
+                }
+            }
         } else {
             cacheName = cacheNameTtl;
             ttl = null;
         }
 
-        return new CacheNameTtl(cacheName, ttl);
+        CacheNameTtl result = new CacheNameTtl(cacheName, ttl);
+        result.setOptions(options);
+        return result;
+    }
+
+    /**
+     * 解析选项值
+     *
+     * @param optionName  选项名
+     * @param optionValue 选项值
+     * @param parser      解析函数
+     * @param <T>         选项值的类型
+     * @return 解析后的选项值，转换失败时抛出异常
+     */
+    private <T> T parseOption(String optionName, String optionValue, Function<String, T> parser) {
+        String cleanedOptionValue = StringUtils.trimAllWhitespace(optionValue);
+        try {
+            return parser.apply(cleanedOptionValue);
+        } catch (RuntimeException ex) {
+            LOGGER.error("parseOption failed, optionName: {}, optionValue: {}, throwable: ",
+                    optionName, optionValue, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * 过期时间的随机偏移，字符串 to 偏移对象
+     *
+     * @param ttlJitter 偏移字符串，如，"10%"、"PT5M"
+     * @return 偏移对象，EmptyOrNull时返回Null，转换失败时抛出异常
+     */
+    public TtlJitter parseTtlJitter(String ttlJitter) {
+        String cleanedTtlJitter = StringUtils.trimAllWhitespace(ttlJitter);
+        try {
+            return TtlJitter.parse(cleanedTtlJitter);
+        } catch (RuntimeException ex) {
+            LOGGER.error("parseTtlJitter failed, ttlJitter: {}, cleanedTtlJitter: {}, throwable: ",
+                    ttlJitter, cleanedTtlJitter, ex);
+            throw ex;
+        }
     }
 
     /**
@@ -0,0 +1,513 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.util.Assert;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存快照，写入本地文件，从本地文件加载
+ * <pre>
+ * 写入，SCAN缓存名前缀下的键，管道批量读取剩余过期时间和值，流式写入文件
+ *   跳过分块的值（{@link ChunkedRedisCacheWriter}），块哈希和清单，加载后视为未命中
+ *   跳过不是字符串的键
+ * 加载，分段内存映射读取文件，管道批量写入，保留剩余过期时间，已存在的键不覆盖，已过期的跳过
+ * 文件中的键不含缓存名前缀，加载时拼接当前的前缀，如，清空缓存后代数已变化
+ * 不支持集群模式
+ *
+ * 文件格式
+ * 魔数（4字节）+ 版本（4字节）
+ * 缓存名：SECTION（1字节）+ 长度（2字节）+ 缓存名
+ * 缓存：ENTRY（1字节）+ 键长度（4字节）+ 键 + 值长度（4字节）+ 值 + 过期时刻（8字节，毫秒，0为不过期）
+ * END（1字节）
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class CacheSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheSnapshot.class);
+
+    /**
+     * 魔数，"CSNP"
+     */
+    private static final int MAGIC = 0x43534E50;
+
+    /**
+     * 版本
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * 记录类型，结束
+     */
+    private static final byte END = 0x00;
+
+    /**
+     * 记录类型，缓存名
+     */
+    private static final byte SECTION = 0x01;
+
+    /**
+     * 记录类型，缓存
+     */
+    private static final byte ENTRY = 0x02;
+
+    /**
+     * 内存映射的窗口大小
+     */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * 写入文件的缓冲区大小
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 临时文件的后缀，写入完成后重命名
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * 连接工厂
+     */
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * 每批的数量
+     */
+    private final int batchSize;
+
+    /**
+     * 创建 {@link CacheSnapshot} 实例
+     *
+     * @param connectionFactory 连接工厂
+     * @param batchSize         每批的数量，SCAN的COUNT，管道的命令数
+     */
+    public CacheSnapshot(RedisConnectionFactory connectionFactory, int batchSize) {
+        Assert.notNull(connectionFactory, "connectionFactory can't be null");
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+
+        this.connectionFactory = connectionFactory;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 写入快照，先写临时文件，完成后重命名
+     *
+     * @param file     快照文件
+     * @param prefixes [ 缓存名 : 缓存键的前缀 ]
+     * @return 写入的数量
+     * @throws IOException 写入文件失败
+     */
+    public long dump(Path file, Map<String, String> prefixes) throws IOException {
+        Assert.notNull(file, "file can't be null");
+        Assert.notNull(prefixes, "prefixes can't be null");
+
+        long startTime = System.currentTimeMillis();
+        long result = 0;
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try (RedisConnection scanConnection = connectionFactory.getConnection();
+             RedisConnection connection = connectionFactory.getConnection();
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(tempFile), OUTPUT_BUFFER_SIZE))) {
+            Assert.isTrue(!(connection instanceof RedisClusterConnection), "cluster is not supported");
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] prefix = entry.getValue().getBytes(StandardCharsets.UTF_8);
+
+                output.writeByte(SECTION);
+                output.writeShort(name.length);
+                output.write(name);
+
+                ScanOptions options = ScanOptions.scanOptions().
+                        match(escapePattern(entry.getValue()) + "*").
+                        count(batchSize).
+                        build();
+
+                List<byte[]> keys = new ArrayList<>(batchSize);
+                try (Cursor<byte[]> cursor = scanConnection.keyCommands().scan(options)) {
+                    while (cursor.hasNext()) {
+                        byte[] key = cursor.next();
+                        if (ChunkedRedisCacheWriter.isChunksKey(key)) {
+                            continue;
+                        }
+
+                        keys.add(key);
+                        if (keys.size() >= batchSize) {
+                            result += dumpBatch(connection, output, keys, prefix.length);
+                            keys.clear();
+                        }
+                    }
+                }
+
+                if (!keys.isEmpty()) {
+                    result += dumpBatch(connection, output, keys, prefix.length);
+                }
+            }
+
+            output.writeByte(END);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tempFile);
+            throw ex;
+        }
+
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        LOGGER.info("dump snapshot, file: {}, count: {}, elapsed: {}ms",
+                file, result, System.currentTimeMillis() - startTime);
+        return result;
+    }
+
+    /**
+     * 管道批量读取剩余过期时间和值，写入文件
+     */
+    private int dumpBatch(RedisConnection connection, DataOutputStream output,
+                          List<byte[]> keys, int prefixLength) throws IOException {
+        keys = stringKeys(connection, keys);
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        List<Object> replies;
+        connection.openPipeline();
+        try {
+            for (byte[] key : keys) {
+                connection.keyCommands().pTtl(key);
+                connection.stringCommands().get(key);
+            }
+        } finally {
+            replies = connection.closePipeline();
+        }
+
+        long now = System.currentTimeMillis();
+        int result = 0;
+
+        for (int i = 0; i < keys.size(); i++) {
+            Object ttl = replies.get(i * 2);
+            Object value = replies.get(i * 2 + 1);
+            if (!(ttl instanceof Long) || !(value instanceof byte[])) {
+                continue;
+            }
+
+            if (ChunkedRedisCacheWriter.isManifest((byte[]) value)) {
+                // 块不在快照中，清单加载后无法读取
+                continue;
+            }
+
+            long pttl = (Long) ttl;
+            if (pttl == -2) {
+                // 已过期
+                continue;
+            }
+
+            byte[] key = keys.get(i);
+            byte[] rawValue = (byte[]) value;
+
+            output.writeByte(ENTRY);
+            output.writeInt(key.length - prefixLength);
+            output.write(key, prefixLength, key.length - prefixLength);
+            output.writeInt(rawValue.length);
+            output.write(rawValue);
+            output.writeLong(pttl > 0 ? now + pttl : 0);
+            result++;
+        }
+
+        return result;
+    }
+
+    /**
+     * 管道批量读取类型，仅保留字符串的键，其它类型GET返回WRONGTYPE，导致整批失败
+     */
+    private static List<byte[]> stringKeys(RedisConnection connection, List<byte[]> keys) {
+        List<Object> types;
+        connection.openPipeline();
+        try {
+            for (byte[] key : keys) {
+                connection.keyCommands().type(key);
+            }
+        } finally {
+            types = connection.closePipeline();
+        }
+
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (types.get(i) == DataType.STRING) {
+                result.add(keys.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 加载快照
+     *
+     * @param file     快照文件
+     * @param prefixes [ 缓存名 : 缓存键的前缀 ]，未配置的缓存名跳过
+     * @return 写入的数量，不含已过期的和跳过的
+     * @throws IOException 读取文件失败，或格式错误
+     */
+    public long load(Path file, Map<String, String> prefixes) throws IOException {
+        Assert.notNull(file, "file can't be null");
+        Assert.notNull(prefixes, "prefixes can't be null");
+
+        long startTime = System.currentTimeMillis();
+        long result = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             RedisConnection connection = connectionFactory.getConnection()) {
+            Assert.isTrue(!(connection instanceof RedisClusterConnection), "cluster is not supported");
+
+            MappedReader reader = new MappedReader(channel);
+            if (reader.readInt() != MAGIC) {
+                throw new IOException("not a snapshot file: " + file);
+            }
+
+            int version = reader.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version: " + version);
+            }
+
+            byte[] prefix = null;
+            List<Entry> batch = new ArrayList<>(batchSize);
+
+            while (true) {
+                byte type = reader.readByte();
+                if (type == END) {
+                    break;
+                }
+
+                if (type == SECTION) {
+                    String name = new String(reader.readBytes(reader.readShort()), StandardCharsets.UTF_8);
+                    String cacheKeyPrefix = prefixes.get(name);
+                    prefix = cacheKeyPrefix != null ? cacheKeyPrefix.getBytes(StandardCharsets.UTF_8) : null;
+                    continue;
+                }
+
+                if (type != ENTRY) {
+                    throw new IOException("corrupted snapshot file: " + file + ", type: " + type);
+                }
+
+                byte[] keySuffix = reader.readBytes(reader.readInt());
+                byte[] value = reader.readBytes(reader.readInt());
+                long expireAt = reader.readLong();
+
+                if (prefix == null) {
+                    continue;
+                }
+
+                batch.add(new Entry(concat(prefix, keySuffix), value, expireAt));
+                if (batch.size() >= batchSize) {
+                    result += loadBatch(connection, batch);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                result += loadBatch(connection, batch);
+            }
+        }
+
+        LOGGER.info("load snapshot, file: {}, count: {}, elapsed: {}ms",
+                file, result, System.currentTimeMillis() - startTime);
+        return result;
+    }
+
+    /**
+     * 管道批量写入，保留剩余过期时间，已存在的键不覆盖
+     */
+    private static int loadBatch(RedisConnection connection, List<Entry> batch) {
+        long now = System.currentTimeMillis();
+        int result = 0;
+
+        connection.openPipeline();
+        try {
+            for (Entry entry : batch) {
+                Expiration expiration;
+                if (entry.expireAt > 0) {
+                    long remaining = entry.expireAt - now;
+                    if (remaining <= 0) {
+                        continue;
+                    }
+                    expiration = Expiration.milliseconds(remaining);
+                } else {
+                    expiration = Expiration.persistent();
+                }
+
+                connection.stringCommands().set(entry.key, entry.value, expiration,
+                        RedisStringCommands.SetOption.ifAbsent());
+                result++;
+            }
+        } finally {
+            connection.closePipeline();
+        }
+
+        return result;
+    }
+
+    /**
+     * 转义SCAN匹配模式中的特殊字符
+     *
+     * @param prefix 缓存键的前缀
+     * @return 转义后的前缀
+     */
+    private static String escapePattern(String prefix) {
+        StringBuilder result = new StringBuilder(prefix.length() + 8);
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                result.append('\\');
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    private static byte[] concat(byte[] prefix, byte[] suffix) {
+        byte[] result = Arrays.copyOf(prefix, prefix.length + suffix.length);
+        System.arraycopy(suffix, 0, result, prefix.length, suffix.length);
+        return result;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 待写入的缓存
+     */
+    private static final class Entry {
+        /**
+         * 完整的缓存键
+         */
+        final byte[] key;
+
+        /**
+         * 缓存值
+         */
+        final byte[] value;
+
+        /**
+         * 过期时刻，毫秒，0为不过期
+         */
+        final long expireAt;
+
+        Entry(byte[] key, byte[] value, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 分段内存映射读取，剩余不足时，从当前位置重新映射
+     */
+    private static final class MappedReader {
+        /**
+         * 文件
+         */
+        final FileChannel channel;
+
+        /**
+         * 文件大小
+         */
+        final long size;
+
+        /**
+         * 当前窗口在文件中的起始位置
+         */
+        long windowStart;
+
+        /**
+         * 当前窗口
+         */
+        MappedByteBuffer window;
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0, 0);
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return window.get();
+        }
+
+        int readShort() throws IOException {
+            ensure(2);
+            return window.getShort() & 0xFFFF;
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return window.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(8);
+            return window.getLong();
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            if (length < 0) {
+                throw new IOException("corrupted snapshot file, length: " + length);
+            }
+
+            ensure(length);
+            byte[] result = new byte[length];
+            window.get(result);
+            return result;
+        }
+
+        void ensure(int length) throws IOException {
+            if (window.remaining() >= length) {
+                return;
+            }
+
+            long position = windowStart + window.position();
+            if (position + length > size) {
+                throw new EOFException("unexpected end of snapshot file, position: " + position);
+            }
+
+            map(position, length);
+        }
+
+        void map(long position, int minLength) throws IOException {
+            long length = Math.min(Math.max(WINDOW_SIZE, minLength), size - position);
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            this.windowStart = position;
+        }
+    }
+
+}
@@ -0,0 +1,442 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 大值分块，超过阈值的值拆成多个块，存入哈希，每条命令的数据量不超过块大小，不长时间阻塞Redis
+ * <pre>
+ * 按缓存名开启，未开启的缓存名，按原方式读写
+ * 缓存键写入清单（标记 + 版本 + 随机数 + 块数 + 总长度），块写入哈希 "缓存键:chunks"，字段为块序号，过期时间相同
+ * 每个块带清单的随机数，读取时校验，并发覆盖导致不一致时视为未命中
+ * 覆盖为小值时，旧块不删除，等待过期，每个缓存键最多残留一个哈希
+ * 批量读遇到清单时逐块读取，批量写超过阈值的逐个分块写入
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class ChunkedRedisCacheWriter extends RedisCacheWriterDecorator {
+    /**
+     * 清单的标记，0x03 + "CHNK"
+     * 压缩的值以压缩头（0x00 + "CMP"）开头，未压缩的值不带标记
+     * 清单按 标记 + 版本 + 固定长度 {@link #MANIFEST_LENGTH} 识别，仅开启分块的缓存名识别
+     */
+    private static final byte[] MANIFEST_MAGIC = {0x03, 'C', 'H', 'N', 'K'};
+
+    /**
+     * 清单的版本
+     */
+    private static final byte MANIFEST_VERSION = 1;
+
+    /**
+     * 清单的长度，标记 + 版本 + 随机数 + 块数 + 总长度
+     */
+    private static final int MANIFEST_LENGTH = MANIFEST_MAGIC.length + 1 + Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    /**
+     * 块哈希的后缀
+     */
+    private static final byte[] CHUNKS_SUFFIX = ":chunks".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 连接工厂，读写块
+     */
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * [ 缓存名 : 分块的阈值，单位：字节 ]
+     */
+    private final Map<String, Integer> thresholds;
+
+    /**
+     * 块大小，单位：字节
+     */
+    private final int chunkSize;
+
+    /**
+     * 分块写入的次数
+     */
+    private final LongAdder chunkedPutCount = new LongAdder();
+
+    /**
+     * 分块读取的次数
+     */
+    private final LongAdder chunkedGetCount = new LongAdder();
+
+    /**
+     * 块不一致（缺失或被覆盖），视为未命中的次数
+     */
+    private final LongAdder brokenCount = new LongAdder();
+
+    /**
+     * 创建 {@link ChunkedRedisCacheWriter} 实例
+     *
+     * @param delegate          被装饰的写缓存，读写清单和小值
+     * @param connectionFactory 连接工厂，读写块
+     * @param thresholds        [ 缓存名 : 分块的阈值，单位：字节 ]，超过时分块
+     * @param chunkSize         块大小，单位：字节
+     */
+    public ChunkedRedisCacheWriter(RedisCacheWriter delegate, RedisConnectionFactory connectionFactory,
+                                   Map<String, Integer> thresholds, int chunkSize) {
+        super(delegate);
+
+        Assert.notNull(connectionFactory, "connectionFactory can't be null");
+        Assert.notNull(thresholds, "thresholds can't be null");
+        Assert.isTrue(chunkSize > 0, "chunkSize must be greater than 0");
+
+        thresholds.forEach((name, threshold) ->
+                Assert.isTrue(threshold != null && threshold > 0, "threshold must be greater than 0"));
+
+        this.connectionFactory = connectionFactory;
+        this.thresholds = new HashMap<>(thresholds);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        byte[] result = super.get(name, key);
+        if (!thresholds.containsKey(name) || !isManifest(result)) {
+            return result;
+        }
+
+        return assemble(key, result);
+    }
+
+    /**
+     * 批量读，遇到清单时逐块读取
+     */
+    @Override
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        List<byte[]> result = super.getAll(name, keys);
+        if (!thresholds.containsKey(name)) {
+            return result;
+        }
+
+        for (int i = 0; i < result.size(); i++) {
+            byte[] value = result.get(i);
+            if (isManifest(value)) {
+                result.set(i, assemble(keys.get(i), value));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        if (!shouldChunk(name, value)) {
+            super.put(name, key, value, ttl);
+            return;
+        }
+
+        chunkedPutCount.increment();
+        long nonce = ThreadLocalRandom.current().nextLong();
+
+        // 先写块，再写清单，读到新清单时块已完整
+        writeChunks(chunksKey(key), value, nonce, ttl);
+        super.put(name, key, Manifest.format(nonce, chunkCount(value.length), value.length), ttl);
+    }
+
+    /**
+     * 批量写，超过阈值的逐个分块写入，其余的批量写入
+     */
+    @Override
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        if (!thresholds.containsKey(name)) {
+            super.putAll(name, keys, values, ttls);
+            return;
+        }
+
+        List<byte[]> smallKeys = new ArrayList<>(keys.size());
+        List<byte[]> smallValues = new ArrayList<>(keys.size());
+        List<Duration> smallTtls = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (shouldChunk(name, values.get(i))) {
+                put(name, keys.get(i), values.get(i), ttls.get(i));
+            } else {
+                smallKeys.add(keys.get(i));
+                smallValues.add(values.get(i));
+                smallTtls.add(ttls.get(i));
+            }
+        }
+
+        if (!smallKeys.isEmpty()) {
+            super.putAll(name, smallKeys, smallValues, smallTtls);
+        }
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        if (!shouldChunk(name, value)) {
+            return super.putIfAbsent(name, key, value, ttl);
+        }
+
+        long nonce = ThreadLocalRandom.current().nextLong();
+
+        // 先写清单，已存在时不写块，不覆盖已存在的块
+        byte[] manifest = Manifest.format(nonce, chunkCount(value.length), value.length);
+        byte[] existing = super.putIfAbsent(name, key, manifest, ttl);
+        if (existing != null) {
+            return isManifest(existing) ? get(name, key) : existing;
+        }
+
+        chunkedPutCount.increment();
+        writeChunks(chunksKey(key), value, nonce, ttl);
+        return null;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        super.remove(name, key);
+
+        if (thresholds.containsKey(name)) {
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                connection.keyCommands().del(chunksKey(key));
+            }
+        }
+    }
+
+    /**
+     * 是分块的清单？
+     *
+     * @param value 缓存值
+     * @return 清单？
+     */
+    public static boolean isManifest(byte[] value) {
+        if (value == null || value.length != MANIFEST_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < MANIFEST_MAGIC.length; i++) {
+            if (value[i] != MANIFEST_MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return value[MANIFEST_MAGIC.length] == MANIFEST_VERSION;
+    }
+
+    /**
+     * 是块哈希的键？"缓存键:chunks"
+     *
+     * @param key 键
+     * @return 块哈希？
+     */
+    public static boolean isChunksKey(byte[] key) {
+        if (key == null || key.length < CHUNKS_SUFFIX.length) {
+            return false;
+        }
+
+        int offset = key.length - CHUNKS_SUFFIX.length;
+        for (int i = 0; i < CHUNKS_SUFFIX.length; i++) {
+            if (key[offset + i] != CHUNKS_SUFFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按清单读取全部块，拼接成完整的值
+     *
+     * @param key           缓存键
+     * @param manifestValue 清单
+     * @return 完整的值，块不一致时返回Null
+     */
+    private byte[] assemble(byte[] key, byte[] manifestValue) {
+        chunkedGetCount.increment();
+        Manifest manifest = Manifest.parse(manifestValue);
+        byte[][] chunks = readChunks(chunksKey(key), manifest.chunkCount);
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) manifest.totalLength);
+        for (byte[] chunk : chunks) {
+            if (!manifest.matches(chunk) || buffer.remaining() < chunk.length - Long.BYTES) {
+                brokenCount.increment();
+                return null;
+            }
+            buffer.put(chunk, Long.BYTES, chunk.length - Long.BYTES);
+        }
+
+        if (buffer.hasRemaining()) {
+            brokenCount.increment();
+            return null;
+        }
+
+        return buffer.array();
+    }
+
+    private boolean shouldChunk(String name, byte[] value) {
+        Integer threshold = thresholds.get(name);
+        return threshold != null && value != null && value.length > threshold;
+    }
+
+    private int chunkCount(int length) {
+        return (length + chunkSize - 1) / chunkSize;
+    }
+
+    /**
+     * 写入块，集群模式下逐个写入，否则管道
+     */
+    private void writeChunks(byte[] chunksKey, byte[] value, long nonce, Duration ttl) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            boolean pipelined = !(connection instanceof RedisClusterConnection);
+            if (pipelined) {
+                connection.openPipeline();
+            }
+
+            try {
+                for (int i = 0, offset = 0; offset < value.length; i++, offset += chunkSize) {
+                    int length = Math.min(chunkSize, value.length - offset);
+                    byte[] chunk = ByteBuffer.allocate(Long.BYTES + length).
+                            putLong(nonce).
+                            put(value, offset, length).
+                            array();
+
+                    connection.hashCommands().hSet(chunksKey, field(i), chunk);
+                }
+
+                if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+                    connection.keyCommands().pExpire(chunksKey, ttl.toMillis());
+                } else {
+                    connection.keyCommands().persist(chunksKey);
+                }
+            } finally {
+                if (pipelined) {
+                    connection.closePipeline();
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取全部块，集群模式下逐个读取，否则管道
+     *
+     * @return 块列表，缺失的为Null
+     */
+    private byte[][] readChunks(byte[] chunksKey, int chunkCount) {
+        byte[][] result = new byte[chunkCount][];
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            if (connection instanceof RedisClusterConnection) {
+                for (int i = 0; i < chunkCount; i++) {
+                    result[i] = connection.hashCommands().hGet(chunksKey, field(i));
+                }
+                return result;
+            }
+
+            List<Object> replies;
+            connection.openPipeline();
+            try {
+                for (int i = 0; i < chunkCount; i++) {
+                    connection.hashCommands().hGet(chunksKey, field(i));
+                }
+            } finally {
+                replies = connection.closePipeline();
+            }
+
+            for (int i = 0; i < chunkCount && i < replies.size(); i++) {
+                Object reply = replies.get(i);
+                result[i] = reply instanceof byte[] ? (byte[]) reply : null;
+            }
+        }
+
+        return result;
+    }
+
+    private static byte[] chunksKey(byte[] key) {
+        byte[] result = new byte[key.length + CHUNKS_SUFFIX.length];
+        System.arraycopy(key, 0, result, 0, key.length);
+        System.arraycopy(CHUNKS_SUFFIX, 0, result, key.length, CHUNKS_SUFFIX.length);
+        return result;
+    }
+
+    private static byte[] field(int index) {
+        return Integer.toString(index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public RedisConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    public Map<String, Integer> getThresholds() {
+        return thresholds;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public long getChunkedPutCount() {
+        return chunkedPutCount.sum();
+    }
+
+    public long getChunkedGetCount() {
+        return chunkedGetCount.sum();
+    }
+
+    public long getBrokenCount() {
+        return brokenCount.sum();
+    }
+
+    /**
+     * 清单
+     */
+    private static final class Manifest {
+        /**
+         * 随机数，每个块带相同的随机数
+         */
+        private final long nonce;
+
+        /**
+         * 块数
+         */
+        private final int chunkCount;
+
+        /**
+         * 总长度，单位：字节
+         */
+        private final long totalLength;
+
+        private Manifest(long nonce, int chunkCount, long totalLength) {
+            this.nonce = nonce;
+            this.chunkCount = chunkCount;
+            this.totalLength = totalLength;
+        }
+
+        static Manifest parse(byte[] value) {
+            ByteBuffer buffer = ByteBuffer.wrap(value, MANIFEST_MAGIC.length + 1, MANIFEST_LENGTH - MANIFEST_MAGIC.length - 1);
+            return new Manifest(buffer.getLong(), buffer.getInt(), buffer.getLong());
+        }
+
+        static byte[] format(long nonce, int chunkCount, long totalLength) {
+            return ByteBuffer.allocate(MANIFEST_LENGTH).
+                    put(MANIFEST_MAGIC).
+                    put(MANIFEST_VERSION).
+                    putLong(nonce).
+                    putInt(chunkCount).
+                    putLong(totalLength).
+                    array();
+        }
+
+        /**
+         * 块属于本清单？
+         */
+        boolean matches(byte[] chunk) {
+            return chunk != null && chunk.length >= Long.BYTES && ByteBuffer.wrap(chunk).getLong() == nonce;
+        }
+
+    }
+
+}
@@ -0,0 +1,339 @@
+package io.github.changebooks.redis;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 熔断器，进程内
+ * <pre>
+ * 关闭，统计窗口内，失败率（异常或超时）达到阈值时，打开
+ * 打开，拒绝全部调用，等待一段时间后，半开
+ * 半开，同时只放行一个探测调用，成功时关闭，失败时重新打开
+ *   仅探测调用的结果改变状态，打开前已放行、之后完成的调用被忽略
+ *   放行和回调需在同一线程，调用结束时在finally中 {@link #release()}，未回调的探测视为失败
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class CircuitBreaker {
+    /**
+     * 状态
+     */
+    public enum State {
+        /**
+         * 关闭，放行全部调用
+         */
+        CLOSED,
+
+        /**
+         * 打开，拒绝全部调用
+         */
+        OPEN,
+
+        /**
+         * 半开，放行一个探测调用
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * 名称
+     */
+    private final String name;
+
+    /**
+     * 失败率阈值，如，0.5
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * 统计窗口内，最少调用数，少于时不打开
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * 超过多久视为超时，单位：纳秒
+     */
+    private long slowCallNanos = Duration.ofMillis(500).toNanos();
+
+    /**
+     * 统计窗口，单位：纳秒
+     */
+    private long windowNanos = Duration.ofSeconds(10).toNanos();
+
+    /**
+     * 打开后，多久半开，单位：纳秒
+     */
+    private long openNanos = Duration.ofSeconds(5).toNanos();
+
+    /**
+     * 当前状态
+     */
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /**
+     * 打开的时刻，单位：纳秒
+     */
+    private volatile long openedAt;
+
+    /**
+     * 半开时，执行探测调用的线程，Null时未探测
+     */
+    private final AtomicReference<Thread> probe = new AtomicReference<>();
+
+    /**
+     * 当前统计窗口的开始时刻，单位：纳秒
+     */
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    /**
+     * 当前统计窗口的调用数
+     */
+    private final AtomicInteger windowCalls = new AtomicInteger();
+
+    /**
+     * 当前统计窗口的失败数
+     */
+    private final AtomicInteger windowFailures = new AtomicInteger();
+
+    /**
+     * 被拒绝的次数
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * 打开的次数
+     */
+    private final LongAdder openedCount = new LongAdder();
+
+    /**
+     * 创建 {@link CircuitBreaker} 实例
+     *
+     * @param name 名称，如，缓存名
+     * @return {@link CircuitBreaker} 实例
+     */
+    public static CircuitBreaker create(String name) {
+        return new CircuitBreaker(name);
+    }
+
+    private CircuitBreaker(String name) {
+        Assert.hasText(name, "name can't be empty");
+
+        this.name = name;
+    }
+
+    /**
+     * 放行？
+     * 打开超过等待时间后，转为半开，放行一个探测调用
+     *
+     * @return 放行时，调用后需在同一线程回调 {@link #onSuccess(long)} 或 {@link #onFailure()}，并在finally中 {@link #release()}
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejectedCount.increment();
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+
+        if (probe.compareAndSet(null, Thread.currentThread())) {
+            return true;
+        }
+
+        rejectedCount.increment();
+        return false;
+    }
+
+    /**
+     * 调用成功
+     *
+     * @param elapsedNanos 耗时，单位：纳秒，超时视为失败
+     */
+    public void onSuccess(long elapsedNanos) {
+        if (elapsedNanos > slowCallNanos) {
+            onFailure();
+            return;
+        }
+
+        State current = state.get();
+        if (current == State.CLOSED) {
+            record(false);
+            return;
+        }
+
+        if (current == State.HALF_OPEN && isProbe()) {
+            resetWindow(System.nanoTime());
+            state.set(State.CLOSED);
+            probe.set(null);
+        }
+    }
+
+    /**
+     * 调用失败，异常或超时
+     */
+    public void onFailure() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (isProbe()) {
+                open();
+                probe.set(null);
+            }
+            return;
+        }
+
+        if (current == State.CLOSED && record(true)) {
+            open();
+        }
+    }
+
+    /**
+     * 放行的调用结束，需在finally中调用，与放行在同一线程
+     * 探测调用未回调 {@link #onSuccess(long)} 或 {@link #onFailure()} 时，如，抛出Error，视为失败，重新打开
+     * 释放探测，否则一直半开，拒绝全部调用
+     */
+    public void release() {
+        if (!isProbe()) {
+            return;
+        }
+
+        if (state.get() == State.HALF_OPEN) {
+            open();
+        }
+        probe.set(null);
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param failure 失败？
+     * @return 达到打开的条件？
+     */
+    private boolean record(boolean failure) {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start > windowNanos && windowStart.compareAndSet(start, now)) {
+            windowCalls.set(0);
+            windowFailures.set(0);
+        }
+
+        int calls = windowCalls.incrementAndGet();
+        int failures = failure ? windowFailures.incrementAndGet() : windowFailures.get();
+
+        return failure && calls >= minimumCalls && failures >= calls * failureRateThreshold;
+    }
+
+    /**
+     * 当前线程执行探测调用？
+     */
+    private boolean isProbe() {
+        return probe.get() == Thread.currentThread();
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        if (state.getAndSet(State.OPEN) != State.OPEN) {
+            openedCount.increment();
+        }
+    }
+
+    private void resetWindow(long now) {
+        windowStart.set(now);
+        windowCalls.set(0);
+        windowFailures.set(0);
+    }
+
+    /**
+     * 当前统计窗口的失败率
+     *
+     * @return 失败数 / 调用数
+     */
+    public double getFailureRate() {
+        int calls = windowCalls.get();
+        return calls > 0 ? (double) windowFailures.get() / calls : 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public CircuitBreaker setFailureRateThreshold(double failureRateThreshold) {
+        Assert.isTrue(failureRateThreshold > 0 && failureRateThreshold <= 1, "failureRateThreshold must be between 0 and 1");
+
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public CircuitBreaker setMinimumCalls(int minimumCalls) {
+        Assert.isTrue(minimumCalls > 0, "minimumCalls must be greater than 0");
+
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    public Duration getSlowCallThreshold() {
+        return Duration.ofNanos(slowCallNanos);
+    }
+
+    public CircuitBreaker setSlowCallThreshold(Duration slowCallThreshold) {
+        Assert.isTrue(slowCallThreshold != null && !slowCallThreshold.isNegative() && !slowCallThreshold.isZero(),
+                "slowCallThreshold must be greater than 0");
+
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        return this;
+    }
+
+    public Duration getWindow() {
+        return Duration.ofNanos(windowNanos);
+    }
+
+    public CircuitBreaker setWindow(Duration window) {
+        Assert.isTrue(window != null && !window.isNegative() && !window.isZero(), "window must be greater than 0");
+
+        this.windowNanos = window.toNanos();
+        return this;
+    }
+
+    public Duration getOpenDuration() {
+        return Duration.ofNanos(openNanos);
+    }
+
+    public CircuitBreaker setOpenDuration(Duration openDuration) {
+        Assert.isTrue(openDuration != null && !openDuration.isNegative() && !openDuration.isZero(),
+                "openDuration must be greater than 0");
+
+        this.openNanos = openDuration.toNanos();
+        return this;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getOpenedCount() {
+        return openedCount.sum();
+    }
+
+}
@@ -0,0 +1,228 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 熔断，Redis故障时，跳过缓存，直接计算
+ * <pre>
+ * 每次访问被装饰的缓存，记录耗时和异常到 {@link CircuitBreaker}
+ * {@link #get(Object, Callable)} 的耗时不含计算函数，计算慢不视为Redis超时
+ * 熔断打开时，读取视为未命中，{@link #get(Object, Callable)} 直接计算，写入跳过
+ * 熔断打开时，删除和清空抛出 {@link CircuitOpenException}，交给 CacheErrorHandler，不静默丢弃
+ * 熔断打开后，每隔一段时间放行一次访问，探测Redis是否恢复
+ * 熔断打开时的日志，按间隔限流
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class CircuitBreakerCache extends CacheDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakerCache.class);
+
+    /**
+     * 熔断器
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * 日志限流
+     */
+    private final LogRateLimiter logRateLimiter;
+
+    /**
+     * 创建 {@link CircuitBreakerCache} 实例
+     *
+     * @param delegate       被装饰的缓存
+     * @param circuitBreaker 熔断器
+     * @param logRateLimiter 熔断打开时的日志限流
+     */
+    public CircuitBreakerCache(Cache delegate, CircuitBreaker circuitBreaker, LogRateLimiter logRateLimiter) {
+        super(delegate);
+
+        Assert.notNull(circuitBreaker, "circuitBreaker can't be null");
+        Assert.notNull(logRateLimiter, "logRateLimiter can't be null");
+
+        this.circuitBreaker = circuitBreaker;
+        this.logRateLimiter = logRateLimiter;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return execute("get", () -> super.get(key), null);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return execute("get", () -> super.get(key, type), null);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        if (!acquire("get")) {
+            try {
+                return valueLoader.call();
+            } catch (Exception ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+        }
+
+        // 计算函数的耗时，从总耗时中减去
+        LongAdder loaderNanos = new LongAdder();
+        Callable<T> timedLoader = () -> {
+            long loadStartTime = System.nanoTime();
+            try {
+                return valueLoader.call();
+            } finally {
+                loaderNanos.add(System.nanoTime() - loadStartTime);
+            }
+        };
+
+        long startTime = System.nanoTime();
+        try {
+            T result = super.get(key, timedLoader);
+            circuitBreaker.onSuccess(System.nanoTime() - startTime - loaderNanos.sum());
+            return result;
+        } catch (ValueRetrievalException ex) {
+            // 计算失败，不是Redis故障
+            circuitBreaker.onSuccess(0);
+            throw ex;
+        } catch (RuntimeException ex) {
+            circuitBreaker.onFailure();
+            throw ex;
+        } finally {
+            circuitBreaker.release();
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        execute("put", () -> {
+            super.put(key, value);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return execute("putIfAbsent", () -> super.putIfAbsent(key, value), null);
+    }
+
+    @Override
+    public <K, V> Map<K, V> getAll(Collection<K> keys) {
+        return execute("getAll", () -> super.getAll(keys), Collections.emptyMap());
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        execute("putAll", () -> {
+            super.putAll(values);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void evict(Object key) {
+        executeRequired("evict", () -> {
+            super.evict(key);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return executeRequired("evict", () -> super.evictIfPresent(key));
+    }
+
+    @Override
+    public void clear() {
+        executeRequired("clear", () -> {
+            super.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean invalidate() {
+        return executeRequired("clear", super::invalidate);
+    }
+
+    /**
+     * 熔断关闭时访问缓存，并记录结果
+     *
+     * @param operation    操作名
+     * @param action       访问缓存
+     * @param defaultValue 熔断打开时的返回值
+     * @param <T>          返回值的类型
+     * @return 访问结果
+     */
+    private <T> T execute(String operation, Supplier<T> action, T defaultValue) {
+        if (!acquire(operation)) {
+            return defaultValue;
+        }
+
+        return call(action);
+    }
+
+    /**
+     * 熔断关闭时访问缓存，并记录结果，熔断打开时抛出异常
+     *
+     * @param operation 操作名
+     * @param action    访问缓存
+     * @param <T>       返回值的类型
+     * @return 访问结果
+     * @throws CircuitOpenException 熔断打开
+     */
+    private <T> T executeRequired(String operation, Supplier<T> action) {
+        if (!acquire(operation)) {
+            throw new CircuitOpenException("circuit open, " + operation + " rejected", getName());
+        }
+
+        return call(action);
+    }
+
+    /**
+     * 访问缓存，并记录结果
+     */
+    private <T> T call(Supplier<T> action) {
+        long startTime = System.nanoTime();
+        try {
+            T result = action.get();
+            circuitBreaker.onSuccess(System.nanoTime() - startTime);
+            return result;
+        } catch (RuntimeException ex) {
+            circuitBreaker.onFailure();
+            throw ex;
+        } finally {
+            circuitBreaker.release();
+        }
+    }
+
+    private boolean acquire(String operation) {
+        if (circuitBreaker.tryAcquire()) {
+            return true;
+        }
+
+        long suppressed = logRateLimiter.tryAcquire(getName() + ":" + operation);
+        if (suppressed >= 0) {
+            LOGGER.warn("circuit open, skip cache, cacheName: {}, operation: {}, suppressed: {}",
+                    getName(), operation, suppressed);
+        }
+
+        return false;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+}
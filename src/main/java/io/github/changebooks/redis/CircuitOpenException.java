@@ -0,0 +1,25 @@
+package io.github.changebooks.redis;
+
+/**
+ * 熔断打开，删除或清空未执行
+ * 不能跳过，否则Redis中保留旧值，由 {@link org.springframework.cache.interceptor.CacheErrorHandler} 处理
+ *
+ * @author changebooks@qq.com
+ * @see CircuitBreakerCache
+ */
+public class CircuitOpenException extends RuntimeException {
+    /**
+     * 缓存名
+     */
+    private final String name;
+
+    public CircuitOpenException(String message, String name) {
+        super(message + ", name: " + name);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
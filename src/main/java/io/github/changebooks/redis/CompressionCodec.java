@@ -0,0 +1,34 @@
+package io.github.changebooks.redis;
+
+/**
+ * 压缩算法
+ * 如，{@link DeflateCodec}，或更快的第三方算法（LZ4、Zstd等）
+ *
+ * @author changebooks@qq.com
+ */
+public interface CompressionCodec {
+    /**
+     * 算法标记，写入压缩头之后
+     * 同一个缓存的读写，标记需一致
+     *
+     * @return 算法标记
+     */
+    byte id();
+
+    /**
+     * 压缩
+     *
+     * @param bytes 原内容
+     * @return 压缩后的内容
+     */
+    byte[] compress(byte[] bytes);
+
+    /**
+     * 解压
+     *
+     * @param bytes 压缩后的内容
+     * @return 原内容
+     */
+    byte[] decompress(byte[] bytes);
+
+}
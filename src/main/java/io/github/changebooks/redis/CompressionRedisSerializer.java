@@ -0,0 +1,260 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 序列化缓存value，超过阈值时压缩
+ * <pre>
+ * 已压缩的内容 = 压缩头 {@link #MAGIC} + {@link CompressionCodec#id()} + 压缩后的内容
+ * 未超过阈值或压缩无收益时，原样写入，不加压缩头，关闭压缩后依然可读
+ * 不以压缩头开头，或解压失败时，视为未压缩，原样交给被装饰的序列化，兼容开启压缩前写入的缓存
+ * </pre>
+ *
+ * @param <T> 缓存value的类型
+ * @author changebooks@qq.com
+ */
+public class CompressionRedisSerializer<T> implements RedisSerializer<T> {
+    /**
+     * 压缩头，首字节0，不是json、Smile和 {@link BinaryRedisSerializer} 的首字节
+     */
+    public static final byte[] MAGIC = {0x00, 'C', 'M', 'P'};
+
+    /**
+     * 压缩头和算法标记的总长度
+     */
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    /**
+     * 被装饰的序列化
+     */
+    private final RedisSerializer<T> delegate;
+
+    /**
+     * 压缩算法
+     */
+    private final CompressionCodec codec;
+
+    /**
+     * 压缩阈值，单位：字节，小于阈值时不压缩
+     */
+    private final int threshold;
+
+    /**
+     * 内置的Deflate，读取时始终可解压
+     */
+    private final DeflateCodec deflateCodec = new DeflateCodec();
+
+    /**
+     * 尝试压缩次数，含压缩无收益的
+     */
+    private final LongAdder compressCount = new LongAdder();
+
+    /**
+     * 压缩无收益，原样写入的次数
+     */
+    private final LongAdder incompressibleCount = new LongAdder();
+
+    /**
+     * 尝试压缩的，压缩前的总字节数
+     */
+    private final LongAdder uncompressedBytes = new LongAdder();
+
+    /**
+     * 尝试压缩的，写入的总字节数，压缩无收益时为原字节数
+     */
+    private final LongAdder compressedBytes = new LongAdder();
+
+    /**
+     * 解压失败，视为未压缩的次数
+     */
+    private final LongAdder decompressErrorCount = new LongAdder();
+
+    /**
+     * 压缩总耗时，单位：纳秒
+     */
+    private final LongAdder compressNanos = new LongAdder();
+
+    /**
+     * 已解压次数
+     */
+    private final LongAdder decompressCount = new LongAdder();
+
+    /**
+     * 解压总耗时，单位：纳秒
+     */
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public CompressionRedisSerializer(RedisSerializer<T> delegate, int threshold) {
+        this(delegate, new DeflateCodec(), threshold);
+    }
+
+    public CompressionRedisSerializer(RedisSerializer<T> delegate, CompressionCodec codec, int threshold) {
+        Assert.notNull(delegate, "delegate can't be null");
+        Assert.notNull(codec, "codec can't be null");
+        Assert.isTrue(threshold >= 0, "threshold can't be less than 0");
+
+        this.delegate = delegate;
+        this.codec = codec;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes == null || bytes.length == 0) {
+            return bytes;
+        }
+
+        if (bytes.length < threshold) {
+            return bytes;
+        }
+
+        long startTime = System.nanoTime();
+        byte[] compressed = codec.compress(bytes);
+        compressNanos.add(System.nanoTime() - startTime);
+        compressCount.increment();
+        uncompressedBytes.add(bytes.length);
+
+        if (compressed.length + HEADER_LENGTH >= bytes.length) {
+            // 压缩无收益
+            incompressibleCount.increment();
+            compressedBytes.add(bytes.length);
+            return bytes;
+        }
+
+        compressedBytes.add(compressed.length + HEADER_LENGTH);
+        return tagged(codec.id(), compressed);
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return delegate.deserialize(bytes);
+        }
+
+        if (!isCompressed(bytes)) {
+            // 未压缩，或开启压缩前写入的
+            return delegate.deserialize(bytes);
+        }
+
+        byte tag = bytes[MAGIC.length];
+        CompressionCodec chosenCodec;
+        if (tag == codec.id()) {
+            chosenCodec = codec;
+        } else if (tag == DeflateCodec.ID) {
+            chosenCodec = deflateCodec;
+        } else {
+            return delegate.deserialize(bytes);
+        }
+
+        byte[] decompressed;
+        long startTime = System.nanoTime();
+        try {
+            decompressed = chosenCodec.decompress(Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length));
+        } catch (RuntimeException e) {
+            // 恰好以压缩头开头的未压缩内容
+            decompressErrorCount.increment();
+            return delegate.deserialize(bytes);
+        }
+
+        decompressNanos.add(System.nanoTime() - startTime);
+        decompressCount.increment();
+
+        return delegate.deserialize(decompressed);
+    }
+
+    /**
+     * 以压缩头开头？
+     *
+     * @param bytes 缓存value
+     * @return 以压缩头开头，且有算法标记？
+     */
+    public static boolean isCompressed(byte[] bytes) {
+        if (bytes == null || bytes.length <= HEADER_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 写入压缩头和算法标记
+     *
+     * @param tag     算法标记
+     * @param payload 压缩后的内容
+     * @return 压缩头 + 算法标记 + 压缩后的内容
+     */
+    private static byte[] tagged(byte tag, byte[] payload) {
+        byte[] result = new byte[payload.length + HEADER_LENGTH];
+        System.arraycopy(MAGIC, 0, result, 0, MAGIC.length);
+        result[MAGIC.length] = tag;
+        System.arraycopy(payload, 0, result, HEADER_LENGTH, payload.length);
+        return result;
+    }
+
+    /**
+     * 压缩率，含压缩无收益的
+     *
+     * @return 写入的总字节数 / 压缩前的总字节数，未尝试压缩时返回1
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.sum();
+        return uncompressed > 0 ? (double) compressedBytes.sum() / uncompressed : 1;
+    }
+
+    public RedisSerializer<T> getDelegate() {
+        return delegate;
+    }
+
+    public CompressionCodec getCodec() {
+        return codec;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public long getCompressCount() {
+        return compressCount.sum();
+    }
+
+    public long getIncompressibleCount() {
+        return incompressibleCount.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    public long getDecompressCount() {
+        return decompressCount.sum();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+
+    public long getDecompressErrorCount() {
+        return decompressErrorCount.sum();
+    }
+
+}
@@ -0,0 +1,317 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式限流（并发数）
+ * 同时持有许可数，不超过n个
+ * <pre>
+ * 持有者存于有序集合，分值为租约到期时间
+ * 获取和归还许可，各一次脚本调用
+ * 租约已过期的持有者，在每次脚本调用时清理
+ * 租约时间取Redis服务端时间，不受客户端时钟偏差影响
+ * 本实例持有的许可，通过 {@link TimeoutScheduler} 批量续期
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class ConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    /**
+     * 默认的令牌拼接符
+     * 拼接许可id，如，"客户端id-实例id-序号"
+     */
+    private static final String SEPARATOR = "-";
+
+    /**
+     * 获取许可，脚本路径
+     */
+    private static final String ACQUIRE_SCRIPT_PATH = "concurrency-limiter-acquire.lua";
+
+    /**
+     * 归还许可，脚本路径
+     */
+    private static final String RELEASE_SCRIPT_PATH = "concurrency-limiter-release.lua";
+
+    /**
+     * 批量续期，脚本路径
+     */
+    private static final String RENEWAL_SCRIPT_PATH = "concurrency-limiter-renewal.lua";
+
+    /**
+     * 获取许可，脚本命令
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = script(ACQUIRE_SCRIPT_PATH, Long.class);
+
+    /**
+     * 归还许可，脚本命令
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = script(RELEASE_SCRIPT_PATH, Long.class);
+
+    /**
+     * 批量续期，脚本命令
+     */
+    private static final DefaultRedisScript<List> RENEWAL_SCRIPT = script(RENEWAL_SCRIPT_PATH, List.class);
+
+    /**
+     * 名称
+     */
+    private final String name;
+
+    /**
+     * 最大并发数
+     */
+    private int maxConcurrency;
+
+    /**
+     * 许可id的前缀，如，客户端id
+     */
+    private String token;
+
+    /**
+     * keys = [name]
+     */
+    private final List<String> keys;
+
+    /**
+     * 实例id，多个进程使用同一个客户端id时，许可id不重复
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 许可id的序号
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 本实例持有的许可
+     */
+    private final Set<String> permits = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 定时续期中？
+     */
+    private final AtomicBoolean renewing = new AtomicBoolean();
+
+    /**
+     * {@link StringRedisTemplate}
+     */
+    private final StringRedisTemplate template;
+
+    /**
+     * 创建 {@link ConcurrencyLimiter} 实例
+     *
+     * @param template       {@link StringRedisTemplate} 实例
+     * @param name           名称
+     * @param token          许可id的前缀，如，客户端id
+     * @param maxConcurrency 最大并发数
+     * @return {@link ConcurrencyLimiter} 实例
+     */
+    public static ConcurrencyLimiter create(StringRedisTemplate template, String name, String token, int maxConcurrency) {
+        return new ConcurrencyLimiter(template, name).
+                setToken(token).
+                setMaxConcurrency(maxConcurrency);
+    }
+
+    private ConcurrencyLimiter(StringRedisTemplate template, String name) {
+        Assert.notNull(template, "template can't be null");
+        Assert.hasText(name, "name can't be empty");
+
+        this.template = template;
+        this.name = name;
+        this.keys = Collections.singletonList(name);
+    }
+
+    /**
+     * 获取许可
+     *
+     * @param leaseTime 租约时长，到期未续期，许可自动归还
+     * @param timeUnit  租约时长的单位
+     * @return 许可id，未得到许可时返回Null
+     */
+    public String acquire(long leaseTime, TimeUnit timeUnit) {
+        Assert.isTrue(leaseTime > 0, "leaseTime must be greater than 0");
+
+        String permit = getToken() + SEPARATOR + instanceId + SEPARATOR + sequence.incrementAndGet();
+        String arg1 = String.valueOf(maxConcurrency);
+        String arg2 = String.valueOf(timeUnit.toMillis(leaseTime));
+
+        // 最大并发数、租约时长（毫秒）、许可id
+        Long result = template.execute(ACQUIRE_SCRIPT, keys, arg1, arg2, permit);
+        if (result != null && result > 0) {
+            permits.add(permit);
+            return permit;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * 归还许可
+     *
+     * @param permit 许可id
+     * @return 归还成功？租约已过期时返回false
+     */
+    public boolean release(String permit) {
+        if (permit == null) {
+            return false;
+        }
+
+        permits.remove(permit);
+
+        // 许可id
+        Long result = template.execute(RELEASE_SCRIPT, keys, permit);
+        return result != null && result > 0;
+    }
+
+    /**
+     * 批量续期，本实例持有的全部许可
+     *
+     * @param leaseTime 租约时长
+     * @param timeUnit  租约时长的单位
+     * @return 已续期许可数
+     */
+    public long renewal(long leaseTime, TimeUnit timeUnit) {
+        Assert.isTrue(leaseTime > 0, "leaseTime must be greater than 0");
+
+        List<String> heldPermits = new ArrayList<>(permits);
+        if (heldPermits.isEmpty()) {
+            return 0;
+        }
+
+        Object[] args = new Object[heldPermits.size() + 1];
+        args[0] = String.valueOf(timeUnit.toMillis(leaseTime));
+        for (int i = 0; i < heldPermits.size(); i++) {
+            args[i + 1] = heldPermits.get(i);
+        }
+
+        // 租约时长（毫秒）、许可id列表，返回已丢失的许可
+        List<?> lostPermits = template.execute(RENEWAL_SCRIPT, keys, args);
+        int lost = lostPermits != null ? lostPermits.size() : 0;
+        long renewed = heldPermits.size() - lost;
+
+        if (lost > 0) {
+            // 租约已过期的许可，不再续期
+            LOGGER.warn("renewal lost permits, name: {}, held: {}, renewed: {}", name, heldPermits.size(), renewed);
+            permits.removeAll(lostPermits);
+        }
+
+        return renewed;
+    }
+
+    /**
+     * 定时批量续期
+     * 本实例不再持有许可时，停止续期，下次获取许可后需重新开启
+     *
+     * @param delayTime 延迟时间
+     * @param leaseTime 租约时长
+     * @param timeUnit  时间单位
+     * @see TimeoutScheduler
+     */
+    public void scheduleRenewal(long delayTime, long leaseTime, TimeUnit timeUnit) {
+        Assert.isTrue(delayTime > 0, "delayTime must be greater than 0");
+        Assert.isTrue(leaseTime > 0, "leaseTime must be greater than 0");
+
+        if (!renewing.compareAndSet(false, true)) {
+            return;
+        }
+
+        TimeoutScheduler.newTimeout(timeout -> {
+            long renewed = 0;
+            try {
+                renewed = renewal(leaseTime, timeUnit);
+            } catch (RuntimeException ex) {
+                LOGGER.error("scheduleRenewal failed, name: {}, throwable: ", name, ex);
+            } finally {
+                renewing.set(false);
+            }
+
+            if (renewed > 0 || !permits.isEmpty()) {
+                scheduleRenewal(delayTime, leaseTime, timeUnit);
+                LOGGER.debug("scheduleRenewal start, name: {}, renewed: {}", name, renewed);
+            } else {
+                LOGGER.debug("scheduleRenewal stop, name: {}", name);
+            }
+        }, delayTime, timeUnit);
+    }
+
+    /**
+     * 加载脚本
+     *
+     * @param scriptPath 脚本路径
+     * @param resultType 返回值的类型
+     * @param <T>        返回值的类型
+     * @return 脚本命令
+     */
+    private static <T> DefaultRedisScript<T> script(String scriptPath, Class<T> resultType) {
+        ClassPathResource pathResource = new ClassPathResource(scriptPath);
+        ResourceScriptSource scriptSource = new ResourceScriptSource(pathResource);
+
+        DefaultRedisScript<T> result = new DefaultRedisScript<>();
+        result.setResultType(resultType);
+        result.setScriptSource(scriptSource);
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public ConcurrencyLimiter setMaxConcurrency(int maxConcurrency) {
+        Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be greater than 0");
+
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public ConcurrencyLimiter setToken(String token) {
+        Assert.hasText(token, "token can't be empty");
+
+        this.token = token;
+        return this;
+    }
+
+    /**
+     * 本实例持有的许可数
+     *
+     * @return 持有的许可数
+     */
+    public int getHeldPermits() {
+        return permits.size();
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public StringRedisTemplate getTemplate() {
+        return template;
+    }
+
+}
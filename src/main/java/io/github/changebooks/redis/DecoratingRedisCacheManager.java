@@ -0,0 +1,81 @@
+package io.github.changebooks.redis;
+
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 装饰缓存的 {@link RedisCacheManager}
+ * 创建 {@link ExtendedRedisCache} 实例，先经过装饰函数，再按需包装事务
+ *
+ * @author changebooks@qq.com
+ */
+public class DecoratingRedisCacheManager extends RedisCacheManager {
+    /**
+     * 装饰函数，入参为 {@link org.springframework.data.redis.cache.RedisCache} 实例
+     */
+    private final UnaryOperator<Cache> decorator;
+
+    /**
+     * 写缓存
+     */
+    private final RedisCacheWriter cacheWriter;
+
+    /**
+     * 连接工厂，批量读写
+     */
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * 默认的缓存配置
+     */
+    private final RedisCacheConfiguration defaultCacheConfiguration;
+
+    public DecoratingRedisCacheManager(RedisCacheWriter cacheWriter,
+                                       RedisConnectionFactory connectionFactory,
+                                       RedisCacheConfiguration defaultCacheConfiguration,
+                                       Map<String, RedisCacheConfiguration> initialCacheConfigurations,
+                                       boolean allowInFlightCacheCreation,
+                                       UnaryOperator<Cache> decorator) {
+        super(cacheWriter, defaultCacheConfiguration, initialCacheConfigurations, allowInFlightCacheCreation);
+
+        Assert.notNull(connectionFactory, "connectionFactory can't be null");
+        Assert.notNull(decorator, "decorator can't be null");
+
+        this.cacheWriter = cacheWriter;
+        this.connectionFactory = connectionFactory;
+        this.defaultCacheConfiguration = defaultCacheConfiguration;
+        this.decorator = decorator;
+    }
+
+    @Override
+    protected RedisCache createRedisCache(String name, RedisCacheConfiguration cacheConfig) {
+        RedisCacheConfiguration chosenCacheConfig = cacheConfig != null ? cacheConfig : defaultCacheConfiguration;
+        return new ExtendedRedisCache(name, cacheWriter, chosenCacheConfig, connectionFactory);
+    }
+
+    @Override
+    protected Cache decorateCache(Cache cache) {
+        return super.decorateCache(decorator.apply(cache));
+    }
+
+    public UnaryOperator<Cache> getDecorator() {
+        return decorator;
+    }
+
+    public RedisCacheWriter getCacheWriter() {
+        return cacheWriter;
+    }
+
+    public RedisConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+}
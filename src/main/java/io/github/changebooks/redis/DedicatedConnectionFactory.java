@@ -0,0 +1,81 @@
+package io.github.changebooks.redis;
+
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisSocketConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 控制面的专用连接工厂，如，分布式锁、分布式限流、跨进程通知
+ * <pre>
+ * 与缓存读写的连接工厂分开，大值读写不排在小命令之前
+ * 同一个Redis地址和客户端配置，共享一个原生连接，Lettuce自动流水线
+ * 显式管道时，关闭管道才发送，减少系统调用
+ * 支持单机（含数据库）、Unix域套接字、哨兵、集群，复制其配置和客户端配置
+ * 不支持静态主从（RedisStaticMasterReplicaConfiguration），连接工厂未公开其配置，创建时抛出异常
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class DedicatedConnectionFactory {
+
+    private DedicatedConnectionFactory() {
+    }
+
+    /**
+     * 按已有的连接工厂，创建专用连接工厂，并初始化
+     * 不再使用时，需调用 {@link LettuceConnectionFactory#destroy()}
+     *
+     * @param source 已有的连接工厂，如，缓存读写的连接工厂，需已初始化
+     * @return 初始化后的 {@link LettuceConnectionFactory} 实例
+     * @throws IllegalArgumentException 不支持的配置，如，静态主从
+     */
+    public static LettuceConnectionFactory create(LettuceConnectionFactory source) {
+        Assert.notNull(source, "source can't be null");
+
+        RedisConfiguration configuration;
+        RedisSocketConfiguration socketConfiguration = source.getSocketConfiguration();
+        if (source.isClusterAware()) {
+            configuration = source.getClusterConfiguration();
+        } else if (source.isRedisSentinelAware()) {
+            configuration = source.getSentinelConfiguration();
+        } else if (socketConfiguration != null) {
+            configuration = socketConfiguration;
+        } else {
+            // 静态主从时，单机配置为默认值，不是实际的地址
+            Assert.isTrue(!isMasterReplica(source), "static master/replica is not supported");
+            configuration = source.getStandaloneConfiguration();
+        }
+
+        LettuceConnectionFactory result = new LettuceConnectionFactory(configuration, source.getClientConfiguration());
+        result.setShareNativeConnection(true);
+        result.setPipeliningFlushPolicy(LettuceConnection.PipeliningFlushPolicy.flushOnClose());
+        result.afterPropertiesSet();
+
+        return result;
+    }
+
+    /**
+     * 静态主从？连接工厂未公开配置，按原生连接的类型判断
+     *
+     * @param source 已有的连接工厂
+     * @return 静态主从？
+     */
+    private static boolean isMasterReplica(LettuceConnectionFactory source) {
+        try (RedisConnection connection = source.getConnection()) {
+            Object nativeConnection = connection.getNativeConnection();
+            if (!(nativeConnection instanceof RedisAsyncCommands)) {
+                return false;
+            }
+
+            StatefulConnection<?, ?> statefulConnection = ((RedisAsyncCommands<?, ?>) nativeConnection).getStatefulConnection();
+            return statefulConnection instanceof StatefulRedisMasterReplicaConnection;
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 压缩算法，JDK自带的Deflate
+ *
+ * @author changebooks@qq.com
+ */
+public final class DeflateCodec implements CompressionCodec {
+    /**
+     * 算法标记
+     */
+    public static final byte ID = 0x01;
+
+    /**
+     * 缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 压缩级别，{@link Deflater#BEST_SPEED} ~ {@link Deflater#BEST_COMPRESSION}
+     */
+    private final int level;
+
+    public DeflateCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    public DeflateCodec(int level) {
+        Assert.isTrue(level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION,
+                "level must be between 1 and 9");
+
+        this.level = level;
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("decompress failed, truncated input");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException ex) {
+            throw new SerializationException("decompress failed", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.changebooks.redis;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Method;
+
+/**
+ * 匹配 {@link DistributedLock}、{@link RateLimited}、{@link TokenBucketLimited} 注解的方法
+ * <pre>
+ * 注册为Bean，由自动代理创建
+ * 只开启了缓存注解（无aop starter）时，需声明为基础设施Bean，@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+ * 与事务注解一起使用时，应先加锁再开启事务，{@link #setOrder(int)} 小于事务的顺序
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see DistributedAnnotationInterceptor
+ */
+public class DistributedAnnotationAdvisor extends AbstractPointcutAdvisor {
+    /**
+     * 匹配注解的方法
+     */
+    private final Pointcut pointcut = new StaticMethodMatcherPointcut() {
+        @Override
+        public boolean matches(@NonNull Method method, @NonNull Class<?> targetClass) {
+            Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+            return isAnnotated(specificMethod) || (specificMethod != method && isAnnotated(method));
+        }
+    };
+
+    /**
+     * 处理注解
+     */
+    private final DistributedAnnotationInterceptor interceptor;
+
+    public DistributedAnnotationAdvisor(CacheDistributedSupport cacheDistributedSupport, String token) {
+        this(new DistributedAnnotationInterceptor(cacheDistributedSupport, token));
+    }
+
+    public DistributedAnnotationAdvisor(DistributedAnnotationInterceptor interceptor) {
+        Assert.notNull(interceptor, "interceptor can't be null");
+        this.interceptor = interceptor;
+    }
+
+    @NonNull
+    @Override
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+    @NonNull
+    @Override
+    public Advice getAdvice() {
+        return interceptor;
+    }
+
+    private static boolean isAnnotated(Method method) {
+        return AnnotatedElementUtils.hasAnnotation(method, DistributedLock.class) ||
+                AnnotatedElementUtils.hasAnnotation(method, RateLimited.class) ||
+                AnnotatedElementUtils.hasAnnotation(method, TokenBucketLimited.class);
+    }
+
+}
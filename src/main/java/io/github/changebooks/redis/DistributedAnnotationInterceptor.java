@@ -0,0 +1,371 @@
+package io.github.changebooks.redis;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理 {@link DistributedLock}、{@link RateLimited}、{@link TokenBucketLimited}
+ * <pre>
+ * 每个方法只查找一次注解，只解析一次key，SpEL混合编译模式，多次执行后编译为字节码
+ * 按锁名或缓存名，缓存 {@link CacheLock}、{@link RateLimiter}、{@link TokenBucket} 实例，有界，有过期时间
+ * 同一个方法有多个注解时，先限流，再加锁
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see DistributedAnnotationAdvisor
+ */
+public class DistributedAnnotationInterceptor implements MethodInterceptor {
+    /**
+     * 锁名或缓存名，与key的值的拼接符
+     */
+    private static final String SEPARATOR = ":";
+
+    /**
+     * 默认的实例缓存的最大数量
+     */
+    public static final int MAXIMUM_SIZE = 10000;
+
+    /**
+     * 默认的实例缓存的过期时间
+     */
+    public static final Duration TTL = Duration.ofMinutes(10);
+
+    /**
+     * 等待加锁时，重试的间隔，单位：毫秒
+     */
+    private static final long RETRY_INTERVAL_MILLIS = 50;
+
+    /**
+     * SpEL解析器
+     */
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, DistributedAnnotationInterceptor.class.getClassLoader()));
+
+    /**
+     * 参数名
+     */
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 创建实例
+     */
+    private final CacheDistributedSupport cacheDistributedSupport;
+
+    /**
+     * 解锁和续期的令牌，如，客户端id
+     */
+    private final String token;
+
+    /**
+     * [ 方法 : 注解和解析后的key ]
+     */
+    private final Map<MethodClassKey, AnnotatedMethod> annotatedMethods = new ConcurrentHashMap<>();
+
+    /**
+     * [ 锁名 : 分布式锁 ]
+     */
+    private final LocalCache<String, CacheLock> cacheLocks;
+
+    /**
+     * [ 缓存名 : 分布式限流（固定时间窗口） ]
+     */
+    private final LocalCache<String, RateLimiter> rateLimiters;
+
+    /**
+     * [ 缓存名 : 分布式限流（令牌桶） ]
+     */
+    private final LocalCache<String, TokenBucket> tokenBuckets;
+
+    public DistributedAnnotationInterceptor(CacheDistributedSupport cacheDistributedSupport, String token) {
+        this(cacheDistributedSupport, token, MAXIMUM_SIZE, TTL);
+    }
+
+    /**
+     * 创建 {@link DistributedAnnotationInterceptor} 实例
+     *
+     * @param cacheDistributedSupport 创建锁和限流的实例
+     * @param token                   解锁和续期的令牌，如，客户端id
+     * @param maximumSize             每种实例缓存的最大数量，key含业务id时，按并发的业务id数设置
+     * @param ttl                     实例缓存的过期时间
+     */
+    public DistributedAnnotationInterceptor(CacheDistributedSupport cacheDistributedSupport, String token,
+                                            int maximumSize, Duration ttl) {
+        Assert.notNull(cacheDistributedSupport, "cacheDistributedSupport can't be null");
+        Assert.hasText(token, "token can't be empty");
+
+        this.cacheDistributedSupport = cacheDistributedSupport;
+        this.token = token;
+        this.cacheLocks = new LocalCache<>(maximumSize, ttl);
+        this.rateLimiters = new LocalCache<>(maximumSize, ttl);
+        this.tokenBuckets = new LocalCache<>(maximumSize, ttl);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        AnnotatedMethod annotatedMethod = annotatedMethod(invocation);
+        if (annotatedMethod.isEmpty()) {
+            return invocation.proceed();
+        }
+
+        EvaluationContext context = annotatedMethod.hasExpression() ? annotatedMethod.evaluationContext(invocation.getArguments()) : null;
+
+        RateLimited rateLimited = annotatedMethod.rateLimited;
+        if (rateLimited != null) {
+            String name = name(rateLimited.name(), annotatedMethod.rateLimitedKey, context);
+            Boolean granted = rateLimiter(name, rateLimited).acquire();
+            if (granted == null || !granted) {
+                throw new AcquireRejectedException("rate limited", name);
+            }
+        }
+
+        TokenBucketLimited tokenBucketLimited = annotatedMethod.tokenBucketLimited;
+        if (tokenBucketLimited != null) {
+            String name = name(tokenBucketLimited.name(), annotatedMethod.tokenBucketLimitedKey, context);
+            if (!tokenBucket(name, tokenBucketLimited).tryAcquire(tokenBucketLimited.permits())) {
+                throw new AcquireRejectedException("token bucket limited", name);
+            }
+        }
+
+        DistributedLock distributedLock = annotatedMethod.distributedLock;
+        if (distributedLock == null) {
+            return invocation.proceed();
+        }
+
+        String name = name(distributedLock.name(), annotatedMethod.distributedLockKey, context);
+        CacheLock cacheLock = cacheLock(name);
+        long threadId = Thread.currentThread().getId();
+
+        if (!lock(cacheLock, threadId, distributedLock)) {
+            throw new AcquireRejectedException("lock failed", name);
+        }
+
+        try {
+            if (distributedLock.renewal()) {
+                long expirationMillis = distributedLock.timeUnit().toMillis(distributedLock.expirationTime());
+                long delayMillis = expirationMillis / 3;
+                if (delayMillis > 0) {
+                    cacheLock.scheduleRenewal(threadId, delayMillis, expirationMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            return invocation.proceed();
+        } finally {
+            // 同时取消续期
+            cacheLock.unlock(threadId);
+        }
+    }
+
+    /**
+     * 加锁，等待时间内，间隔重试
+     *
+     * @param cacheLock       分布式锁
+     * @param threadId        线程id
+     * @param distributedLock 注解
+     * @return 加锁成功？
+     * @throws InterruptedException 等待时被中断
+     */
+    private static boolean lock(CacheLock cacheLock, long threadId, DistributedLock distributedLock) throws InterruptedException {
+        long expirationTime = distributedLock.expirationTime();
+        TimeUnit timeUnit = distributedLock.timeUnit();
+
+        Boolean locked = cacheLock.lock(threadId, expirationTime, timeUnit);
+        if (locked != null && locked) {
+            return true;
+        }
+
+        long waitNanos = timeUnit.toNanos(distributedLock.waitTime());
+        if (waitNanos <= 0) {
+            return false;
+        }
+
+        long deadline = System.nanoTime() + waitNanos;
+        long remainingNanos;
+        while ((remainingNanos = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(RETRY_INTERVAL_MILLIS)));
+
+            locked = cacheLock.lock(threadId, expirationTime, timeUnit);
+            if (locked != null && locked) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private AnnotatedMethod annotatedMethod(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        Class<?> targetClass = target != null ? AopUtils.getTargetClass(target) : method.getDeclaringClass();
+
+        MethodClassKey methodKey = new MethodClassKey(method, targetClass);
+        AnnotatedMethod result = annotatedMethods.get(methodKey);
+        if (result != null) {
+            return result;
+        }
+
+        return annotatedMethods.computeIfAbsent(methodKey, k -> {
+            Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+            AnnotatedMethod specific = new AnnotatedMethod(specificMethod);
+            return specific.isEmpty() && specificMethod != method ? new AnnotatedMethod(method) : specific;
+        });
+    }
+
+    private CacheLock cacheLock(String name) {
+        CacheLock result = cacheLocks.get(name);
+        if (result == null) {
+            result = cacheDistributedSupport.cacheLock(name, token);
+            cacheLocks.put(name, result);
+        }
+
+        return result;
+    }
+
+    private RateLimiter rateLimiter(String name, RateLimited rateLimited) {
+        RateLimiter result = rateLimiters.get(name);
+        if (result == null ||
+                result.getSeconds() != rateLimited.seconds() ||
+                result.getPermits() != rateLimited.permits()) {
+            result = cacheDistributedSupport.rateLimiter(name, rateLimited.seconds(), rateLimited.permits());
+            rateLimiters.put(name, result);
+        }
+
+        return result;
+    }
+
+    private TokenBucket tokenBucket(String name, TokenBucketLimited tokenBucketLimited) {
+        TokenBucket result = tokenBuckets.get(name);
+        if (result == null ||
+                result.getMaxPermits() != tokenBucketLimited.maxPermits() ||
+                result.getPermitsPerSecond() != tokenBucketLimited.permitsPerSecond()) {
+            result = cacheDistributedSupport.tokenBucket(name, tokenBucketLimited.maxPermits(), tokenBucketLimited.permitsPerSecond());
+            tokenBuckets.put(name, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * 锁名或缓存名
+     *
+     * @param name    注解的name
+     * @param key     解析后的key，Null时不拼接
+     * @param context 参数
+     * @return name + ":" + key的值
+     */
+    private static String name(String name, Expression key, EvaluationContext context) {
+        if (key == null) {
+            return name;
+        }
+
+        return name + SEPARATOR + key.getValue(context);
+    }
+
+    /**
+     * 方法上的注解和解析后的key
+     */
+    private static final class AnnotatedMethod {
+        /**
+         * 分布式锁
+         */
+        private final DistributedLock distributedLock;
+
+        /**
+         * 分布式限流（固定时间窗口）
+         */
+        private final RateLimited rateLimited;
+
+        /**
+         * 分布式限流（令牌桶）
+         */
+        private final TokenBucketLimited tokenBucketLimited;
+
+        /**
+         * 分布式锁，解析后的key，Null时不拼接
+         */
+        private final Expression distributedLockKey;
+
+        /**
+         * 分布式限流（固定时间窗口），解析后的key，Null时不拼接
+         */
+        private final Expression rateLimitedKey;
+
+        /**
+         * 分布式限流（令牌桶），解析后的key，Null时不拼接
+         */
+        private final Expression tokenBucketLimitedKey;
+
+        /**
+         * 参数的变量名，[ 参数下标 : [ "p0", "a0", 参数名 ] ]
+         */
+        private final String[][] variableNames;
+
+        AnnotatedMethod(Method method) {
+            this.distributedLock = AnnotatedElementUtils.findMergedAnnotation(method, DistributedLock.class);
+            this.rateLimited = AnnotatedElementUtils.findMergedAnnotation(method, RateLimited.class);
+            this.tokenBucketLimited = AnnotatedElementUtils.findMergedAnnotation(method, TokenBucketLimited.class);
+
+            this.distributedLockKey = distributedLock != null ? parse(distributedLock.key()) : null;
+            this.rateLimitedKey = rateLimited != null ? parse(rateLimited.key()) : null;
+            this.tokenBucketLimitedKey = tokenBucketLimited != null ? parse(tokenBucketLimited.key()) : null;
+
+            String[] parameterNames = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+            int parameterCount = method.getParameterCount();
+            this.variableNames = new String[parameterCount][];
+            for (int i = 0; i < parameterCount; i++) {
+                if (parameterNames != null && parameterNames.length == parameterCount) {
+                    variableNames[i] = new String[]{"p" + i, "a" + i, parameterNames[i]};
+                } else {
+                    variableNames[i] = new String[]{"p" + i, "a" + i};
+                }
+            }
+        }
+
+        private static Expression parse(String key) {
+            if (key == null || key.trim().isEmpty()) {
+                return null;
+            }
+
+            return PARSER.parseExpression(key);
+        }
+
+        EvaluationContext evaluationContext(Object[] args) {
+            StandardEvaluationContext result = new StandardEvaluationContext();
+            int count = Math.min(args.length, variableNames.length);
+            for (int i = 0; i < count; i++) {
+                for (String variableName : variableNames[i]) {
+                    result.setVariable(variableName, args[i]);
+                }
+            }
+
+            return result;
+        }
+
+        boolean isEmpty() {
+            return distributedLock == null && rateLimited == null && tokenBucketLimited == null;
+        }
+
+        boolean hasExpression() {
+            return distributedLockKey != null || rateLimitedKey != null || tokenBucketLimitedKey != null;
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.github.changebooks.redis;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式锁，加锁成功后执行方法，执行完解锁
+ * <pre>
+ * 锁名 = name + ":" + key的值，key为空时，锁名 = name
+ * key为SpEL，如，"#userId"、"#p0"、"#order.id"，每个方法只解析一次
+ * 加锁失败时，抛出 {@link AcquireRejectedException}
+ * 不可重入，同一个线程嵌套加同一个锁，会加锁失败
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see DistributedAnnotationAdvisor
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DistributedLock {
+
+    /**
+     * 锁名
+     */
+    String name();
+
+    /**
+     * 锁名的后缀，SpEL
+     */
+    String key() default "";
+
+    /**
+     * 过期时间
+     */
+    long expirationTime() default 30;
+
+    /**
+     * 最长等待时间，小于等于0时，只加锁一次
+     */
+    long waitTime() default 0;
+
+    /**
+     * 过期时间和等待时间的单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 定时续期？每隔过期时间的1/3续期一次，解锁后停止
+     */
+    boolean renewal() default true;
+
+}
@@ -0,0 +1,449 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 支持批量读写的 {@link RedisCache}
+ * <pre>
+ * 批量读写，经过写缓存装饰器，最终由 {@link BatchRedisCacheWriter} 执行
+ * 经过缓存装饰器的批量读写，见 {@link BatchCache}
+ * 可选，缓存键超过n个字符时，替换为摘要，保留缓存名前缀，可选写入原始键，读取时校验
+ * 可选，异步读写，需开启 {@link AsyncRedisCacheWriter}，不经过缓存装饰器，如，本地缓存
+ *   开启了本地缓存、提前刷新，或写缓存不支持时（{@link AsyncRedisCacheWriter#supports(String)}），异步方法抛出异常
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class ExtendedRedisCache extends RedisCache implements BatchCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExtendedRedisCache.class);
+
+    /**
+     * 摘要算法
+     */
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * 摘要键的前缀，与原始键区分
+     */
+    private static final String HASHED_KEY_PREFIX = "#";
+
+    /**
+     * 连接工厂
+     */
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * 写缓存不是装饰器时，批量读写，首次使用时创建
+     */
+    private volatile RedisCacheWriterDecorator batchCacheWriter;
+
+    /**
+     * 缓存键超过多少个字符时，替换为摘要，小于等于0时不替换
+     */
+    private int keyHashThreshold;
+
+    /**
+     * 替换为摘要时，写入原始键，读取时校验？
+     */
+    private boolean verifyHashedKey;
+
+    /**
+     * 支持异步读写？被缓存装饰器包装时，如，本地缓存、提前刷新，不支持
+     */
+    private volatile boolean asyncSupported = true;
+
+    /**
+     * 写入Null值的过期时间，Null时取缓存配置，如，{@link NegativeCache} 的墓碑
+     */
+    private volatile Duration nullValueTtl;
+
+    public ExtendedRedisCache(String name,
+                              RedisCacheWriter cacheWriter,
+                              RedisCacheConfiguration cacheConfig,
+                              RedisConnectionFactory connectionFactory) {
+        super(name, cacheWriter, cacheConfig);
+
+        Assert.notNull(connectionFactory, "connectionFactory can't be null");
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * 批量读，经过写缓存装饰器
+     *
+     * @param keys 缓存键列表
+     * @param <K>  缓存键的类型
+     * @param <V>  缓存值的类型
+     * @return [ 缓存键 : 缓存值 ]，仅含命中的，缓存的Null值也视为命中，值为Null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return Collections.emptyMap();
+        }
+
+        List<K> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<byte[]> rawKeys = new ArrayList<>(keyList.size());
+        for (K key : keyList) {
+            rawKeys.add(rawKey(key));
+        }
+
+        List<byte[]> rawValues = batchCacheWriter().getAll(getName(), rawKeys);
+
+        Map<K, V> result = new LinkedHashMap<>(keyList.size());
+        for (int i = 0; i < keyList.size(); i++) {
+            byte[] rawValue = rawValues.get(i);
+            if (rawValue == null) {
+                continue;
+            }
+
+            K key = keyList.get(i);
+            Object storeValue = unwrapKeyedValue(key, deserializeCacheValue(rawValue));
+            if (storeValue instanceof NullValue) {
+                result.put(key, null);
+            } else if (storeValue != null) {
+                result.put(key, (V) fromStoreValue(storeValue));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 批量写，过期时间与单个写入相同
+     *
+     * @param values [ 缓存键 : 缓存值 ]
+     */
+    @Override
+    public void putAll(Map<?, ?> values) {
+        putAll(values, getCacheConfiguration().getTtl());
+    }
+
+    /**
+     * 批量写，经过写缓存装饰器
+     *
+     * @param values [ 缓存键 : 缓存值 ]
+     * @param ttl    过期时间，Null或小于等于0时不过期
+     */
+    public void putAll(Map<?, ?> values, Duration ttl) {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+
+        List<byte[]> rawKeys = new ArrayList<>(values.size());
+        List<byte[]> rawValues = new ArrayList<>(values.size());
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            Object cacheValue = preProcessCacheValue(entry.getValue());
+            if (cacheValue == null) {
+                // 不缓存Null值
+                continue;
+            }
+
+            Object key = entry.getKey();
+            rawKeys.add(rawKey(key));
+            rawValues.add(serializeCacheValue(wrapKeyedValue(key, cacheValue)));
+        }
+
+        batchCacheWriter().putAll(getName(), rawKeys, rawValues, Collections.nCopies(rawKeys.size(), ttl));
+    }
+
+    /**
+     * 写入，指定过期时间
+     *
+     * @param key   缓存键
+     * @param value 缓存值，Null时写入 {@link NullValue}
+     * @param ttl   过期时间，Null或小于等于0时不过期
+     */
+    public void put(Object key, Object value, Duration ttl) {
+        Object cacheValue = value != null ? value : NullValue.INSTANCE;
+        getNativeCache().put(getName(), rawKey(key), serializeCacheValue(wrapKeyedValue(key, cacheValue)), ttl);
+    }
+
+    /**
+     * 异步读，需开启 {@link AsyncRedisCacheWriter}
+     *
+     * @param key 缓存键
+     * @return 缓存值，不存在时为Null
+     */
+    public CompletableFuture<ValueWrapper> retrieve(Object key) {
+        byte[] rawKey = rawKey(key);
+        return asyncCacheWriter().getAsync(getName(), rawKey).thenApply(rawValue -> {
+            if (rawValue == null) {
+                return null;
+            }
+
+            Object storeValue = unwrapKeyedValue(key, deserializeCacheValue(rawValue));
+            return toValueWrapper(storeValue);
+        });
+    }
+
+    /**
+     * 异步读，不存在时异步计算并写入，需开启 {@link AsyncRedisCacheWriter}
+     * 不加锁，并发未命中时，可能重复计算
+     *
+     * @param key         缓存键
+     * @param valueLoader 异步计算
+     * @param <T>         缓存值的类型
+     * @return 缓存值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        Assert.notNull(valueLoader, "valueLoader can't be null");
+
+        return retrieve(key).thenCompose(wrapper -> {
+            if (wrapper != null) {
+                return CompletableFuture.completedFuture((T) wrapper.get());
+            }
+
+            return valueLoader.get().thenCompose(value -> putAsync(key, value).thenApply(ignored -> value));
+        });
+    }
+
+    /**
+     * 异步写，过期时间取缓存配置，需开启 {@link AsyncRedisCacheWriter}
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @return 写入完成
+     */
+    public CompletableFuture<Void> putAsync(Object key, Object value) {
+        Object cacheValue = toStoreValue(value);
+        if (!isAllowNullValues() && cacheValue == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Cache '%s' does not allow 'null' values; Avoid storing null via '@Cacheable(unless=\"#result == null\")' or configure RedisCache to allow 'null' via RedisCacheConfiguration",
+                    getName()));
+        }
+
+        byte[] rawValue = serializeCacheValue(wrapKeyedValue(key, cacheValue));
+        return asyncCacheWriter().putAsync(getName(), rawKey(key), rawValue, getCacheConfiguration().getTtl());
+    }
+
+    /**
+     * 异步删除，需开启 {@link AsyncRedisCacheWriter}
+     *
+     * @param key 缓存键
+     * @return 删除了？
+     */
+    public CompletableFuture<Boolean> evictAsync(Object key) {
+        return asyncCacheWriter().removeAsync(getName(), rawKey(key));
+    }
+
+    /**
+     * 批量读写的写缓存，写缓存不是装饰器时，直接批量读写
+     *
+     * @return {@link RedisCacheWriterDecorator} 实例
+     */
+    private RedisCacheWriterDecorator batchCacheWriter() {
+        RedisCacheWriter cacheWriter = getNativeCache();
+        if (cacheWriter instanceof RedisCacheWriterDecorator) {
+            return (RedisCacheWriterDecorator) cacheWriter;
+        }
+
+        RedisCacheWriterDecorator result = batchCacheWriter;
+        if (result == null) {
+            result = new BatchRedisCacheWriter(cacheWriter, connectionFactory);
+            batchCacheWriter = result;
+        }
+        return result;
+    }
+
+    private AsyncRedisCacheWriter asyncCacheWriter() {
+        RedisCacheWriter cacheWriter = getNativeCache();
+        if (!(cacheWriter instanceof AsyncRedisCacheWriter)) {
+            throw new UnsupportedOperationException("async cache writer is not enabled, cacheName: " + getName());
+        }
+
+        AsyncRedisCacheWriter result = (AsyncRedisCacheWriter) cacheWriter;
+        if (!asyncSupported || !result.supports(getName())) {
+            throw new UnsupportedOperationException("async bypasses the cache or writer decorators, cacheName: " + getName());
+        }
+
+        return result;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return unwrapKeyedValue(key, super.lookup(key));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Duration ttl = nullValueTtl;
+        if (ttl != null && (value == null || value instanceof NullValue)) {
+            put(key, null, ttl);
+            return;
+        }
+
+        // 不缓存Null值时，Null值不包装，保留基类的校验
+        Object cacheValue = preProcessCacheValue(value);
+        if (cacheValue == null || originalKey(key) == null) {
+            super.put(key, value);
+        } else {
+            super.put(key, wrapKeyedValue(key, cacheValue));
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Object cacheValue = preProcessCacheValue(value);
+        if (cacheValue == null || originalKey(key) == null) {
+            return super.putIfAbsent(key, value);
+        }
+
+        ValueWrapper result = super.putIfAbsent(key, wrapKeyedValue(key, cacheValue));
+        if (result == null) {
+            return null;
+        }
+
+        Object existing = result.get();
+        if (existing instanceof KeyedValue) {
+            return toValueWrapper(((KeyedValue) existing).getValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * 缓存键超过阈值时，替换为摘要
+     *
+     * @param key 缓存键
+     * @return 不含缓存名前缀的缓存键
+     */
+    @Override
+    protected String convertKey(Object key) {
+        String result = super.convertKey(key);
+
+        int threshold = keyHashThreshold;
+        if (threshold > 0 && result.length() > threshold) {
+            return HASHED_KEY_PREFIX + digest(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * 需要校验时，原始键
+     *
+     * @param key 缓存键
+     * @return 原始键，不需要校验时返回Null
+     */
+    private String originalKey(Object key) {
+        int threshold = keyHashThreshold;
+        if (!verifyHashedKey || threshold <= 0) {
+            return null;
+        }
+
+        String result = super.convertKey(key);
+        return result.length() > threshold ? result : null;
+    }
+
+    /**
+     * 需要校验时，缓存值带上原始键
+     */
+    private Object wrapKeyedValue(Object key, Object cacheValue) {
+        String originalKey = originalKey(key);
+        return originalKey != null ? new KeyedValue(originalKey, cacheValue) : cacheValue;
+    }
+
+    /**
+     * 去掉原始键，原始键不一致（摘要冲突）时视为未命中
+     */
+    private Object unwrapKeyedValue(Object key, Object storeValue) {
+        if (!(storeValue instanceof KeyedValue)) {
+            return storeValue;
+        }
+
+        KeyedValue keyedValue = (KeyedValue) storeValue;
+        String originalKey = originalKey(key);
+        if (originalKey != null && !originalKey.equals(keyedValue.getKey())) {
+            LOGGER.warn("hashed key collision, cacheName: {}, key: {}, storedKey: {}",
+                    getName(), originalKey, keyedValue.getKey());
+            return null;
+        }
+
+        return keyedValue.getValue();
+    }
+
+    /**
+     * 摘要，SHA-256，Base64Url，无填充
+     *
+     * @param key 原始键
+     * @return 43个字符的摘要
+     */
+    private static String digest(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(key.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * 序列化后的完整缓存键，缓存名前缀 + 缓存名 + 缓存键
+     *
+     * @param key 缓存键
+     * @return 序列化后的缓存键
+     */
+    public byte[] rawKey(Object key) {
+        return serializeCacheKey(createCacheKey(key));
+    }
+
+    public RedisConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    public int getKeyHashThreshold() {
+        return keyHashThreshold;
+    }
+
+    public ExtendedRedisCache setKeyHashThreshold(int keyHashThreshold) {
+        this.keyHashThreshold = keyHashThreshold;
+        return this;
+    }
+
+    public boolean isVerifyHashedKey() {
+        return verifyHashedKey;
+    }
+
+    public ExtendedRedisCache setVerifyHashedKey(boolean verifyHashedKey) {
+        this.verifyHashedKey = verifyHashedKey;
+        return this;
+    }
+
+    public boolean isAsyncSupported() {
+        return asyncSupported;
+    }
+
+    public ExtendedRedisCache setAsyncSupported(boolean asyncSupported) {
+        this.asyncSupported = asyncSupported;
+        return this;
+    }
+
+    public Duration getNullValueTtl() {
+        return nullValueTtl;
+    }
+
+    public ExtendedRedisCache setNullValueTtl(Duration nullValueTtl) {
+        this.nullValueTtl = nullValueTtl;
+        return this;
+    }
+
+}
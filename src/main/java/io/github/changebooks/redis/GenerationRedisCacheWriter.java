@@ -0,0 +1,113 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.util.Assert;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 清空缓存时，代数 + 1，不再逐个删除
+ * <pre>
+ * 按缓存名开启，未开启的缓存名，按原方式清空
+ * 可选，后台按SCAN分批删除旧代的缓存，不开启时等待旧代的缓存过期
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see CacheGeneration
+ */
+public class GenerationRedisCacheWriter extends RedisCacheWriterDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenerationRedisCacheWriter.class);
+
+    /**
+     * 缓存代数
+     */
+    private final CacheGeneration generation;
+
+    /**
+     * 开启代数的缓存名
+     */
+    private final Set<String> cacheNames;
+
+    /**
+     * 后台删除旧代的缓存，按SCAN分批删除，Null时不删除
+     */
+    private final RedisCacheWriter cleanupWriter;
+
+    /**
+     * 执行后台删除
+     */
+    private final Executor cleanupExecutor;
+
+    /**
+     * 创建 {@link GenerationRedisCacheWriter} 实例
+     *
+     * @param delegate        被装饰的写缓存
+     * @param generation      缓存代数
+     * @param cacheNames      开启代数的缓存名
+     * @param cleanupWriter   后台删除旧代的缓存，如，BatchStrategies.scan(n)，Null时不删除
+     * @param cleanupExecutor 执行后台删除，cleanupWriter非Null时必填
+     */
+    public GenerationRedisCacheWriter(RedisCacheWriter delegate, CacheGeneration generation, Set<String> cacheNames,
+                                      RedisCacheWriter cleanupWriter, Executor cleanupExecutor) {
+        super(delegate);
+
+        Assert.notNull(generation, "generation can't be null");
+        Assert.notNull(cacheNames, "cacheNames can't be null");
+        Assert.isTrue(cleanupWriter == null || cleanupExecutor != null, "cleanupExecutor can't be null");
+
+        this.generation = generation;
+        this.cacheNames = new HashSet<>(cacheNames);
+        this.cleanupWriter = cleanupWriter;
+        this.cleanupExecutor = cleanupExecutor;
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @param name    缓存名
+     * @param pattern 当前代的缓存键的匹配模式
+     */
+    @Override
+    public void clean(String name, byte[] pattern) {
+        if (!cacheNames.contains(name)) {
+            super.clean(name, pattern);
+            return;
+        }
+
+        long newGeneration = generation.increment(name);
+        LOGGER.debug("clean, name: {}, newGeneration: {}", name, newGeneration);
+
+        if (cleanupWriter != null) {
+            try {
+                cleanupExecutor.execute(() -> {
+                    try {
+                        cleanupWriter.clean(name, pattern);
+                    } catch (RuntimeException ex) {
+                        LOGGER.error("cleanup failed, name: {}, throwable: ", name, ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                LOGGER.warn("cleanup rejected, name: {}, old entries will expire by ttl", name);
+            }
+        }
+    }
+
+    public CacheGeneration getGeneration() {
+        return generation;
+    }
+
+    public Set<String> getCacheNames() {
+        return cacheNames;
+    }
+
+    public RedisCacheWriter getCleanupWriter() {
+        return cleanupWriter;
+    }
+
+}
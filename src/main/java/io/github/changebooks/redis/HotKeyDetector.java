@@ -0,0 +1,338 @@
+package io.github.changebooks.redis;
+
+import io.netty.util.Timeout;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点键检测，进程内，无锁
+ * <pre>
+ * 按采样率记录访问，Count-Min Sketch估算访问次数
+ * 估算次数（已按采样率放大）达到阈值的，加入热点键，最多保留访问最多的k个
+ * 定时衰减，全部计数减半，低于阈值的移出热点键
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class HotKeyDetector {
+    /**
+     * 哈希函数个数（行数）
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * 计数，DEPTH行 * width列
+     */
+    private final AtomicLongArray counters;
+
+    /**
+     * 列数 - 1，列数为2的幂
+     */
+    private final int mask;
+
+    /**
+     * 热点阈值，一个衰减周期内的估算访问次数
+     */
+    private final long threshold;
+
+    /**
+     * 采样率，每n次访问记录1次
+     */
+    private int sampleRate = 1;
+
+    /**
+     * 最多保留的热点键数
+     */
+    private int topK = 100;
+
+    /**
+     * [ 热点键 : 估算访问次数 ]
+     */
+    private final ConcurrentMap<String, Long> hotKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 已采样的访问次数
+     */
+    private final LongAdder sampledCount = new LongAdder();
+
+    /**
+     * 定时衰减中？
+     */
+    private final AtomicBoolean decaying = new AtomicBoolean(false);
+
+    /**
+     * 定时衰减的任务句柄
+     */
+    private volatile Timeout decayTimeout;
+
+    /**
+     * 创建 {@link HotKeyDetector} 实例
+     *
+     * @param width     列数，越大误差越小，向上取2的幂
+     * @param threshold 热点阈值，一个衰减周期内的估算访问次数
+     * @return {@link HotKeyDetector} 实例
+     */
+    public static HotKeyDetector create(int width, long threshold) {
+        return new HotKeyDetector(width, threshold);
+    }
+
+    private HotKeyDetector(int width, long threshold) {
+        Assert.isTrue(width > 0 && width <= (1 << 24), "width must be between 1 and 16777216");
+        Assert.isTrue(threshold > 0, "threshold must be greater than 0");
+
+        int columns = Integer.highestOneBit(width);
+        if (columns < width) {
+            columns <<= 1;
+        }
+
+        this.counters = new AtomicLongArray(DEPTH * columns);
+        this.mask = columns - 1;
+        this.threshold = threshold;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key 键
+     * @return 热点键？
+     */
+    public boolean record(String key) {
+        if (sample()) {
+            record0(key);
+        }
+
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 记录一次访问，未被采样时不转换字符串
+     *
+     * @param key 键，UTF-8
+     * @return 被采样且是热点键？
+     */
+    public boolean record(byte[] key) {
+        if (!sample()) {
+            return false;
+        }
+
+        String localKey = new String(key, StandardCharsets.UTF_8);
+        record0(localKey);
+        return hotKeys.containsKey(localKey);
+    }
+
+    /**
+     * 热点键？
+     *
+     * @param key 键
+     * @return 热点键？
+     */
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 估算访问次数，已按采样率放大
+     *
+     * @param key 键
+     * @return 估算访问次数
+     */
+    public long estimate(String key) {
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+
+        long result = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            result = Math.min(result, counters.get(index(i, hash1, hash2)));
+        }
+
+        return result * sampleRate;
+    }
+
+    private boolean sample() {
+        int rate = sampleRate;
+        return rate <= 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    private void record0(String key) {
+        sampledCount.increment();
+
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+
+        long count = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            count = Math.min(count, counters.incrementAndGet(index(i, hash1, hash2)));
+        }
+
+        long estimate = count * sampleRate;
+        if (estimate >= threshold) {
+            promote(key, estimate);
+        }
+    }
+
+    /**
+     * 加入热点键，已满时，替换访问最少的
+     */
+    private void promote(String key, long estimate) {
+        if (hotKeys.replace(key, estimate) != null) {
+            return;
+        }
+
+        if (hotKeys.size() < topK) {
+            hotKeys.put(key, estimate);
+            return;
+        }
+
+        Map.Entry<String, Long> min = null;
+        for (Map.Entry<String, Long> entry : hotKeys.entrySet()) {
+            if (min == null || entry.getValue() < min.getValue()) {
+                min = entry;
+            }
+        }
+
+        if (min != null && min.getValue() < estimate && hotKeys.remove(min.getKey(), min.getValue())) {
+            hotKeys.put(key, estimate);
+        }
+    }
+
+    /**
+     * 衰减，全部计数减半，低于阈值的移出热点键
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            long value;
+            do {
+                value = counters.get(i);
+            } while (value != 0 && !counters.compareAndSet(i, value, value >>> 1));
+        }
+
+        for (String key : hotKeys.keySet()) {
+            long estimate = estimate(key);
+            if (estimate < threshold) {
+                hotKeys.remove(key);
+            } else {
+                hotKeys.replace(key, estimate);
+            }
+        }
+    }
+
+    /**
+     * 开始定时衰减
+     *
+     * @param period 衰减周期
+     * @param unit   衰减周期的单位
+     */
+    public void start(long period, TimeUnit unit) {
+        Assert.isTrue(period > 0, "period must be greater than 0");
+        Assert.notNull(unit, "unit can't be null");
+
+        if (decaying.compareAndSet(false, true)) {
+            scheduleDecay(period, unit);
+        }
+    }
+
+    private void scheduleDecay(long period, TimeUnit unit) {
+        decayTimeout = TimeoutScheduler.newTimeout(timeout -> {
+            if (decaying.get()) {
+                decay();
+                scheduleDecay(period, unit);
+            }
+        }, period, unit);
+    }
+
+    /**
+     * 停止定时衰减
+     */
+    public void stop() {
+        decaying.set(false);
+
+        Timeout timeout = decayTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 当前热点键，按估算访问次数倒序
+     *
+     * @return [ 热点键 : 估算访问次数 ]
+     */
+    public Map<String, Long> getHotKeys() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(hotKeys.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        Map<String, Long> result = new LinkedHashMap<>(entries.size());
+        for (Map.Entry<String, Long> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+
+        return result;
+    }
+
+    private int index(int row, int hash1, int hash2) {
+        return row * (mask + 1) + ((hash1 + row * hash2) & mask);
+    }
+
+    /**
+     * 64位哈希，MurmurHash3的混淆函数
+     */
+    private static long hash(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L + key.length();
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public HotKeyDetector setSampleRate(int sampleRate) {
+        Assert.isTrue(sampleRate > 0, "sampleRate must be greater than 0");
+
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public HotKeyDetector setTopK(int topK) {
+        Assert.isTrue(topK > 0, "topK must be greater than 0");
+
+        this.topK = topK;
+        return this;
+    }
+
+    public int getWidth() {
+        return mask + 1;
+    }
+
+    public long getSampledCount() {
+        return sampledCount.sum();
+    }
+
+    public boolean isDecaying() {
+        return decaying.get();
+    }
+
+}
@@ -0,0 +1,202 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点键复制到进程内
+ * <pre>
+ * 读取时通过 {@link HotKeyDetector} 采样，热点键的值复制到进程内，过期时间很短
+ * 复制期间，读取不再访问Redis，分担单个分片的压力
+ * 本进程写入和删除时，删除副本，其它进程的副本在过期后失效
+ * 按缓存名配置副本的过期时间，未配置的缓存名不复制
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class HotKeyRedisCacheWriter extends RedisCacheWriterDecorator {
+    /**
+     * 热点键检测
+     */
+    private final HotKeyDetector detector;
+
+    /**
+     * [ 缓存名 : 副本 ]
+     */
+    private final Map<String, LocalCache<ByteBuffer, byte[]>> replicas;
+
+    /**
+     * 命中副本的次数
+     */
+    private final LongAdder replicaHits = new LongAdder();
+
+    /**
+     * 创建 {@link HotKeyRedisCacheWriter} 实例
+     *
+     * @param delegate    被装饰的写缓存
+     * @param detector    热点键检测
+     * @param replicaTtls [ 缓存名 : 副本的过期时间 ]
+     * @param maximumSize 每个缓存名，副本的最大数量
+     */
+    public HotKeyRedisCacheWriter(RedisCacheWriter delegate, HotKeyDetector detector,
+                                  Map<String, Duration> replicaTtls, int maximumSize) {
+        super(delegate);
+
+        Assert.notNull(detector, "detector can't be null");
+        Assert.notNull(replicaTtls, "replicaTtls can't be null");
+
+        this.detector = detector;
+        this.replicas = new HashMap<>(replicaTtls.size());
+        replicaTtls.forEach((name, ttl) -> {
+            Assert.isTrue(ttl != null && ttl.toMillis() > 0, "ttl must be greater than 0");
+            this.replicas.put(name, new LocalCache<>(maximumSize, ttl));
+        });
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        LocalCache<ByteBuffer, byte[]> replica = replicas.get(name);
+        if (replica == null) {
+            return super.get(name, key);
+        }
+
+        ByteBuffer localKey = ByteBuffer.wrap(key);
+        byte[] result = replica.get(localKey);
+        if (result != null) {
+            replicaHits.increment();
+            detector.record(key);
+            return result;
+        }
+
+        result = super.get(name, key);
+        if (detector.record(key) && result != null) {
+            replica.put(localKey, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * 批量读，先查副本，其余的批量读取
+     */
+    @Override
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        LocalCache<ByteBuffer, byte[]> replica = replicas.get(name);
+        if (replica == null) {
+            return super.getAll(name, keys);
+        }
+
+        List<byte[]> result = new ArrayList<>(keys.size());
+        List<Integer> misses = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            byte[] value = replica.get(ByteBuffer.wrap(key));
+            if (value != null) {
+                replicaHits.increment();
+                detector.record(key);
+            } else {
+                misses.add(result.size());
+            }
+            result.add(value);
+        }
+
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        List<byte[]> missKeys = new ArrayList<>(misses.size());
+        misses.forEach(index -> missKeys.add(keys.get(index)));
+
+        List<byte[]> values = super.getAll(name, missKeys);
+        for (int i = 0; i < misses.size(); i++) {
+            byte[] key = missKeys.get(i);
+            byte[] value = values.get(i);
+            result.set(misses.get(i), value);
+            if (detector.record(key) && value != null) {
+                replica.put(ByteBuffer.wrap(key), value);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        super.put(name, key, value, ttl);
+        evictReplica(name, key);
+    }
+
+    @Override
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        super.putAll(name, keys, values, ttls);
+        keys.forEach(key -> evictReplica(name, key));
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        byte[] result = super.putIfAbsent(name, key, value, ttl);
+        evictReplica(name, key);
+        return result;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        super.remove(name, key);
+        evictReplica(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        super.clean(name, pattern);
+
+        LocalCache<ByteBuffer, byte[]> replica = replicas.get(name);
+        if (replica != null) {
+            replica.clear();
+        }
+    }
+
+    private void evictReplica(String name, byte[] key) {
+        LocalCache<ByteBuffer, byte[]> replica = replicas.get(name);
+        if (replica != null) {
+            replica.remove(ByteBuffer.wrap(key));
+        }
+    }
+
+    /**
+     * 副本的数量
+     *
+     * @param name 缓存名
+     * @return 数量，未配置时返回0
+     */
+    public int getReplicaSize(String name) {
+        LocalCache<ByteBuffer, byte[]> replica = replicas.get(name);
+        return replica != null ? replica.size() : 0;
+    }
+
+    /**
+     * 开启热点副本的缓存名
+     *
+     * @return 缓存名列表
+     */
+    public Set<String> getCacheNames() {
+        return Collections.unmodifiableSet(replicas.keySet());
+    }
+
+    public HotKeyDetector getDetector() {
+        return detector;
+    }
+
+    public long getReplicaHits() {
+        return replicaHits.sum();
+    }
+
+}
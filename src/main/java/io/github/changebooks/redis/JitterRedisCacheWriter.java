@@ -0,0 +1,74 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 写入时偏移缓存过期时间
+ * 按缓存名配置 {@link TtlJitter}，未配置的缓存名不偏移
+ *
+ * @author changebooks@qq.com
+ */
+public class JitterRedisCacheWriter extends RedisCacheWriterDecorator {
+    /**
+     * [ 缓存名 : 过期时间的随机偏移 ]
+     */
+    private final Map<String, TtlJitter> jitters;
+
+    public JitterRedisCacheWriter(RedisCacheWriter delegate, Map<String, TtlJitter> jitters) {
+        super(delegate);
+
+        Assert.notNull(jitters, "jitters can't be null");
+        this.jitters = new HashMap<>(jitters);
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        super.put(name, key, value, ttl(name, ttl));
+    }
+
+    /**
+     * 批量写，每个缓存键分别偏移
+     */
+    @Override
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        if (!jitters.containsKey(name)) {
+            super.putAll(name, keys, values, ttls);
+            return;
+        }
+
+        List<Duration> jittered = new ArrayList<>(ttls.size());
+        for (Duration ttl : ttls) {
+            jittered.add(ttl(name, ttl));
+        }
+        super.putAll(name, keys, values, jittered);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        return super.putIfAbsent(name, key, value, ttl(name, ttl));
+    }
+
+    /**
+     * 偏移过期时间
+     *
+     * @param name 缓存名
+     * @param ttl  过期时间
+     * @return 偏移后的过期时间
+     */
+    public Duration ttl(String name, Duration ttl) {
+        TtlJitter jitter = jitters.get(name);
+        return jitter != null ? jitter.apply(ttl) : ttl;
+    }
+
+    public Map<String, TtlJitter> getJitters() {
+        return jitters;
+    }
+
+}
@@ -14,6 +14,22 @@ public interface KeyPrefix {
      */
     String SEPARATOR = ":";
 
+    /**
+     * 内部键的拼接符，如，锁、位数组、缓存代数
+     * 不同于缓存名和缓存键的拼接符，清空缓存、快照的匹配模式 "缓存名:*" 匹配不到内部键，缓存名不应含此符号
+     */
+    String INTERNAL_SEPARATOR = "#";
+
+    /**
+     * 哈希标签的开始符
+     */
+    String HASH_TAG_START = "{";
+
+    /**
+     * 哈希标签的结束符
+     */
+    String HASH_TAG_END = "}";
+
     /**
      * 指定是否拼接缓存名前缀
      * 拼接前缀，如，"cacheNamePrefix::cacheName:"
@@ -31,6 +47,54 @@ public interface KeyPrefix {
         }
     }
 
+    /**
+     * 指定是否拼接缓存名前缀，指定是否带哈希标签
+     *
+     * @param useCacheNamePrefix 拼接缓存名前缀？
+     * @param cacheNamePrefix    缓存名前缀
+     * @param useHashTag         缓存名带哈希标签？
+     * @return {@link CacheKeyPrefix} 函数接口
+     * @see #hashTagged(boolean, String)
+     */
+    static CacheKeyPrefix of(boolean useCacheNamePrefix, String cacheNamePrefix, boolean useHashTag) {
+        if (useHashTag) {
+            return hashTagged(useCacheNamePrefix, cacheNamePrefix);
+        } else {
+            return of(useCacheNamePrefix, cacheNamePrefix);
+        }
+    }
+
+    /**
+     * 缓存名带哈希标签，集群模式下，同一个缓存名的缓存键在同一个槽位
+     * 缓存名前缀 + {缓存名} + 缓存名和缓存键的拼接符
+     * 如，"cacheNamePrefix::{cacheName}:"
+     *
+     * @param useCacheNamePrefix 拼接缓存名前缀？
+     * @param cacheNamePrefix    缓存名前缀
+     * @return {@link CacheKeyPrefix} 函数接口
+     */
+    static CacheKeyPrefix hashTagged(boolean useCacheNamePrefix, String cacheNamePrefix) {
+        CacheKeyPrefix cacheKeyPrefix = of(useCacheNamePrefix, cacheNamePrefix);
+        return name -> cacheKeyPrefix.compute(hashTag(name));
+    }
+
+    /**
+     * 带上哈希标签，已含哈希标签时不变
+     * 如，"city" -> "{city}"，"limit:{tenant}:api" 不变
+     *
+     * @param name 名称，如，缓存名、租户id
+     * @return 带哈希标签的名称
+     */
+    static String hashTag(String name) {
+        int start = name.indexOf(HASH_TAG_START);
+        if (start >= 0 && name.indexOf(HASH_TAG_END, start + 1) > start + 1) {
+            // 第一个 "{" 后的第一个 "}"，之间非空，才是哈希标签
+            return name;
+        }
+
+        return HASH_TAG_START + name + HASH_TAG_END;
+    }
+
     /**
      * 有缓存名前缀
      * 缓存名前缀 + 缓存名 + 缓存名和缓存键的拼接符
@@ -58,4 +122,30 @@ public interface KeyPrefix {
         return name -> name + SEPARATOR;
     }
 
+    /**
+     * 内部键，不在缓存键的命名空间内，与缓存键在同一个槽位（缓存名带哈希标签时）
+     * 缓存名前缀 + 缓存名 + 内部键的拼接符 + 后缀
+     * 如，"cacheNamePrefix::cacheName#generation"
+     *
+     * @param prefixedCacheName 拼接了缓存名前缀的缓存名
+     * @param suffix            后缀
+     * @return 内部键
+     */
+    static String internal(String prefixedCacheName, String suffix) {
+        return prefixedCacheName + INTERNAL_SEPARATOR + suffix;
+    }
+
+    /**
+     * 拼接缓存代数
+     * 原前缀 + 代数 + 缓存名和缓存键的拼接符
+     * 如，"cacheNamePrefix::cacheName:3:"
+     *
+     * @param cacheKeyPrefix 原前缀
+     * @param generation     缓存代数
+     * @return {@link CacheKeyPrefix} 函数接口
+     */
+    static CacheKeyPrefix generation(CacheKeyPrefix cacheKeyPrefix, CacheGeneration generation) {
+        return name -> cacheKeyPrefix.compute(name) + generation.get(name) + SEPARATOR;
+    }
+
 }
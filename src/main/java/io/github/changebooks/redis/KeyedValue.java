@@ -0,0 +1,46 @@
+package io.github.changebooks.redis;
+
+import java.io.Serializable;
+
+/**
+ * 带原始键的缓存值
+ * 缓存键过长被替换为摘要时，读取时校验原始键，避免摘要冲突
+ *
+ * @author changebooks@qq.com
+ */
+public final class KeyedValue implements Serializable {
+    /**
+     * 原始键，不含缓存名前缀
+     */
+    private String key;
+
+    /**
+     * 缓存值
+     */
+    private Object value;
+
+    public KeyedValue() {
+    }
+
+    public KeyedValue(String key, Object value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+}
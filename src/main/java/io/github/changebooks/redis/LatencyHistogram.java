@@ -0,0 +1,218 @@
+package io.github.changebooks.redis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图，对数线性分桶，类似HdrHistogram
+ * <pre>
+ * 单位：微秒，每个2的幂区间再等分为32个桶，相对误差不超过1/32
+ * 固定1024个桶，最大约19小时，超过时计入最后一个桶
+ * 记录，一次数组自增和两次累加，无锁、无分配
+ * 桶按线程分条，同一个热点桶的并发自增落在不同的缓存行，读取时合并
+ * 读取分位数时，遍历全部桶，适合定时采集，不适合热路径
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class LatencyHistogram {
+    /**
+     * 每个2的幂区间，等分的位数，2^5 = 32个桶
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * 每个2的幂区间，等分的桶数
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 最大值的位数，2^36微秒，约19小时
+     */
+    private static final int MAX_VALUE_BITS = 36;
+
+    /**
+     * 桶数
+     */
+    private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /**
+     * 分条数，不小于CPU核数的2的幂，最多8条，每条8KB
+     */
+    private static final int STRIPE_COUNT = stripeCount(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 每个桶的次数，[ 分条 * 桶数 + 桶 ]，同一个桶的不同分条相隔一整条，不共享缓存行
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(STRIPE_COUNT * BUCKET_COUNT);
+
+    /**
+     * 总次数
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * 总耗时，单位：纳秒
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * 最大耗时，单位：纳秒
+     */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 创建 {@link LatencyHistogram} 实例
+     *
+     * @return {@link LatencyHistogram} 实例
+     */
+    public static LatencyHistogram create() {
+        return new LatencyHistogram();
+    }
+
+    private LatencyHistogram() {
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param elapsedNanos 耗时，单位：纳秒，小于0时视为0
+     */
+    public void record(long elapsedNanos) {
+        if (elapsedNanos < 0) {
+            elapsedNanos = 0;
+        }
+
+        int stripe = stripeIndex(Thread.currentThread().getId());
+        buckets.incrementAndGet(stripe * BUCKET_COUNT + bucketIndex(TimeUnit.NANOSECONDS.toMicros(elapsedNanos)));
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+    }
+
+    /**
+     * 分位数，如，0.99
+     *
+     * @param percentile 分位，0 ~ 1
+     * @return 耗时，桶的上界，单位：纳秒，无记录时返回0
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0) {
+            percentile = 0;
+        } else if (percentile > 1) {
+            percentile = 1;
+        }
+
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+                snapshot[i] += buckets.get(stripe * BUCKET_COUNT + i);
+            }
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                long result = TimeUnit.MICROSECONDS.toNanos(bucketUpperBound(i));
+                return Math.min(result, getMaxNanos());
+            }
+        }
+
+        return getMaxNanos();
+    }
+
+    /**
+     * 分条数，不小于CPU核数的2的幂
+     *
+     * @param processors CPU核数
+     * @return 分条数，1 ~ 8
+     */
+    static int stripeCount(int processors) {
+        int result = 1;
+        while (result < processors && result < 8) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    /**
+     * 线程的分条
+     *
+     * @param threadId 线程id
+     * @return 分条的下标
+     */
+    private static int stripeIndex(long threadId) {
+        long h = threadId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (STRIPE_COUNT - 1);
+    }
+
+    /**
+     * 桶的下标
+     *
+     * @param value 耗时，单位：微秒
+     * @return 下标
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        if (highestBit >= MAX_VALUE_BITS) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * 桶的上界
+     *
+     * @param index 下标
+     * @return 耗时，单位：微秒
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * 平均耗时
+     *
+     * @return 耗时，单位：纳秒，无记录时返回0
+     */
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n > 0 ? (double) totalNanos.sum() / n : 0;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+}
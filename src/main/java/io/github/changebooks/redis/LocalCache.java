@@ -0,0 +1,329 @@
+package io.github.changebooks.redis;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * 进程内缓存
+ * <pre>
+ * 有界，超过最大数量或最大权重时，淘汰最近最少使用的
+ * 有过期时间，过期的在读取时删除
+ * 分段加锁，降低读写竞争
+ * </pre>
+ *
+ * @param <K> 键的类型
+ * @param <V> 值的类型
+ * @author changebooks@qq.com
+ */
+public final class LocalCache<K, V> {
+    /**
+     * 最大分段数
+     */
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * 分段
+     */
+    private final Segment<K, V>[] segments;
+
+    /**
+     * 分段数 - 1
+     */
+    private final int mask;
+
+    /**
+     * 最大数量
+     */
+    private final int maximumSize;
+
+    /**
+     * 最大权重，小于等于0时不限制
+     */
+    private final long maximumWeight;
+
+    /**
+     * 计算值的权重，如，字节数，Null时不限制
+     */
+    private final ToIntFunction<? super V> weigher;
+
+    /**
+     * 过期时间，单位：纳秒，小于等于0时不过期
+     */
+    private final long ttlNanos;
+
+    /**
+     * 创建 {@link LocalCache} 实例
+     *
+     * @param maximumSize 最大数量
+     * @param ttl         过期时间，Null时不过期
+     */
+    public LocalCache(int maximumSize, Duration ttl) {
+        this(maximumSize, 0, null, ttl);
+    }
+
+    /**
+     * 创建 {@link LocalCache} 实例，限制总权重
+     *
+     * @param maximumSize   最大数量
+     * @param maximumWeight 最大权重，如，最大字节数，小于等于0时不限制
+     * @param weigher       计算值的权重，Null时不限制
+     * @param ttl           过期时间，Null时不过期
+     */
+    @SuppressWarnings("unchecked")
+    public LocalCache(int maximumSize, long maximumWeight, ToIntFunction<? super V> weigher, Duration ttl) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+        Assert.isTrue(weigher == null || maximumWeight > 0, "maximumWeight must be greater than 0");
+
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maximumSize) {
+            segmentCount *= 2;
+        }
+
+        int segmentSize = (maximumSize + segmentCount - 1) / segmentCount;
+        long segmentWeight = weigher != null ? (maximumWeight + segmentCount - 1) / segmentCount : 0;
+
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment<>(segmentSize, segmentWeight);
+        }
+
+        this.mask = segmentCount - 1;
+        this.maximumSize = maximumSize;
+        this.maximumWeight = weigher != null ? maximumWeight : 0;
+        this.weigher = weigher;
+        this.ttlNanos = ttl != null ? ttl.toNanos() : 0;
+    }
+
+    /**
+     * 读取
+     *
+     * @param key 键
+     * @return 值，不存在或已过期时返回Null
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.isExpired(System.nanoTime())) {
+                segment.remove(key);
+                return null;
+            }
+
+            return entry.value;
+        }
+    }
+
+    /**
+     * 写入
+     *
+     * @param key   键
+     * @param value 值，不能为Null
+     */
+    public void put(K key, V value) {
+        Assert.notNull(value, "value can't be null");
+
+        long expireAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+        int weight = weigher != null ? weigher.applyAsInt(value) : 0;
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, new Entry<>(value, expireAt, weight));
+        }
+    }
+
+    /**
+     * 删除
+     *
+     * @param key 键
+     * @return 被删除的值，不存在时返回Null
+     */
+    public V remove(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.remove(key);
+            return entry != null ? entry.value : null;
+        }
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * 删除已过期的
+     */
+    public void cleanUp() {
+        long nowTime = System.nanoTime();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                Iterator<Entry<V>> iterator = segment.values().iterator();
+                while (iterator.hasNext()) {
+                    Entry<V> entry = iterator.next();
+                    if (entry.isExpired(nowTime)) {
+                        iterator.remove();
+                        segment.weight -= entry.weight;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前数量，含已过期未删除的
+     *
+     * @return 数量
+     */
+    public int size() {
+        int result = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                result += segment.size();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 当前总权重，含已过期未删除的
+     *
+     * @return 总权重，未限制时返回0
+     */
+    public long weight() {
+        long result = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                result += segment.weight;
+            }
+        }
+        return result;
+    }
+
+    private Segment<K, V> segment(K key) {
+        int h = key != null ? key.hashCode() : 0;
+        h ^= (h >>> 16);
+        return segments[h & mask];
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public Duration getTtl() {
+        return ttlNanos > 0 ? Duration.ofNanos(ttlNanos) : null;
+    }
+
+    /**
+     * 分段，按访问顺序排列，超过容量或权重时淘汰最久未访问的
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+
+        private final int capacity;
+
+        /**
+         * 最大权重，0时不限制
+         */
+        private final long maxWeight;
+
+        /**
+         * 当前权重
+         */
+        long weight;
+
+        Segment(int capacity, long maxWeight) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.maxWeight = maxWeight;
+        }
+
+        @Override
+        public Entry<V> put(K key, Entry<V> value) {
+            Entry<V> result = super.put(key, value);
+            weight += value.weight - (result != null ? result.weight : 0);
+
+            if (maxWeight > 0) {
+                Iterator<Entry<V>> iterator = values().iterator();
+                while (weight > maxWeight && iterator.hasNext()) {
+                    Entry<V> eldest = iterator.next();
+                    iterator.remove();
+                    weight -= eldest.weight;
+                }
+            }
+
+            return result;
+        }
+
+        @Override
+        public Entry<V> remove(Object key) {
+            Entry<V> result = super.remove(key);
+            if (result != null) {
+                weight -= result.weight;
+            }
+            return result;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            weight = 0;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > capacity) {
+                weight -= eldest.getValue().weight;
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * 值和过期时间
+     */
+    private static final class Entry<V> {
+
+        final V value;
+
+        /**
+         * 过期时间，单位：纳秒，0时不过期
+         */
+        final long expireAt;
+
+        /**
+         * 权重，未限制时为0
+         */
+        final int weight;
+
+        Entry(V value, long expireAt, int weight) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.weight = weight;
+        }
+
+        boolean isExpired(long nowTime) {
+            return expireAt != 0 && nowTime - expireAt >= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.github.changebooks.redis;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 日志限流，进程内
+ * 同一个键，每个间隔内最多输出一次，其余的计数，下次输出时带上
+ *
+ * @author changebooks@qq.com
+ */
+public final class LogRateLimiter {
+    /**
+     * 间隔，单位：纳秒，小于等于0时不限流
+     */
+    private final long intervalNanos;
+
+    /**
+     * [ 键 : 上次输出的时刻 ]
+     */
+    private final ConcurrentMap<String, AtomicLong> loggedAt = new ConcurrentHashMap<>();
+
+    /**
+     * [ 键 : 被抑制的次数 ]
+     */
+    private final ConcurrentMap<String, LongAdder> suppressed = new ConcurrentHashMap<>();
+
+    /**
+     * 创建 {@link LogRateLimiter} 实例
+     *
+     * @param interval 间隔，Null或小于等于0时不限流
+     */
+    public LogRateLimiter(Duration interval) {
+        this.intervalNanos = interval != null ? interval.toNanos() : 0;
+    }
+
+    /**
+     * 可以输出？
+     *
+     * @param key 键，如，缓存名 + 操作
+     * @return 小于0时不输出，否则为上次输出后被抑制的次数
+     */
+    public long tryAcquire(String key) {
+        Assert.notNull(key, "key can't be null");
+
+        if (intervalNanos <= 0) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        AtomicLong last = loggedAt.computeIfAbsent(key, k -> new AtomicLong(now - intervalNanos));
+
+        long lastAt = last.get();
+        if (now - lastAt >= intervalNanos && last.compareAndSet(lastAt, now)) {
+            LongAdder counter = suppressed.get(key);
+            return counter != null ? counter.sumThenReset() : 0;
+        }
+
+        suppressed.computeIfAbsent(key, k -> new LongAdder()).increment();
+        return -1;
+    }
+
+    public Duration getInterval() {
+        return Duration.ofNanos(intervalNanos);
+    }
+
+}
@@ -0,0 +1,177 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按缓存名统计，命中数、未命中数、写入数、删除数、异常数，读取和写入的耗时
+ * <pre>
+ * 按缓存名开启，未开启的缓存名，不统计
+ * 统计的是写缓存层，进程内命中（如，本地缓存）不经过写缓存，不计入
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see CacheMetrics
+ */
+public class MetricsRedisCacheWriter extends RedisCacheWriterDecorator {
+    /**
+     * [ 缓存名 : 缓存的统计 ]
+     */
+    private final Map<String, CacheMetrics.CacheStats> stats;
+
+    /**
+     * 创建 {@link MetricsRedisCacheWriter} 实例
+     *
+     * @param delegate     被装饰的写缓存
+     * @param cacheMetrics 统计
+     * @param cacheNames   开启统计的缓存名
+     */
+    public MetricsRedisCacheWriter(RedisCacheWriter delegate, CacheMetrics cacheMetrics, Set<String> cacheNames) {
+        super(delegate);
+
+        Assert.notNull(cacheMetrics, "cacheMetrics can't be null");
+        Assert.notNull(cacheNames, "cacheNames can't be null");
+
+        this.stats = new HashMap<>(cacheNames.size());
+        cacheNames.forEach(name -> this.stats.put(name, cacheMetrics.cache(name)));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        CacheMetrics.CacheStats cacheStats = stats.get(name);
+        if (cacheStats == null) {
+            return super.get(name, key);
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            byte[] result = super.get(name, key);
+            cacheStats.recordGet(result != null, System.nanoTime() - startTime);
+            return result;
+        } catch (RuntimeException ex) {
+            cacheStats.recordError();
+            throw ex;
+        }
+    }
+
+    /**
+     * 批量读，每个缓存键分别计入命中或未命中，耗时平均分摊
+     */
+    @Override
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        CacheMetrics.CacheStats cacheStats = stats.get(name);
+        if (cacheStats == null || keys.isEmpty()) {
+            return super.getAll(name, keys);
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            List<byte[]> result = super.getAll(name, keys);
+            long elapsedNanos = (System.nanoTime() - startTime) / keys.size();
+            result.forEach(value -> cacheStats.recordGet(value != null, elapsedNanos));
+            return result;
+        } catch (RuntimeException ex) {
+            cacheStats.recordError();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        CacheMetrics.CacheStats cacheStats = stats.get(name);
+        if (cacheStats == null) {
+            super.put(name, key, value, ttl);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            super.put(name, key, value, ttl);
+            cacheStats.recordPut(System.nanoTime() - startTime);
+        } catch (RuntimeException ex) {
+            cacheStats.recordError();
+            throw ex;
+        }
+    }
+
+    /**
+     * 批量写，每个缓存键分别计入写入数，耗时平均分摊
+     */
+    @Override
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        CacheMetrics.CacheStats cacheStats = stats.get(name);
+        if (cacheStats == null || keys.isEmpty()) {
+            super.putAll(name, keys, values, ttls);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            super.putAll(name, keys, values, ttls);
+            long elapsedNanos = (System.nanoTime() - startTime) / keys.size();
+            keys.forEach(key -> cacheStats.recordPut(elapsedNanos));
+        } catch (RuntimeException ex) {
+            cacheStats.recordError();
+            throw ex;
+        }
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        CacheMetrics.CacheStats cacheStats = stats.get(name);
+        if (cacheStats == null) {
+            return super.putIfAbsent(name, key, value, ttl);
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            byte[] result = super.putIfAbsent(name, key, value, ttl);
+            cacheStats.recordPut(System.nanoTime() - startTime);
+            return result;
+        } catch (RuntimeException ex) {
+            cacheStats.recordError();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        CacheMetrics.CacheStats cacheStats = stats.get(name);
+        if (cacheStats == null) {
+            super.remove(name, key);
+            return;
+        }
+
+        try {
+            super.remove(name, key);
+            cacheStats.recordRemove();
+        } catch (RuntimeException ex) {
+            cacheStats.recordError();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        CacheMetrics.CacheStats cacheStats = stats.get(name);
+        if (cacheStats == null) {
+            super.clean(name, pattern);
+            return;
+        }
+
+        try {
+            super.clean(name, pattern);
+            cacheStats.recordRemove();
+        } catch (RuntimeException ex) {
+            cacheStats.recordError();
+            throw ex;
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package io.github.changebooks.redis;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * 把 {@link CacheMetrics} 注册到Micrometer
+ * <pre>
+ * 需引入 micrometer-core，本库为可选依赖
+ * 已存在的和之后新建的统计，都会注册
+ * 计数注册为 {@link FunctionCounter}，耗时注册为 {@link FunctionTimer}，分位数注册为 {@link Gauge}
+ * 只在采集时读取，不增加热路径的开销
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class MicrometerCacheMetricsBinder implements MeterBinder {
+    /**
+     * 指标名的前缀
+     */
+    public static final String METRIC_PREFIX = "changebook.";
+
+    /**
+     * 导出的分位数
+     */
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    /**
+     * 统计
+     */
+    private final CacheMetrics cacheMetrics;
+
+    /**
+     * 公共标签
+     */
+    private final Tags tags;
+
+    public MicrometerCacheMetricsBinder(CacheMetrics cacheMetrics) {
+        this(cacheMetrics, Tags.empty());
+    }
+
+    /**
+     * 创建 {@link MicrometerCacheMetricsBinder} 实例
+     *
+     * @param cacheMetrics 统计
+     * @param tags         公共标签，如，应用名
+     */
+    public MicrometerCacheMetricsBinder(CacheMetrics cacheMetrics, Iterable<Tag> tags) {
+        Assert.notNull(cacheMetrics, "cacheMetrics can't be null");
+        Assert.notNull(tags, "tags can't be null");
+
+        this.cacheMetrics = cacheMetrics;
+        this.tags = Tags.of(tags);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Assert.notNull(registry, "registry can't be null");
+
+        cacheMetrics.addListener(new CacheMetrics.Listener() {
+            @Override
+            public void onCache(String name, CacheMetrics.CacheStats stats) {
+                bindCache(registry, name, stats);
+            }
+
+            @Override
+            public void onLock(String name, CacheMetrics.LockStats stats) {
+                bindLock(registry, name, stats);
+            }
+
+            @Override
+            public void onLimiter(String name, CacheMetrics.LimiterStats stats) {
+                bindLimiter(registry, name, stats);
+            }
+        });
+    }
+
+    private void bindCache(MeterRegistry registry, String name, CacheMetrics.CacheStats stats) {
+        Tags cacheTags = tags.and("name", name);
+
+        counter(registry, "cache.gets", cacheTags.and("result", "hit"), stats, CacheMetrics.CacheStats::getHitCount);
+        counter(registry, "cache.gets", cacheTags.and("result", "miss"), stats, CacheMetrics.CacheStats::getMissCount);
+        counter(registry, "cache.puts", cacheTags, stats, CacheMetrics.CacheStats::getPutCount);
+        counter(registry, "cache.removals", cacheTags, stats, CacheMetrics.CacheStats::getRemoveCount);
+        counter(registry, "cache.errors", cacheTags, stats, CacheMetrics.CacheStats::getErrorCount);
+
+        timer(registry, "cache.latency", cacheTags.and("operation", "get"), stats.getGetLatency());
+        timer(registry, "cache.latency", cacheTags.and("operation", "put"), stats.getPutLatency());
+    }
+
+    private void bindLock(MeterRegistry registry, String name, CacheMetrics.LockStats stats) {
+        Tags lockTags = tags.and("name", name);
+
+        counter(registry, "lock.acquires", lockTags.and("result", "acquired"), stats, CacheMetrics.LockStats::getAcquiredCount);
+        counter(registry, "lock.acquires", lockTags.and("result", "contended"), stats, CacheMetrics.LockStats::getContendedCount);
+
+        timer(registry, "lock.acquire", lockTags, stats.getAcquireLatency());
+        timer(registry, "lock.hold", lockTags, stats.getHoldLatency());
+    }
+
+    private void bindLimiter(MeterRegistry registry, String name, CacheMetrics.LimiterStats stats) {
+        Tags limiterTags = tags.and("name", name);
+
+        counter(registry, "limiter.acquires", limiterTags.and("result", "granted"), stats, CacheMetrics.LimiterStats::getGrantedCount);
+        counter(registry, "limiter.acquires", limiterTags.and("result", "rejected"), stats, CacheMetrics.LimiterStats::getRejectedCount);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, Tags tags,
+                                    T stats, ToLongFunction<T> count) {
+        FunctionCounter.builder(METRIC_PREFIX + name, stats, s -> (double) count.applyAsLong(s)).
+                tags(tags).
+                register(registry);
+    }
+
+    private static void timer(MeterRegistry registry, String name, Tags tags, LatencyHistogram histogram) {
+        FunctionTimer.builder(METRIC_PREFIX + name, histogram,
+                        LatencyHistogram::getCount, LatencyHistogram::getTotalNanos, TimeUnit.NANOSECONDS).
+                tags(tags).
+                register(registry);
+
+        Gauge.builder(METRIC_PREFIX + name + ".max", histogram, h -> h.getMaxNanos() / 1e9).
+                tags(tags).
+                baseUnit("seconds").
+                register(registry);
+
+        for (double percentile : PERCENTILES) {
+            Gauge.builder(METRIC_PREFIX + name + ".percentile", histogram, h -> h.getValueAtPercentile(percentile) / 1e9).
+                    tags(tags.and("phi", String.valueOf(percentile))).
+                    baseUnit("seconds").
+                    register(registry);
+        }
+    }
+
+}
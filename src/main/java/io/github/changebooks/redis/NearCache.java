@@ -0,0 +1,397 @@
+package io.github.changebooks.redis;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 二级缓存
+ * <pre>
+ * 一级，进程内缓存 {@link LocalCache}，有界，过期时间不超过二级的过期时间
+ * 二级，被装饰的缓存，如，Redis
+ * 写入和删除后，通过 {@link CacheNotifier} 通知其它进程删除一级缓存
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class NearCache extends CacheDecorator {
+    /**
+     * 通知内容的拼接符
+     */
+    private static final String SEPARATOR = "\n";
+
+    /**
+     * 通知类型，删除一个键
+     */
+    private static final String EVICT = "E";
+
+    /**
+     * 通知类型，清空
+     */
+    private static final String CLEAR = "C";
+
+    /**
+     * 一级缓存
+     */
+    private final LocalCache<String, ValueWrapper> localCache;
+
+    /**
+     * 跨进程通知
+     */
+    private final CacheNotifier notifier;
+
+    /**
+     * 通知频道
+     */
+    private final String channel;
+
+    /**
+     * 一级命中数
+     */
+    private final LongAdder localHits = new LongAdder();
+
+    /**
+     * 一级未命中数
+     */
+    private final LongAdder localMisses = new LongAdder();
+
+    /**
+     * 二级命中数
+     */
+    private final LongAdder remoteHits = new LongAdder();
+
+    /**
+     * 二级未命中数
+     */
+    private final LongAdder remoteMisses = new LongAdder();
+
+    /**
+     * 创建 {@link NearCache} 实例
+     *
+     * @param delegate    二级缓存
+     * @param maximumSize 一级缓存的最大数量
+     * @param ttl         一级缓存的过期时间
+     * @param notifier    跨进程通知
+     * @param channel     通知频道
+     */
+    public NearCache(Cache delegate, int maximumSize, Duration ttl, CacheNotifier notifier, String channel) {
+        super(delegate);
+
+        Assert.notNull(notifier, "notifier can't be null");
+        Assert.hasText(channel, "channel can't be empty");
+
+        this.localCache = new LocalCache<>(maximumSize, ttl);
+        this.notifier = notifier;
+        this.channel = channel;
+
+        notifier.subscribe(channel, this::onMessage);
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+
+        ValueWrapper result = localCache.get(localKey);
+        if (result != null) {
+            localHits.increment();
+            return result;
+        }
+
+        localMisses.increment();
+
+        result = super.get(key);
+        if (result != null) {
+            remoteHits.increment();
+            localCache.put(localKey, new SimpleValueWrapper(result.get()));
+        } else {
+            remoteMisses.increment();
+        }
+
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+
+        ValueWrapper wrapper = localCache.get(localKey);
+        if (wrapper != null) {
+            localHits.increment();
+            return (T) wrapper.get();
+        }
+
+        localMisses.increment();
+
+        boolean[] loaded = {false};
+        T result = super.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+
+        if (loaded[0]) {
+            remoteMisses.increment();
+            publish(EVICT, localKey);
+        } else {
+            remoteHits.increment();
+        }
+
+        localCache.put(localKey, new SimpleValueWrapper(result));
+        return result;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, value);
+
+        String localKey = localKey(key);
+        localCache.put(localKey, new SimpleValueWrapper(value));
+        publish(EVICT, localKey);
+    }
+
+    /**
+     * 批量读，先查一级缓存，其余的批量读取二级缓存
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return Collections.emptyMap();
+        }
+
+        Map<K, V> result = new LinkedHashMap<>(keys.size());
+        List<K> remoteKeys = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            ValueWrapper wrapper = localCache.get(localKey(key));
+            if (wrapper != null) {
+                localHits.increment();
+                result.put(key, (V) wrapper.get());
+            } else {
+                localMisses.increment();
+                remoteKeys.add(key);
+            }
+        }
+
+        if (remoteKeys.isEmpty()) {
+            return result;
+        }
+
+        Map<K, V> values = super.getAll(remoteKeys);
+        for (K key : remoteKeys) {
+            if (values.containsKey(key)) {
+                V value = values.get(key);
+                remoteHits.increment();
+                localCache.put(localKey(key), new SimpleValueWrapper(value));
+                result.put(key, value);
+            } else {
+                remoteMisses.increment();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 批量写，更新一级缓存，并通知其它进程删除
+     */
+    @Override
+    public void putAll(Map<?, ?> values) {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+
+        super.putAll(values);
+
+        values.forEach((key, value) -> {
+            String localKey = localKey(key);
+            localCache.put(localKey, new SimpleValueWrapper(value));
+            publish(EVICT, localKey);
+        });
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper result = super.putIfAbsent(key, value);
+
+        String localKey = localKey(key);
+        localCache.remove(localKey);
+        if (result == null) {
+            publish(EVICT, localKey);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void evict(Object key) {
+        invalidating(() -> {
+            super.evict(key);
+            return null;
+        }, () -> evictLocal(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return invalidating(() -> super.evictIfPresent(key), () -> evictLocal(key));
+    }
+
+    @Override
+    public void clear() {
+        invalidating(() -> {
+            super.clear();
+            return null;
+        }, this::clearLocal);
+    }
+
+    @Override
+    public boolean invalidate() {
+        return invalidating(super::invalidate, this::clearLocal);
+    }
+
+    /**
+     * 删除二级缓存后，删除一级缓存并通知
+     * 删除失败时，如，Redis异常、熔断打开，也删除一级缓存并通知，不继续读旧值，通知的异常附在原异常上
+     *
+     * @param action 删除二级缓存
+     * @param local  删除一级缓存并通知
+     * @param <T>    返回值的类型
+     * @return 删除二级缓存的返回值
+     */
+    private <T> T invalidating(Supplier<T> action, Runnable local) {
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            try {
+                local.run();
+            } catch (RuntimeException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+
+        local.run();
+        return result;
+    }
+
+    /**
+     * 删除一级缓存，通知其它进程删除
+     *
+     * @param key 缓存键
+     */
+    private void evictLocal(Object key) {
+        String localKey = localKey(key);
+        localCache.remove(localKey);
+        publish(EVICT, localKey);
+    }
+
+    /**
+     * 清空一级缓存，通知其它进程清空
+     */
+    private void clearLocal() {
+        localCache.clear();
+        publish(CLEAR, "");
+    }
+
+    /**
+     * 收到其它进程的通知，删除一级缓存
+     *
+     * @param message 类型 + 实例id + 键
+     */
+    private void onMessage(String message) {
+        String[] parts = message.split(SEPARATOR, 3);
+        if (parts.length < 3 || notifier.getInstanceId().equals(parts[1])) {
+            return;
+        }
+
+        if (CLEAR.equals(parts[0])) {
+            localCache.clear();
+        } else {
+            localCache.remove(parts[2]);
+        }
+    }
+
+    private void publish(String type, String localKey) {
+        notifier.publish(channel, type + SEPARATOR + notifier.getInstanceId() + SEPARATOR + localKey);
+    }
+
+    /**
+     * 一级缓存的键，与通知内容中的键一致
+     *
+     * @param key 缓存键
+     * @return 字符串形式的键
+     */
+    protected String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    /**
+     * 一级命中率
+     *
+     * @return 一级命中数 / 总请求数
+     */
+    public double getLocalHitRatio() {
+        long hits = localHits.sum();
+        long total = hits + localMisses.sum();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    /**
+     * 二级命中率，仅统计一级未命中的请求
+     *
+     * @return 二级命中数 / 二级请求数
+     */
+    public double getRemoteHitRatio() {
+        long hits = remoteHits.sum();
+        long total = hits + remoteMisses.sum();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    public long getLocalHits() {
+        return localHits.sum();
+    }
+
+    public long getLocalMisses() {
+        return localMisses.sum();
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getRemoteMisses() {
+        return remoteMisses.sum();
+    }
+
+    public LocalCache<String, ValueWrapper> getLocalCache() {
+        return localCache;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+}
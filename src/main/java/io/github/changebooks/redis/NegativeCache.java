@@ -0,0 +1,410 @@
+package io.github.changebooks.redis;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存不存在的结果，避免不存在的键反复穿透到数据库
+ * <pre>
+ * 计算结果为Null时，写入短过期时间的空值（墓碑），进程内同步保存一份
+ * 可选，布隆过滤器记录已知存在的键
+ *   开启拒绝后，不在过滤器中的键，直接视为不存在，不访问Redis和数据库
+ *   开启拒绝需共享过滤器，只查进程内，其它进程写入的键，与Redis中的位数组同步后可见，同步前可能被误拒绝
+ *   开启前需写入全部存在的键，如，启动时从数据库加载
+ * 位于其它装饰器的最内层，其它装饰器写入Null时，转为墓碑
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class NegativeCache extends CacheDecorator {
+    /**
+     * 命中墓碑或被过滤器拒绝时，返回的空值
+     */
+    private static final ValueWrapper NULL_WRAPPER = new SimpleValueWrapper(null);
+
+    /**
+     * 写入墓碑，指定过期时间
+     */
+    private final ExtendedRedisCache redisCache;
+
+    /**
+     * 墓碑的过期时间
+     */
+    private final Duration tombstoneTtl;
+
+    /**
+     * 进程内的墓碑
+     */
+    private final LocalCache<String, Boolean> localTombstones;
+
+    /**
+     * 已知存在的键，Null时不开启
+     */
+    private final BloomFilter knownKeys;
+
+    /**
+     * 拒绝不在过滤器中的键？
+     */
+    private volatile boolean rejectUnknown;
+
+    /**
+     * 被过滤器拒绝的次数
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * 命中进程内墓碑的次数
+     */
+    private final LongAdder localTombstoneHits = new LongAdder();
+
+    /**
+     * 命中Redis墓碑的次数
+     */
+    private final LongAdder remoteTombstoneHits = new LongAdder();
+
+    /**
+     * 已写入墓碑的次数
+     */
+    private final LongAdder tombstoneWrites = new LongAdder();
+
+    /**
+     * 创建 {@link NegativeCache} 实例
+     *
+     * @param delegate          被装饰的缓存，需为 {@link ExtendedRedisCache} 实例，或其装饰器
+     * @param tombstoneTtl      墓碑的过期时间
+     * @param localTombstoneMax 进程内墓碑的最大数量
+     * @param knownKeys         已知存在的键，Null时不开启
+     */
+    public NegativeCache(Cache delegate, Duration tombstoneTtl, int localTombstoneMax, BloomFilter knownKeys) {
+        super(delegate);
+
+        ExtendedRedisCache redisCache = CacheDecorator.unwrap(delegate, ExtendedRedisCache.class);
+        Assert.notNull(redisCache, "delegate must be an ExtendedRedisCache");
+        Assert.isTrue(tombstoneTtl != null && tombstoneTtl.toMillis() > 0, "tombstoneTtl must be greater than 0");
+
+        this.redisCache = redisCache;
+        this.tombstoneTtl = tombstoneTtl;
+        this.localTombstones = new LocalCache<>(localTombstoneMax, tombstoneTtl);
+        this.knownKeys = knownKeys;
+
+        redisCache.setNullValueTtl(tombstoneTtl);
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = String.valueOf(key);
+
+        if (rejectUnknown && knownKeys != null && !knownKeys.mightContain(localKey)) {
+            rejectedCount.increment();
+            return NULL_WRAPPER;
+        }
+
+        if (localTombstones.get(localKey) != null) {
+            localTombstoneHits.increment();
+            return NULL_WRAPPER;
+        }
+
+        ValueWrapper result = super.get(key);
+        if (result == null) {
+            return null;
+        }
+
+        Object value = result.get();
+        if (value == null || value instanceof NullValue) {
+            remoteTombstoneHits.increment();
+            localTombstones.put(localKey, Boolean.TRUE);
+            return NULL_WRAPPER;
+        }
+
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+
+        return (T) value;
+    }
+
+    /**
+     * 读取，未命中时经过被装饰的缓存计算，保留其同步
+     * 计算结果为Null时，由 {@link ExtendedRedisCache} 写入墓碑
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        AtomicBoolean loaded = new AtomicBoolean();
+        AtomicReference<T> loadedValue = new AtomicReference<>();
+        T result = super.get(key, () -> {
+            T value = valueLoader.call();
+            loaded.set(true);
+            loadedValue.set(value);
+            return isNull(value) ? null : value;
+        });
+
+        String localKey = String.valueOf(key);
+        if (result == null) {
+            localTombstones.put(localKey, Boolean.TRUE);
+            if (!loaded.get()) {
+                return null;
+            }
+
+            // 原样返回，如，提前刷新包装的空值
+            tombstoneWrites.increment();
+            return loadedValue.get();
+        }
+
+        localTombstones.remove(localKey);
+        addKnownKey(localKey);
+        return result;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = String.valueOf(key);
+
+        if (isNull(value)) {
+            redisCache.put(key, null, tombstoneTtl);
+            localTombstones.put(localKey, Boolean.TRUE);
+            tombstoneWrites.increment();
+            return;
+        }
+
+        super.put(key, value);
+        localTombstones.remove(localKey);
+        addKnownKey(localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (isNull(value)) {
+            ValueWrapper existing = get(key);
+            if (existing == null) {
+                put(key, null);
+            }
+            return existing;
+        }
+
+        ValueWrapper result = super.putIfAbsent(key, value);
+        String localKey = String.valueOf(key);
+        localTombstones.remove(localKey);
+        addKnownKey(localKey);
+        return result;
+    }
+
+    /**
+     * 批量读，墓碑视为命中，值为Null
+     */
+    @Override
+    public <K, V> Map<K, V> getAll(Collection<K> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return Collections.emptyMap();
+        }
+
+        Map<K, V> result = new LinkedHashMap<>(keys.size());
+        List<K> remoteKeys = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            String localKey = String.valueOf(key);
+            if (rejectUnknown && knownKeys != null && !knownKeys.mightContain(localKey)) {
+                rejectedCount.increment();
+                result.put(key, null);
+            } else if (localTombstones.get(localKey) != null) {
+                localTombstoneHits.increment();
+                result.put(key, null);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+
+        if (remoteKeys.isEmpty()) {
+            return result;
+        }
+
+        Map<K, V> values = super.getAll(remoteKeys);
+        values.forEach((key, value) -> {
+            if (isNull(value)) {
+                remoteTombstoneHits.increment();
+                localTombstones.put(String.valueOf(key), Boolean.TRUE);
+                result.put(key, null);
+            } else {
+                result.put(key, value);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * 批量写，Null值逐个写入墓碑，其余的批量写入
+     */
+    @Override
+    public void putAll(Map<?, ?> values) {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+
+        Map<Object, Object> presents = new LinkedHashMap<>(values.size());
+        values.forEach((key, value) -> {
+            if (isNull(value)) {
+                put(key, null);
+            } else {
+                presents.put(key, value);
+            }
+        });
+
+        if (presents.isEmpty()) {
+            return;
+        }
+
+        super.putAll(presents);
+        presents.keySet().forEach(key -> {
+            String localKey = String.valueOf(key);
+            localTombstones.remove(localKey);
+            addKnownKey(localKey);
+        });
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        localTombstones.remove(String.valueOf(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean result = super.evictIfPresent(key);
+        localTombstones.remove(String.valueOf(key));
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        localTombstones.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean result = super.invalidate();
+        localTombstones.clear();
+        return result;
+    }
+
+    /**
+     * 写入已知存在的键，共享时不访问Redis，定时同步
+     *
+     * @param key 缓存键
+     */
+    public void addKnownKey(Object key) {
+        if (knownKeys != null) {
+            knownKeys.put(String.valueOf(key));
+        }
+    }
+
+    /**
+     * 批量写入已知存在的键，共享时批量写入Redis
+     *
+     * @param keys 缓存键列表
+     */
+    public void addKnownKeys(Collection<?> keys) {
+        if (knownKeys == null || CollectionUtils.isEmpty(keys)) {
+            return;
+        }
+
+        List<String> localKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            localKeys.add(String.valueOf(key));
+        }
+
+        knownKeys.putAll(localKeys);
+    }
+
+    /**
+     * 空值？含提前刷新包装的空值
+     */
+    private static boolean isNull(Object value) {
+        if (value instanceof RefreshAheadValue) {
+            return ((RefreshAheadValue) value).getValue() == null;
+        }
+        return value == null || value instanceof NullValue;
+    }
+
+    public Duration getTombstoneTtl() {
+        return tombstoneTtl;
+    }
+
+    public BloomFilter getKnownKeys() {
+        return knownKeys;
+    }
+
+    public boolean isRejectUnknown() {
+        return rejectUnknown;
+    }
+
+    /**
+     * 开启拒绝，开启前需写入全部存在的键
+     * 过滤器需共享，否则其它进程写入的键被误拒绝，开启时先同步一次
+     *
+     * @param rejectUnknown 拒绝不在过滤器中的键？
+     */
+    public void setRejectUnknown(boolean rejectUnknown) {
+        Assert.isTrue(!rejectUnknown || knownKeys != null, "knownKeys can't be null");
+        Assert.isTrue(!rejectUnknown || knownKeys.isShared(), "knownKeys must be shared");
+
+        if (rejectUnknown) {
+            knownKeys.sync();
+        }
+
+        this.rejectUnknown = rejectUnknown;
+    }
+
+    /**
+     * 进程内墓碑的数量
+     *
+     * @return 数量
+     */
+    public int getLocalTombstoneSize() {
+        return localTombstones.size();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getLocalTombstoneHits() {
+        return localTombstoneHits.sum();
+    }
+
+    public long getRemoteTombstoneHits() {
+        return remoteTombstoneHits.sum();
+    }
+
+    public long getTombstoneWrites() {
+        return tombstoneWrites.sum();
+    }
+
+}
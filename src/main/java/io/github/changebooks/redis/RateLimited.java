@@ -0,0 +1,45 @@
+package io.github.changebooks.redis;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 分布式限流（固定时间窗口），取得许可后执行方法
+ * <pre>
+ * 缓存名 = name + ":" + key的值，key为空时，缓存名 = name
+ * key为SpEL，如，"#userId"、"#p0"，每个方法只解析一次
+ * 未取得许可时，抛出 {@link AcquireRejectedException}
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see DistributedAnnotationAdvisor
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimited {
+
+    /**
+     * 缓存名
+     */
+    String name();
+
+    /**
+     * 缓存名的后缀，SpEL
+     */
+    String key() default "";
+
+    /**
+     * 总秒数（x秒内）
+     */
+    int seconds();
+
+    /**
+     * 总许可数（许可n次）
+     */
+    int permits();
+
+}
@@ -64,6 +64,16 @@ public final class RateLimiter {
      */
     private final StringRedisTemplate template;
 
+    /**
+     * 热点键检测，Null时不检测
+     */
+    private HotKeyDetector hotKeyDetector;
+
+    /**
+     * 统计，Null时不统计
+     */
+    private CacheMetrics.LimiterStats limiterStats;
+
     /**
      * 创建 {@link RateLimiter} 实例
      *
@@ -94,7 +104,16 @@ public final class RateLimiter {
      * @return 得到许可？
      */
     public Boolean acquire() {
-        return template.execute(SCRIPT, keys, args);
+        if (hotKeyDetector != null) {
+            hotKeyDetector.record(name);
+        }
+
+        Boolean result = template.execute(SCRIPT, keys, args);
+        if (limiterStats != null) {
+            limiterStats.record(result != null && result);
+        }
+
+        return result;
     }
 
     public String getName() {
@@ -137,4 +156,22 @@ public final class RateLimiter {
         return template;
     }
 
+    public HotKeyDetector getHotKeyDetector() {
+        return hotKeyDetector;
+    }
+
+    public RateLimiter setHotKeyDetector(HotKeyDetector hotKeyDetector) {
+        this.hotKeyDetector = hotKeyDetector;
+        return this;
+    }
+
+    public CacheMetrics.LimiterStats getLimiterStats() {
+        return limiterStats;
+    }
+
+    public RateLimiter setLimiterStats(CacheMetrics.LimiterStats limiterStats) {
+        this.limiterStats = limiterStats;
+        return this;
+    }
+
 }
@@ -0,0 +1,120 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 写缓存装饰器，默认全部委托给被装饰的写缓存
+ * 子类重写需要增强的方法，含批量读写
+ * 被装饰的不是装饰器时，批量读写逐个执行，见 {@link BatchRedisCacheWriter}
+ *
+ * @author changebooks@qq.com
+ */
+public abstract class RedisCacheWriterDecorator implements RedisCacheWriter {
+    /**
+     * 被装饰的写缓存
+     */
+    private volatile RedisCacheWriter delegate;
+
+    public RedisCacheWriterDecorator(RedisCacheWriter delegate) {
+        Assert.notNull(delegate, "delegate can't be null");
+
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        delegate.put(name, key, value, ttl);
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return delegate.get(name, key);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        return delegate.putIfAbsent(name, key, value, ttl);
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+    }
+
+    /**
+     * 批量读
+     *
+     * @param name 缓存名
+     * @param keys 缓存键列表
+     * @return 缓存值列表，与缓存键一一对应，不存在的为Null
+     */
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        if (delegate instanceof RedisCacheWriterDecorator) {
+            return ((RedisCacheWriterDecorator) delegate).getAll(name, keys);
+        }
+
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            result.add(delegate.get(name, key));
+        }
+        return result;
+    }
+
+    /**
+     * 批量写
+     *
+     * @param name   缓存名
+     * @param keys   缓存键列表
+     * @param values 缓存值列表，与缓存键一一对应
+     * @param ttls   过期时间列表，与缓存键一一对应，Null或小于等于0时不过期
+     */
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        if (delegate instanceof RedisCacheWriterDecorator) {
+            ((RedisCacheWriterDecorator) delegate).putAll(name, keys, values, ttls);
+            return;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            delegate.put(name, keys.get(i), values.get(i), ttls.get(i));
+        }
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    /**
+     * 被装饰的写缓存开启统计，装饰器本身不变
+     *
+     * @param cacheStatisticsCollector {@link CacheStatisticsCollector} 实例
+     * @return 本装饰器
+     */
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        this.delegate = delegate.withStatisticsCollector(cacheStatisticsCollector);
+        return this;
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    public RedisCacheWriter getDelegate() {
+        return delegate;
+    }
+
+}
@@ -0,0 +1,344 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 提前刷新，热点缓存过期前，异步重新计算
+ * <pre>
+ * 缓存值包装为 {@link RefreshAheadValue}，记录计算耗时和写入时间
+ * 满足任一条件时，提交异步刷新，调用方仍返回当前值
+ * 1，XFetch，当前时间 - 计算耗时 * beta * ln(随机数) >= 过期时间，计算越慢、越接近过期，越可能提前刷新
+ * 2，写入后超过指定时长
+ * 同一个键，进程内同时只有一个刷新任务，线程池满时放弃本次刷新
+ * 仅 {@link #get(Object, Callable)} 可刷新，如，@Cacheable(sync = true)
+ * 刷新在线程池中执行，事务、安全上下文等线程绑定的上下文不可用
+ *   未指定刷新函数时，调用 @Cacheable 方法的计算函数，方法需线程安全，且不依赖线程绑定的上下文
+ *   否则，指定只依赖缓存键的刷新函数
+ * 过期时间有随机偏移时，按偏移后的最短过期时间计算
+ * 被装饰的缓存不缓存Null值时，Null值不包装，保留其校验，刷新结果为Null时删除
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class RefreshAheadCache extends CacheDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshAheadCache.class);
+
+    /**
+     * 缓存过期时间，单位：毫秒，小于等于0时不过期
+     */
+    private final long ttl;
+
+    /**
+     * XFetch系数，越大越早刷新，小于等于0时不开启
+     */
+    private final double beta;
+
+    /**
+     * 写入后多久刷新，单位：毫秒，小于等于0时不开启
+     */
+    private final long refreshAfterWrite;
+
+    /**
+     * 执行刷新任务，有界
+     */
+    private final Executor executor;
+
+    /**
+     * 刷新函数，入参为缓存键，Null时调用 {@link #get(Object, Callable)} 的计算函数
+     */
+    private final Function<Object, ?> refreshLoader;
+
+    /**
+     * 被装饰的缓存允许Null值？含墓碑
+     */
+    private final boolean allowNullValues;
+
+    /**
+     * 刷新中的键
+     */
+    private final Set<Object> refreshings = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已提交的刷新数
+     */
+    private final LongAdder refreshCount = new LongAdder();
+
+    /**
+     * 线程池满时，放弃的刷新数
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * 创建 {@link RefreshAheadCache} 实例
+     *
+     * @param delegate          被装饰的缓存
+     * @param ttl               缓存过期时间
+     * @param beta              XFetch系数，如，1.0，小于等于0时不开启
+     * @param refreshAfterWrite 写入后多久刷新，Null时不开启
+     * @param executor          执行刷新任务，有界
+     */
+    public RefreshAheadCache(Cache delegate, Duration ttl, double beta, Duration refreshAfterWrite, Executor executor) {
+        this(delegate, ttl, beta, refreshAfterWrite, executor, null);
+    }
+
+    /**
+     * 创建 {@link RefreshAheadCache} 实例
+     *
+     * @param delegate          被装饰的缓存
+     * @param ttl               缓存过期时间，有随机偏移时，为偏移后的最短过期时间
+     * @param beta              XFetch系数，如，1.0，小于等于0时不开启
+     * @param refreshAfterWrite 写入后多久刷新，Null时不开启
+     * @param executor          执行刷新任务，有界
+     * @param refreshLoader     刷新函数，入参为缓存键，在线程池中执行，Null时调用 {@link #get(Object, Callable)} 的计算函数
+     */
+    public RefreshAheadCache(Cache delegate, Duration ttl, double beta, Duration refreshAfterWrite, Executor executor,
+                             Function<Object, ?> refreshLoader) {
+        super(delegate);
+
+        Assert.notNull(executor, "executor can't be null");
+
+        this.ttl = ttl != null ? ttl.toMillis() : 0;
+        this.beta = beta;
+        this.refreshAfterWrite = refreshAfterWrite != null ? refreshAfterWrite.toMillis() : 0;
+        this.executor = executor;
+        this.refreshLoader = refreshLoader;
+
+        AbstractValueAdaptingCache valueAdaptingCache = CacheDecorator.unwrap(delegate, AbstractValueAdaptingCache.class);
+        this.allowNullValues = valueAdaptingCache == null || valueAdaptingCache.isAllowNullValues() ||
+                CacheDecorator.unwrap(delegate, NegativeCache.class) != null;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = super.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+
+        Object value = wrapper.get();
+        if (value instanceof RefreshAheadValue) {
+            return new SimpleValueWrapper(((RefreshAheadValue) value).getValue());
+        } else {
+            return wrapper;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = super.get(key);
+        if (wrapper != null) {
+            Object value = wrapper.get();
+            if (!(value instanceof RefreshAheadValue)) {
+                return (T) value;
+            }
+
+            RefreshAheadValue refreshAheadValue = (RefreshAheadValue) value;
+            if (shouldRefresh(refreshAheadValue, System.currentTimeMillis())) {
+                refresh(key, valueLoader);
+            }
+
+            return (T) refreshAheadValue.getValue();
+        }
+
+        Object result = super.get(key, () -> compute(valueLoader));
+        if (result instanceof RefreshAheadValue) {
+            return (T) ((RefreshAheadValue) result).getValue();
+        } else {
+            return (T) result;
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, wrap(value, 0, System.currentTimeMillis()));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper wrapper = super.putIfAbsent(key, wrap(value, 0, System.currentTimeMillis()));
+        if (wrapper != null && wrapper.get() instanceof RefreshAheadValue) {
+            return new SimpleValueWrapper(((RefreshAheadValue) wrapper.get()).getValue());
+        } else {
+            return wrapper;
+        }
+    }
+
+    /**
+     * 批量读，去掉包装，不提前刷新
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys) {
+        Map<K, Object> values = super.getAll(keys);
+
+        Map<K, V> result = new LinkedHashMap<>(values.size());
+        values.forEach((key, value) -> {
+            if (value instanceof RefreshAheadValue) {
+                result.put(key, (V) ((RefreshAheadValue) value).getValue());
+            } else {
+                result.put(key, (V) value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 批量写，包装为 {@link RefreshAheadValue}
+     */
+    @Override
+    public void putAll(Map<?, ?> values) {
+        if (values == null) {
+            return;
+        }
+
+        long nowTime = System.currentTimeMillis();
+        Map<Object, Object> wrapped = new LinkedHashMap<>(values.size());
+        values.forEach((key, value) -> wrapped.put(key, wrap(value, 0, nowTime)));
+        super.putAll(wrapped);
+    }
+
+    /**
+     * 需要提前刷新？
+     *
+     * @param value   缓存值
+     * @param nowTime 当前时间，单位：毫秒
+     * @return 需要刷新？
+     */
+    protected boolean shouldRefresh(RefreshAheadValue value, long nowTime) {
+        long writtenAt = value.getWrittenAt();
+
+        if (refreshAfterWrite > 0 && nowTime - writtenAt >= refreshAfterWrite) {
+            return true;
+        }
+
+        if (beta > 0 && ttl > 0) {
+            double random = ThreadLocalRandom.current().nextDouble();
+            double early = -value.getDelta() * beta * Math.log(random);
+            return nowTime + early >= writtenAt + ttl;
+        }
+
+        return false;
+    }
+
+    /**
+     * 提交异步刷新，指定了刷新函数时，调用刷新函数
+     */
+    private void refresh(Object key, Callable<?> valueLoader) {
+        if (!refreshings.add(key)) {
+            return;
+        }
+
+        Callable<?> loader = refreshLoader != null ? () -> refreshLoader.apply(key) : valueLoader;
+        try {
+            executor.execute(() -> {
+                try {
+                    RefreshAheadValue value = compute(loader);
+                    if (value != null) {
+                        super.put(key, value);
+                    } else {
+                        // 不缓存Null值，删除旧值
+                        super.evict(key);
+                    }
+                } catch (Exception ex) {
+                    LOGGER.error("refresh failed, cacheName: {}, key: {}, throwable: ", getName(), key, ex);
+                } finally {
+                    refreshings.remove(key);
+                }
+            });
+            refreshCount.increment();
+        } catch (RejectedExecutionException ex) {
+            refreshings.remove(key);
+            rejectedCount.increment();
+        }
+    }
+
+    /**
+     * 计算，并记录耗时
+     *
+     * @return 包装的结果，不缓存Null值且结果为Null时返回Null
+     */
+    private RefreshAheadValue compute(Callable<?> valueLoader) throws Exception {
+        long startTime = System.currentTimeMillis();
+        Object value = valueLoader.call();
+        long nowTime = System.currentTimeMillis();
+        return wrap(value, nowTime - startTime, nowTime);
+    }
+
+    /**
+     * 包装为 {@link RefreshAheadValue}
+     * 不缓存Null值时，Null值不包装，由被装饰的缓存校验，如，写入时抛出异常，批量写入时跳过
+     *
+     * @param value     缓存值
+     * @param delta     计算耗时，单位：毫秒
+     * @param writtenAt 写入时间，单位：毫秒
+     * @return 包装的缓存值，不缓存Null值且缓存值为Null时返回Null
+     */
+    private RefreshAheadValue wrap(Object value, long delta, long writtenAt) {
+        if (value == null && !allowNullValues) {
+            return null;
+        }
+
+        return new RefreshAheadValue(value, delta, writtenAt);
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public double getBeta() {
+        return beta;
+    }
+
+    public long getRefreshAfterWrite() {
+        return refreshAfterWrite;
+    }
+
+    public Function<Object, ?> getRefreshLoader() {
+        return refreshLoader;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+}
@@ -0,0 +1,60 @@
+package io.github.changebooks.redis;
+
+import java.io.Serializable;
+
+/**
+ * 提前刷新的缓存值
+ * 缓存值、计算耗时、写入时间
+ *
+ * @author changebooks@qq.com
+ */
+public final class RefreshAheadValue implements Serializable {
+    /**
+     * 缓存值
+     */
+    private Object value;
+
+    /**
+     * 计算耗时，单位：毫秒
+     */
+    private long delta;
+
+    /**
+     * 写入时间，单位：毫秒
+     */
+    private long writtenAt;
+
+    public RefreshAheadValue() {
+    }
+
+    public RefreshAheadValue(Object value, long delta, long writtenAt) {
+        this.value = value;
+        this.delta = delta;
+        this.writtenAt = writtenAt;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+    public long getDelta() {
+        return delta;
+    }
+
+    public void setDelta(long delta) {
+        this.delta = delta;
+    }
+
+    public long getWrittenAt() {
+        return writtenAt;
+    }
+
+    public void setWrittenAt(long writtenAt) {
+        this.writtenAt = writtenAt;
+    }
+
+}
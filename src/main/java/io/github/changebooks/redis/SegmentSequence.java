@@ -0,0 +1,288 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分布式序列号（号段）
+ * <pre>
+ * 每次INCRBY取一个号段，进程内无锁分配
+ * 当前号段剩余数低于水位时，异步取下一个号段，用完时切换，一般不等待网络
+ * 预取INCRBY阻塞线程，使用专用线程池，切换时最多等待预取超时时长，超时后同步取号段
+ * 全局唯一，同一个进程内单调递增，多个进程之间按号段交错
+ * 进程重启时，未分配完的号段作废，序列号不连续
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class SegmentSequence {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentSequence.class);
+
+    /**
+     * 默认的水位，剩余数低于号段长度的20%时，预取下一个号段
+     */
+    public static final double WATERMARK = 0.2;
+
+    /**
+     * 默认的预取超时时长，切换号段时最多等待预取
+     */
+    public static final Duration PREFETCH_TIMEOUT = Duration.ofMillis(100);
+
+    /**
+     * 空号段，首次分配时取号段
+     */
+    private static final Segment EMPTY = new Segment(1, 0, -1);
+
+    /**
+     * 名称
+     */
+    private final String name;
+
+    /**
+     * {@link StringRedisTemplate}
+     */
+    private final StringRedisTemplate template;
+
+    /**
+     * 号段长度
+     */
+    private long segmentSize;
+
+    /**
+     * 水位，大于等于0且小于1，剩余数 / 号段长度
+     */
+    private double watermark = WATERMARK;
+
+    /**
+     * 预取超时时长，切换号段时最多等待预取
+     */
+    private Duration prefetchTimeout = PREFETCH_TIMEOUT;
+
+    /**
+     * 预取号段的线程池，专用，不与计算任务共用
+     */
+    private Executor executor;
+
+    /**
+     * 当前号段
+     */
+    private volatile Segment current = EMPTY;
+
+    /**
+     * 预取中或已预取的下一个号段，Null时未预取
+     */
+    private final AtomicReference<CompletableFuture<Segment>> next = new AtomicReference<>();
+
+    /**
+     * 创建 {@link SegmentSequence} 实例
+     *
+     * @param template    {@link StringRedisTemplate} 实例
+     * @param name        名称
+     * @param segmentSize 号段长度，如，每秒分配数
+     * @param executor    预取号段的线程池，专用，INCRBY阻塞线程，不使用 ForkJoinPool.commonPool()
+     * @return {@link SegmentSequence} 实例
+     */
+    public static SegmentSequence create(StringRedisTemplate template, String name, long segmentSize,
+                                         Executor executor) {
+        return new SegmentSequence(template, name).
+                setSegmentSize(segmentSize).
+                setExecutor(executor);
+    }
+
+    private SegmentSequence(StringRedisTemplate template, String name) {
+        Assert.notNull(template, "template can't be null");
+        Assert.hasText(name, "name can't be empty");
+
+        this.template = template;
+        this.name = name;
+    }
+
+    /**
+     * 下一个序列号
+     *
+     * @return 序列号，从1开始
+     */
+    public long next() {
+        while (true) {
+            Segment segment = current;
+            long result = segment.cursor.getAndIncrement();
+            if (result <= segment.max) {
+                if (result == segment.prefetchAt) {
+                    prefetch();
+                }
+
+                return result;
+            }
+
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 异步取下一个号段，已预取时忽略
+     */
+    private void prefetch() {
+        CompletableFuture<Segment> future = new CompletableFuture<>();
+        if (!next.compareAndSet(null, future)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(fetch());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 当前号段用完，切换到下一个号段
+     * 预取中时最多等待预取超时时长，未预取、预取失败或超时时同步取号段，保证进程内单调递增
+     * 超时的预取号段作废，比同步取的号段小，丢弃不破坏单调递增
+     *
+     * @param used 用完的号段
+     */
+    private synchronized void switchSegment(Segment used) {
+        if (current != used) {
+            return;
+        }
+
+        Segment segment = null;
+        CompletableFuture<Segment> future = next.getAndSet(null);
+        if (future != null) {
+            try {
+                segment = future.get(prefetchTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                LOGGER.warn("prefetch failed, name: {}, throwable: ", name, e.getCause());
+            } catch (TimeoutException e) {
+                LOGGER.warn("prefetch timeout, name: {}, prefetchTimeout: {}", name, prefetchTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("prefetch interrupted, name: {}", name);
+            }
+        }
+
+        current = segment != null ? segment : fetch();
+    }
+
+    /**
+     * INCRBY取号段
+     *
+     * @return 号段，[ 返回值 - 号段长度 + 1, 返回值 ]
+     */
+    private Segment fetch() {
+        long size = segmentSize;
+        Long max = template.opsForValue().increment(name, size);
+        if (max == null) {
+            throw new IllegalStateException("increment returned null, pipeline or transaction is not supported, name: " + name);
+        }
+
+        long min = max - size + 1;
+        long prefetchAt = max - (long) (size * watermark);
+        return new Segment(min, max, Math.max(min, prefetchAt));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 修改号段长度，下一次取号段时生效
+     *
+     * @param segmentSize 号段长度
+     * @return {@link SegmentSequence} 实例
+     */
+    public SegmentSequence setSegmentSize(long segmentSize) {
+        Assert.isTrue(segmentSize > 0, "segmentSize must be greater than 0");
+
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    public double getWatermark() {
+        return watermark;
+    }
+
+    public SegmentSequence setWatermark(double watermark) {
+        Assert.isTrue(watermark >= 0 && watermark < 1, "watermark must be between 0 (inclusive) and 1 (exclusive)");
+
+        this.watermark = watermark;
+        return this;
+    }
+
+    public Duration getPrefetchTimeout() {
+        return prefetchTimeout;
+    }
+
+    public SegmentSequence setPrefetchTimeout(Duration prefetchTimeout) {
+        Assert.isTrue(prefetchTimeout != null && !prefetchTimeout.isNegative(),
+                "prefetchTimeout must be greater than or equal to 0");
+
+        this.prefetchTimeout = prefetchTimeout;
+        return this;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public SegmentSequence setExecutor(Executor executor) {
+        Assert.notNull(executor, "executor can't be null");
+
+        this.executor = executor;
+        return this;
+    }
+
+    public StringRedisTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * 号段，[ min, max ]
+     */
+    private static final class Segment {
+        /**
+         * 下一个待分配的序列号
+         */
+        private final AtomicLong cursor;
+
+        /**
+         * 最大序列号（含）
+         */
+        private final long max;
+
+        /**
+         * 分配到此序列号时，预取下一个号段
+         */
+        private final long prefetchAt;
+
+        Segment(long min, long max, long prefetchAt) {
+            this.cursor = new AtomicLong(min);
+            this.max = max;
+            this.prefetchAt = prefetchAt;
+        }
+
+    }
+
+}
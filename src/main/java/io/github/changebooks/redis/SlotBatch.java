@@ -0,0 +1,254 @@
+package io.github.changebooks.redis;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * 集群模式下的批量写入
+ * <pre>
+ * 按槽位分组，同一个槽位的缓存键，一次脚本写入，由脚本所在的节点执行
+ * 再按节点分组，Lettuce时，每个节点的连接上连续发出全部槽位的脚本，不逐个等待（管道），最后统一等待结果
+ * 脚本通过EVALSHA执行，节点未缓存脚本（NOSCRIPT）时，改用EVAL，之后即已缓存
+ * 缓存键带相同的哈希标签（如，"{cacheName}"）时，同一个缓存名只需一次脚本
+ * 每次脚本最多 {@link #MAX_KEYS_PER_SCRIPT} 个缓存键，避免长时间阻塞Redis
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see KeyPrefix#hashTagged(boolean, String)
+ */
+public final class SlotBatch {
+    /**
+     * 脚本路径
+     */
+    private static final String SCRIPT_PATH = "batch-set.lua";
+
+    /**
+     * 脚本命令
+     */
+    private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>();
+
+    /**
+     * 脚本的内容，EVAL时使用
+     */
+    private static final byte[] SCRIPT_BYTES;
+
+    /**
+     * 节点未缓存脚本时的错误
+     */
+    private static final String NO_SCRIPT = "NOSCRIPT";
+
+    /**
+     * 每次脚本最多写入的缓存键数
+     */
+    public static final int MAX_KEYS_PER_SCRIPT = 100;
+
+    static {
+        ClassPathResource pathResource = new ClassPathResource(SCRIPT_PATH);
+        ResourceScriptSource scriptSource = new ResourceScriptSource(pathResource);
+
+        SCRIPT.setResultType(Long.class);
+        SCRIPT.setScriptSource(scriptSource);
+
+        SCRIPT_BYTES = SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private SlotBatch() {
+    }
+
+    /**
+     * 按槽位分组，批量写入
+     *
+     * @param connection 集群连接
+     * @param keys       缓存键列表
+     * @param values     缓存值列表，与缓存键一一对应
+     * @param ttls       过期时间列表，与缓存键一一对应，Null或小于等于0时不过期
+     * @return 写入数
+     */
+    public static long set(RedisClusterConnection connection, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        Assert.notNull(connection, "connection can't be null");
+        Assert.notNull(keys, "keys can't be null");
+        Assert.isTrue(values != null && values.size() == keys.size(), "values must be the same size as keys");
+        Assert.isTrue(ttls != null && ttls.size() == keys.size(), "ttls must be the same size as keys");
+
+        Map<Integer, List<Integer>> slots = new TreeMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            slots.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(keys.get(i)), slot -> new ArrayList<>()).add(i);
+        }
+
+        // [ 节点id : [ 每次脚本的参数 ] ]
+        Map<String, List<Batch>> nodes = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : slots.entrySet()) {
+            String nodeId = connection.clusterGetNodeForSlot(entry.getKey()).getId();
+            List<Batch> batches = nodes.computeIfAbsent(nodeId, id -> new ArrayList<>());
+
+            List<Integer> indexes = entry.getValue();
+            for (int from = 0; from < indexes.size(); from += MAX_KEYS_PER_SCRIPT) {
+                List<Integer> batch = indexes.subList(from, Math.min(from + MAX_KEYS_PER_SCRIPT, indexes.size()));
+                batches.add(new Batch(batch, keys, values, ttls));
+            }
+        }
+
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = asyncCommands(connection);
+        if (commands != null) {
+            return setPipelined(commands, nodes);
+        }
+
+        // 其它客户端，逐个脚本同步执行
+        long result = 0;
+        for (List<Batch> batches : nodes.values()) {
+            for (Batch batch : batches) {
+                result += evalSha(connection, batch);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 每个节点的连接上连续发出全部脚本，再统一等待
+     */
+    private static long setPipelined(RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands,
+                                     Map<String, List<Batch>> nodes) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (Map.Entry<String, List<Batch>> entry : nodes.entrySet()) {
+            RedisClusterAsyncCommands<byte[], byte[]> nodeCommands = commands.getConnection(entry.getKey());
+            for (Batch batch : entry.getValue()) {
+                futures.add(evalShaAsync(nodeCommands, batch));
+            }
+        }
+
+        long result = 0;
+        for (CompletableFuture<Long> future : futures) {
+            try {
+                Long count = future.join();
+                result += count != null ? count : 0;
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : ex;
+            }
+        }
+        return result;
+    }
+
+    private static CompletableFuture<Long> evalShaAsync(RedisClusterAsyncCommands<byte[], byte[]> nodeCommands, Batch batch) {
+        CompletableFuture<Long> evalSha = nodeCommands.<Long>evalsha(SCRIPT.getSha1(), ScriptOutputType.INTEGER,
+                batch.keys, batch.args).toCompletableFuture();
+
+        return evalSha.handle((count, ex) -> {
+            if (ex == null) {
+                return CompletableFuture.completedFuture(count);
+            }
+
+            if (isNoScript(ex)) {
+                return nodeCommands.<Long>eval(SCRIPT_BYTES, ScriptOutputType.INTEGER, batch.keys, batch.args).
+                        toCompletableFuture();
+            }
+
+            CompletableFuture<Long> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
+        }).thenCompose(Function.identity());
+    }
+
+    private static long evalSha(RedisClusterConnection connection, Batch batch) {
+        byte[][] keysAndArgs = batch.keysAndArgs();
+
+        Long result;
+        try {
+            result = connection.scriptingCommands().evalSha(SCRIPT.getSha1(), ReturnType.INTEGER,
+                    batch.keys.length, keysAndArgs);
+        } catch (RuntimeException ex) {
+            if (!isNoScript(ex)) {
+                throw ex;
+            }
+
+            result = connection.scriptingCommands().eval(SCRIPT_BYTES, ReturnType.INTEGER,
+                    batch.keys.length, keysAndArgs);
+        }
+
+        return result != null ? result : 0;
+    }
+
+    /**
+     * Lettuce集群连接的异步命令
+     *
+     * @return 不是Lettuce时返回Null
+     */
+    @SuppressWarnings("unchecked")
+    private static RedisAdvancedClusterAsyncCommands<byte[], byte[]> asyncCommands(RedisClusterConnection connection) {
+        if (!(connection instanceof LettuceConnection)) {
+            return null;
+        }
+
+        Object nativeConnection = ((LettuceConnection) connection).getNativeConnection();
+        return nativeConnection instanceof RedisAdvancedClusterAsyncCommands ?
+                (RedisAdvancedClusterAsyncCommands<byte[], byte[]>) nativeConnection : null;
+    }
+
+    private static boolean isNoScript(Throwable ex) {
+        for (Throwable current = ex; current != null; current = current.getCause()) {
+            if (current instanceof RedisNoScriptException ||
+                    (current.getMessage() != null && current.getMessage().contains(NO_SCRIPT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一次脚本的参数
+     */
+    private static final class Batch {
+        /**
+         * 缓存键
+         */
+        final byte[][] keys;
+
+        /**
+         * [值1, 过期时间1, 值2, 过期时间2, ...]
+         */
+        final byte[][] args;
+
+        Batch(List<Integer> indexes, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+            int numKeys = indexes.size();
+            this.keys = new byte[numKeys][];
+            this.args = new byte[numKeys * 2][];
+
+            for (int i = 0; i < numKeys; i++) {
+                int index = indexes.get(i);
+                Duration ttl = ttls.get(index);
+                long ttlMillis = ttl != null && !ttl.isNegative() ? ttl.toMillis() : 0;
+
+                this.keys[i] = keys.get(index);
+                this.args[i * 2] = values.get(index);
+                this.args[i * 2 + 1] = Long.toString(ttlMillis).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        /**
+         * 缓存键和参数，EVAL的格式
+         */
+        byte[][] keysAndArgs() {
+            byte[][] result = Arrays.copyOf(keys, keys.length + args.length);
+            System.arraycopy(args, 0, result, keys.length, args.length);
+            return result;
+        }
+    }
+
+}
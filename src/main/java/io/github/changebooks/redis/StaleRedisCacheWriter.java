@@ -0,0 +1,265 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis故障时，返回进程内的旧值
+ * <pre>
+ * 按缓存名开启，未开启的缓存名，按原方式读取
+ * 读取成功时，复制一份到进程内，按字节数限制总大小，过期时间即最大陈旧时间
+ * 读取失败时，返回进程内的旧值，没有时抛出原异常，当前线程可通过 {@link #isLastReadStale()} 判断
+ * 本进程写入和删除时，删除旧值
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class StaleRedisCacheWriter extends RedisCacheWriterDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaleRedisCacheWriter.class);
+
+    /**
+     * 当前线程最后一次读取，返回的是旧值？
+     */
+    private static final ThreadLocal<Boolean> LAST_READ_STALE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /**
+     * [ 缓存名 : 旧值 ]
+     */
+    private final Map<String, LocalCache<ByteBuffer, byte[]>> copies;
+
+    /**
+     * 日志限流
+     */
+    private final LogRateLimiter logRateLimiter;
+
+    /**
+     * 返回旧值的次数
+     */
+    private final LongAdder staleCount = new LongAdder();
+
+    /**
+     * 创建 {@link StaleRedisCacheWriter} 实例
+     *
+     * @param delegate       被装饰的写缓存
+     * @param maxStaleness   [ 缓存名 : 最大陈旧时间 ]
+     * @param maximumSize    每个缓存名，旧值的最大数量
+     * @param maximumBytes   每个缓存名，旧值的最大字节数
+     * @param logRateLimiter 返回旧值时的日志限流
+     */
+    public StaleRedisCacheWriter(RedisCacheWriter delegate, Map<String, Duration> maxStaleness,
+                                 int maximumSize, long maximumBytes, LogRateLimiter logRateLimiter) {
+        super(delegate);
+
+        Assert.notNull(maxStaleness, "maxStaleness can't be null");
+        Assert.notNull(logRateLimiter, "logRateLimiter can't be null");
+
+        this.copies = new HashMap<>(maxStaleness.size());
+        maxStaleness.forEach((name, ttl) -> {
+            Assert.isTrue(ttl != null && ttl.toMillis() > 0, "maxStaleness must be greater than 0");
+            this.copies.put(name, new LocalCache<>(maximumSize, maximumBytes, StaleRedisCacheWriter::weigh, ttl));
+        });
+        this.logRateLimiter = logRateLimiter;
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        LocalCache<ByteBuffer, byte[]> copy = copies.get(name);
+        if (copy == null) {
+            return super.get(name, key);
+        }
+
+        ByteBuffer localKey = ByteBuffer.wrap(key);
+        byte[] result;
+        try {
+            LAST_READ_STALE.set(Boolean.FALSE);
+            result = super.get(name, key);
+        } catch (RuntimeException ex) {
+            byte[] stale = copy.get(localKey);
+            if (stale == null) {
+                throw ex;
+            }
+
+            LAST_READ_STALE.set(Boolean.TRUE);
+            staleCount.increment();
+            long suppressed = logRateLimiter.tryAcquire(name);
+            if (suppressed >= 0) {
+                LOGGER.warn("serve stale, cacheName: {}, suppressed: {}, exception: {}", name, suppressed, ex.toString());
+            }
+            return stale;
+        }
+
+        if (result != null) {
+            copy.put(localKey, result);
+        } else {
+            copy.remove(localKey);
+        }
+
+        return result;
+    }
+
+    /**
+     * 批量读，失败时全部返回进程内的旧值，任一缺失时抛出原异常
+     */
+    @Override
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        LocalCache<ByteBuffer, byte[]> copy = copies.get(name);
+        if (copy == null) {
+            return super.getAll(name, keys);
+        }
+
+        List<byte[]> result;
+        try {
+            LAST_READ_STALE.set(Boolean.FALSE);
+            result = super.getAll(name, keys);
+        } catch (RuntimeException ex) {
+            List<byte[]> stales = new ArrayList<>(keys.size());
+            for (byte[] key : keys) {
+                byte[] stale = copy.get(ByteBuffer.wrap(key));
+                if (stale == null) {
+                    throw ex;
+                }
+                stales.add(stale);
+            }
+
+            LAST_READ_STALE.set(Boolean.TRUE);
+            staleCount.add(stales.size());
+            long suppressed = logRateLimiter.tryAcquire(name);
+            if (suppressed >= 0) {
+                LOGGER.warn("serve stale, cacheName: {}, suppressed: {}, exception: {}", name, suppressed, ex.toString());
+            }
+            return stales;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            ByteBuffer localKey = ByteBuffer.wrap(keys.get(i));
+            byte[] value = result.get(i);
+            if (value != null) {
+                copy.put(localKey, value);
+            } else {
+                copy.remove(localKey);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        super.put(name, key, value, ttl);
+        evictCopy(name, key);
+    }
+
+    @Override
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        super.putAll(name, keys, values, ttls);
+        keys.forEach(key -> evictCopy(name, key));
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        byte[] result = super.putIfAbsent(name, key, value, ttl);
+        evictCopy(name, key);
+        return result;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        evictCopy(name, key);
+        super.remove(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        LocalCache<ByteBuffer, byte[]> copy = copies.get(name);
+        if (copy != null) {
+            copy.clear();
+        }
+
+        super.clean(name, pattern);
+    }
+
+    private void evictCopy(String name, byte[] key) {
+        LocalCache<ByteBuffer, byte[]> copy = copies.get(name);
+        if (copy != null) {
+            copy.remove(ByteBuffer.wrap(key));
+        }
+    }
+
+    /**
+     * 旧值的权重，值的字节数
+     */
+    private static int weigh(byte[] value) {
+        return value.length;
+    }
+
+    /**
+     * 当前线程最后一次读取（开启的缓存名），返回的是旧值？
+     *
+     * @return 旧值？
+     */
+    public static boolean isLastReadStale() {
+        return LAST_READ_STALE.get();
+    }
+
+    /**
+     * 旧值占用的字节数
+     *
+     * @param name 缓存名
+     * @return 字节数，仅含值，未开启时返回0
+     */
+    public long getMemoryBytes(String name) {
+        LocalCache<ByteBuffer, byte[]> copy = copies.get(name);
+        return copy != null ? copy.weight() : 0;
+    }
+
+    /**
+     * 旧值占用的总字节数
+     *
+     * @return 字节数，仅含值
+     */
+    public long getMemoryBytes() {
+        long result = 0;
+        for (LocalCache<ByteBuffer, byte[]> copy : copies.values()) {
+            result += copy.weight();
+        }
+        return result;
+    }
+
+    /**
+     * 旧值的数量
+     *
+     * @param name 缓存名
+     * @return 数量，未开启时返回0
+     */
+    public int getStaleSize(String name) {
+        LocalCache<ByteBuffer, byte[]> copy = copies.get(name);
+        return copy != null ? copy.size() : 0;
+    }
+
+    /**
+     * 开启旧值的缓存名
+     *
+     * @return 缓存名列表
+     */
+    public Set<String> getCacheNames() {
+        return Collections.unmodifiableSet(copies.keySet());
+    }
+
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+}
@@ -0,0 +1,258 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+/**
+ * 防缓存击穿，同一个键，同时只有一个调用方重新计算
+ * <pre>
+ * 进程内，同一个键的并发加载合并为一次
+ * 进程间，通过 {@link CacheLock} 加锁，计算期间续期，抢到锁的计算并写入，完成后通过 {@link CacheNotifier} 通知
+ * 未抢到锁的，等待通知后重新读取，等待超时仍未命中时，自行计算
+ * 计算失败时，通知等待的进程立即自行计算，不再等待至超时
+ * 仅 {@link #get(Object, Callable)} 生效，如，@Cacheable(sync = true)
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class StampedeProtectedCache extends CacheDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StampedeProtectedCache.class);
+
+    /**
+     * 通知内容的拼接符
+     */
+    private static final String SEPARATOR = "\n";
+
+    /**
+     * 通知类型，已加载
+     */
+    private static final String LOADED = "L";
+
+    /**
+     * 通知类型，加载失败
+     */
+    private static final String FAILED = "F";
+
+    /**
+     * 进程内，加载中的键
+     */
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loadings = new ConcurrentHashMap<>();
+
+    /**
+     * 进程内，等待通知的键
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> waitings = new ConcurrentHashMap<>();
+
+    /**
+     * {@link StringRedisTemplate}
+     */
+    private final StringRedisTemplate template;
+
+    /**
+     * 跨进程通知
+     */
+    private final CacheNotifier notifier;
+
+    /**
+     * 锁名前缀，锁名 = 锁名前缀 + 缓存键
+     */
+    private final String lockPrefix;
+
+    /**
+     * 通知频道
+     */
+    private final String channel;
+
+    /**
+     * 锁的过期时间，也是等待通知的最长时间，单位：毫秒
+     */
+    private final long lockTime;
+
+    /**
+     * 创建 {@link StampedeProtectedCache} 实例
+     *
+     * @param delegate   被装饰的缓存
+     * @param template   {@link StringRedisTemplate} 实例
+     * @param notifier   跨进程通知
+     * @param lockPrefix 锁名前缀，在缓存键的命名空间外，清空缓存时不删除锁，如，KeyPrefix.internal(缓存名, "lock") + ":"
+     * @param channel    通知频道
+     * @param lockTime   锁的过期时间，也是等待通知的最长时间
+     */
+    public StampedeProtectedCache(Cache delegate, StringRedisTemplate template, CacheNotifier notifier,
+                                  String lockPrefix, String channel, Duration lockTime) {
+        super(delegate);
+
+        Assert.notNull(template, "template can't be null");
+        Assert.notNull(notifier, "notifier can't be null");
+        Assert.hasText(lockPrefix, "lockPrefix can't be empty");
+        Assert.hasText(channel, "channel can't be empty");
+        Assert.isTrue(lockTime != null && lockTime.toMillis() > 0, "lockTime must be greater than 0");
+
+        this.template = template;
+        this.notifier = notifier;
+        this.lockPrefix = lockPrefix;
+        this.channel = channel;
+        this.lockTime = lockTime.toMillis();
+
+        notifier.subscribe(channel, this::onMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = super.get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loadings.putIfAbsent(key, loading);
+        if (existing != null) {
+            // 进程内，已有线程在加载
+            return (T) join(key, existing);
+        }
+
+        try {
+            T result = load(key, valueLoader);
+            loading.complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            loading.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loadings.remove(key, loading);
+        }
+    }
+
+    /**
+     * 进程间，加锁后计算，或等待其它进程计算
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T load(Object key, Callable<T> valueLoader) {
+        String localKey = String.valueOf(key);
+        CacheLock lock = CacheLock.create(template, lockPrefix + localKey, notifier.getInstanceId());
+
+        if (lock.lock(lockTime, TimeUnit.MILLISECONDS)) {
+            // 计算期间续期，计算超过锁的过期时间时，其它进程不会重复计算
+            lock.scheduleRenewal(Math.max(1, lockTime / 3), lockTime, TimeUnit.MILLISECONDS);
+            try {
+                ValueWrapper wrapper = super.get(key);
+                if (wrapper != null) {
+                    return (T) wrapper.get();
+                }
+
+                T result;
+                try {
+                    result = call(key, valueLoader);
+                    super.put(key, result);
+                } catch (RuntimeException ex) {
+                    // 通知等待的进程，不再等待，自行计算
+                    notifier.publish(channel, FAILED + SEPARATOR + localKey);
+                    throw ex;
+                }
+
+                notifier.publish(channel, LOADED + SEPARATOR + localKey);
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 未抢到锁，先注册等待，再检查一次，避免错过通知
+        CompletableFuture<Void> waiting = waitings.computeIfAbsent(localKey, k -> new CompletableFuture<>());
+        try {
+            ValueWrapper wrapper = super.get(key);
+            if (wrapper != null) {
+                return (T) wrapper.get();
+            }
+
+            try {
+                waiting.get(lockTime, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                LOGGER.warn("waitLoaded timeout, cacheName: {}, key: {}", getName(), localKey);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                LOGGER.warn("waitLoaded failed, cacheName: {}, key: {}, cause: {}",
+                        getName(), localKey, ex.getCause().getMessage());
+            }
+
+            wrapper = super.get(key);
+            if (wrapper != null) {
+                return (T) wrapper.get();
+            }
+        } finally {
+            waitings.remove(localKey, waiting);
+        }
+
+        // 等待超时仍未命中，自行计算
+        T result = call(key, valueLoader);
+        super.put(key, result);
+        return result;
+    }
+
+    /**
+     * 收到其它进程的通知，唤醒等待的线程
+     * 加载失败时，等待的线程立即自行计算
+     *
+     * @param message 类型 + 键，旧版本的通知只有键，视为已加载
+     */
+    private void onMessage(String message) {
+        String[] parts = message.split(SEPARATOR, 2);
+        boolean typed = parts.length == 2 && (LOADED.equals(parts[0]) || FAILED.equals(parts[0]));
+        String localKey = typed ? parts[1] : message;
+
+        CompletableFuture<Void> waiting = waitings.remove(localKey);
+        if (waiting == null) {
+            return;
+        }
+
+        if (typed && FAILED.equals(parts[0])) {
+            waiting.completeExceptionally(new IllegalStateException("loader failed in another process"));
+        } else {
+            waiting.complete(null);
+        }
+    }
+
+    private Object join(Object key, CompletableFuture<Object> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ValueRetrievalException(key, null, cause);
+        }
+    }
+
+    private static <T> T call(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (ValueRetrievalException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+    }
+
+    public String getLockPrefix() {
+        return lockPrefix;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public long getLockTime() {
+        return lockTime;
+    }
+
+}
@@ -26,6 +26,11 @@ public final class TokenBucket {
      */
     private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>();
 
+    /**
+     * 全取或不取
+     */
+    private static final String ALL_OR_NOTHING = "1";
+
     static {
         ClassPathResource pathResource = new ClassPathResource(SCRIPT_PATH);
         ResourceScriptSource scriptSource = new ResourceScriptSource(pathResource);
@@ -69,6 +74,16 @@ public final class TokenBucket {
      */
     private final StringRedisTemplate template;
 
+    /**
+     * 热点键检测，Null时不检测
+     */
+    private HotKeyDetector hotKeyDetector;
+
+    /**
+     * 统计，Null时不统计
+     */
+    private CacheMetrics.LimiterStats limiterStats;
+
     /**
      * 创建 {@link TokenBucket} 实例
      *
@@ -94,7 +109,7 @@ public final class TokenBucket {
     }
 
     /**
-     * 取出令牌
+     * 取出令牌，可部分取出
      * 剩余令牌数 = 可取令牌数 - 实取令牌数
      *
      * @param permits 待取令牌数
@@ -107,11 +122,47 @@ public final class TokenBucket {
             permits = maxPermits;
         }
 
+        if (hotKeyDetector != null) {
+            hotKeyDetector.record(name);
+        }
+
         String arg3 = String.valueOf(System.currentTimeMillis());
         String arg4 = String.valueOf(permits);
 
         // 最大令牌数（桶容量）、每秒放入令牌数、当前时间（毫秒）、待取令牌数
-        return template.execute(SCRIPT, keys, arg1, arg2, arg3, arg4);
+        Long result = template.execute(SCRIPT, keys, arg1, arg2, arg3, arg4);
+        if (limiterStats != null) {
+            limiterStats.record(result != null && result > 0);
+        }
+
+        return result;
+    }
+
+    /**
+     * 取出令牌，全取或不取
+     * 可取令牌数不足时，不取，令牌留在桶中
+     *
+     * @param permits 待取令牌数，大于最大令牌数时，总是失败
+     * @return 取出了？
+     */
+    public boolean tryAcquire(int permits) {
+        Assert.isTrue(permits > 0, "permits must be greater than 0");
+
+        if (hotKeyDetector != null) {
+            hotKeyDetector.record(name);
+        }
+
+        String arg3 = String.valueOf(System.currentTimeMillis());
+        String arg4 = String.valueOf(permits);
+
+        // 最大令牌数（桶容量）、每秒放入令牌数、当前时间（毫秒）、待取令牌数、全取或不取
+        Long result = template.execute(SCRIPT, keys, arg1, arg2, arg3, arg4, ALL_OR_NOTHING);
+        boolean acquired = result != null && result >= permits;
+        if (limiterStats != null) {
+            limiterStats.record(acquired);
+        }
+
+        return acquired;
     }
 
     public String getName() {
@@ -158,4 +209,22 @@ public final class TokenBucket {
         return template;
     }
 
+    public HotKeyDetector getHotKeyDetector() {
+        return hotKeyDetector;
+    }
+
+    public TokenBucket setHotKeyDetector(HotKeyDetector hotKeyDetector) {
+        this.hotKeyDetector = hotKeyDetector;
+        return this;
+    }
+
+    public CacheMetrics.LimiterStats getLimiterStats() {
+        return limiterStats;
+    }
+
+    public TokenBucket setLimiterStats(CacheMetrics.LimiterStats limiterStats) {
+        this.limiterStats = limiterStats;
+        return this;
+    }
+
 }
@@ -0,0 +1,50 @@
+package io.github.changebooks.redis;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 分布式限流（令牌桶），取得全部令牌后执行方法
+ * <pre>
+ * 缓存名 = name + ":" + key的值，key为空时，缓存名 = name
+ * key为SpEL，如，"#userId"、"#p0"，每个方法只解析一次
+ * 实取令牌数小于待取令牌数时，抛出 {@link AcquireRejectedException}
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ * @see DistributedAnnotationAdvisor
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface TokenBucketLimited {
+
+    /**
+     * 缓存名
+     */
+    String name();
+
+    /**
+     * 缓存名的后缀，SpEL
+     */
+    String key() default "";
+
+    /**
+     * 最大令牌数（桶容量）
+     */
+    int maxPermits();
+
+    /**
+     * 每秒放入令牌数
+     */
+    int permitsPerSecond();
+
+    /**
+     * 每次调用的待取令牌数
+     */
+    int permits() default 1;
+
+}
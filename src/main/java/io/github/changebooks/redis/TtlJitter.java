@@ -0,0 +1,165 @@
+package io.github.changebooks.redis;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.DurationDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.DurationSerializer;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 缓存过期时间的随机偏移，避免同时写入的缓存同时过期
+ * <pre>
+ * 按比例，过期时间 ± 过期时间 * 比例，如，"10%"
+ * 按时长，过期时间 + [0, 时长)，如，"PT5M"
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public final class TtlJitter implements Serializable {
+    /**
+     * 比例的后缀
+     */
+    private static final String PERCENT = "%";
+
+    /**
+     * 偏移比例，如，0.1
+     */
+    private double ratio;
+
+    /**
+     * 偏移时长
+     */
+    @JsonSerialize(using = DurationSerializer.class)
+    @JsonDeserialize(using = DurationDeserializer.class)
+    private Duration window;
+
+    public TtlJitter() {
+    }
+
+    public TtlJitter(double ratio, Duration window) {
+        this.ratio = ratio;
+        this.window = window;
+    }
+
+    /**
+     * 按比例偏移
+     *
+     * @param ratio 偏移比例，(0, 1)
+     * @return {@link TtlJitter} 实例
+     */
+    public static TtlJitter ofRatio(double ratio) {
+        Assert.isTrue(ratio > 0 && ratio < 1, "ratio must be between 0 and 1");
+
+        return new TtlJitter(ratio, null);
+    }
+
+    /**
+     * 按时长偏移
+     *
+     * @param window 偏移时长
+     * @return {@link TtlJitter} 实例
+     */
+    public static TtlJitter ofWindow(Duration window) {
+        Assert.isTrue(window != null && window.toMillis() > 0, "window must be greater than 0");
+
+        return new TtlJitter(0, window);
+    }
+
+    /**
+     * 解析，如，"10%"、"PT5M"
+     *
+     * @param jitter 偏移字符串
+     * @return {@link TtlJitter} 实例，EmptyOrNull时返回Null
+     */
+    public static TtlJitter parse(String jitter) {
+        if (jitter == null || jitter.trim().isEmpty()) {
+            return null;
+        }
+
+        String cleanedJitter = jitter.trim();
+        if (cleanedJitter.endsWith(PERCENT)) {
+            String percent = cleanedJitter.substring(0, cleanedJitter.length() - PERCENT.length());
+            return ofRatio(Double.parseDouble(percent) / 100);
+        } else {
+            return ofWindow(Duration.parse(cleanedJitter));
+        }
+    }
+
+    /**
+     * 偏移过期时间
+     *
+     * @param ttl 过期时间
+     * @return 偏移后的过期时间，不偏移Null、0和负数
+     */
+    public Duration apply(Duration ttl) {
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return ttl;
+        }
+
+        long ttlMillis = ttl.toMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long offset = 0;
+        if (ratio > 0) {
+            long range = (long) (ttlMillis * ratio);
+            if (range > 0) {
+                offset += random.nextLong(-range, range + 1);
+            }
+        }
+
+        if (window != null) {
+            long windowMillis = window.toMillis();
+            if (windowMillis > 0) {
+                offset += random.nextLong(windowMillis);
+            }
+        }
+
+        return Duration.ofMillis(Math.max(1, ttlMillis + offset));
+    }
+
+    /**
+     * 偏移后的最短过期时间
+     *
+     * @param ttl 过期时间
+     * @return 最短过期时间，不偏移Null、0和负数
+     */
+    public Duration min(Duration ttl) {
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return ttl;
+        }
+
+        long ttlMillis = ttl.toMillis();
+        long range = ratio > 0 ? (long) (ttlMillis * ratio) : 0;
+        return Duration.ofMillis(Math.max(1, ttlMillis - range));
+    }
+
+    @Override
+    public String toString() {
+        if (window != null) {
+            return window.toString();
+        } else {
+            return ratio * 100 + PERCENT;
+        }
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    public void setRatio(double ratio) {
+        this.ratio = ratio;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+}
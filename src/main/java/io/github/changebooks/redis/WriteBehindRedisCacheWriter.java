@@ -0,0 +1,441 @@
+package io.github.changebooks.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 延迟写入，合并同一个键的多次写入
+ * <pre>
+ * 按缓存名开启，未开启的缓存名，按原方式写入
+ * 写入先进入缓冲区，同一个键只保留最后一次的值
+ * 每隔n毫秒，或缓冲区达到m个时，经过被装饰的写缓存批量写入，如，大值分片
+ * 缓冲区满时，调用方线程同步写入（背压）
+ * 读取先查缓冲区；删除、清空、不存在时写入，同步执行
+ * 停止时写入缓冲区中剩余的
+ * </pre>
+ *
+ * @author changebooks@qq.com
+ */
+public class WriteBehindRedisCacheWriter extends RedisCacheWriterDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindRedisCacheWriter.class);
+
+    /**
+     * 开启延迟写入的缓存名
+     */
+    private final Set<String> cacheNames;
+
+    /**
+     * 缓冲区，[ 缓存键 : 待写入 ]
+     */
+    private final ConcurrentMap<ByteBuffer, Pending> buffer = new ConcurrentHashMap<>();
+
+    /**
+     * 写入中，[ 缓存键 : 待写入 ]，写入完成前读取仍能命中
+     */
+    private volatile Map<ByteBuffer, Pending> flushing = Collections.emptyMap();
+
+    /**
+     * 批量写入的数量（m个）
+     */
+    private final int batchSize;
+
+    /**
+     * 缓冲区的最大数量
+     */
+    private final int capacity;
+
+    /**
+     * 执行批量写入
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * 定时写入的任务句柄
+     */
+    private final ScheduledFuture<?> flushFuture;
+
+    /**
+     * 批量写入和同步操作互斥，避免旧值覆盖删除
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 已提交批量写入？
+     */
+    private final AtomicBoolean flushSubmitted = new AtomicBoolean(false);
+
+    /**
+     * 已停止？
+     */
+    private volatile boolean stopped;
+
+    /**
+     * 进入缓冲区的次数
+     */
+    private final LongAdder bufferedCount = new LongAdder();
+
+    /**
+     * 被合并的次数，同一个键，覆盖了未写入的值
+     */
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * 写入Redis的数量
+     */
+    private final LongAdder flushedCount = new LongAdder();
+
+    /**
+     * 缓冲区满，调用方线程同步写入的次数
+     */
+    private final LongAdder backPressureCount = new LongAdder();
+
+    /**
+     * 创建 {@link WriteBehindRedisCacheWriter} 实例
+     *
+     * @param delegate   被装饰的写缓存，批量写入经过其 {@link RedisCacheWriterDecorator#putAll}
+     * @param cacheNames 开启延迟写入的缓存名
+     * @param interval   定时写入的间隔（n毫秒）
+     * @param batchSize  批量写入的数量（m个）
+     * @param capacity   缓冲区的最大数量
+     * @param executor   执行批量写入
+     */
+    public WriteBehindRedisCacheWriter(RedisCacheWriter delegate, Set<String> cacheNames,
+                                       Duration interval, int batchSize, int capacity,
+                                       ScheduledExecutorService executor) {
+        super(delegate);
+
+        Assert.notNull(cacheNames, "cacheNames can't be null");
+        Assert.isTrue(interval != null && interval.toMillis() > 0, "interval must be greater than 0");
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        Assert.isTrue(capacity >= batchSize, "capacity must be greater than or equal to batchSize");
+        Assert.notNull(executor, "executor can't be null");
+
+        this.cacheNames = new HashSet<>(cacheNames);
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.executor = executor;
+
+        long millis = interval.toMillis();
+        this.flushFuture = executor.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        if (stopped || !cacheNames.contains(name)) {
+            super.put(name, key, value, ttl);
+            return;
+        }
+
+        if (buffer.size() >= capacity) {
+            // 缓冲区满，先同步写入，失败时不再进入缓冲区
+            backPressureCount.increment();
+            flush();
+        }
+
+        bufferedCount.increment();
+        if (buffer.put(ByteBuffer.wrap(key), new Pending(name, key, value, ttl)) != null) {
+            coalescedCount.increment();
+        }
+
+        if (buffer.size() >= batchSize) {
+            submitFlush();
+        }
+    }
+
+    /**
+     * 批量写，逐个进入缓冲区，与单个写入合并
+     */
+    @Override
+    public void putAll(String name, List<byte[]> keys, List<byte[]> values, List<Duration> ttls) {
+        if (stopped || !cacheNames.contains(name)) {
+            super.putAll(name, keys, values, ttls);
+            return;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            put(name, keys.get(i), values.get(i), ttls.get(i));
+        }
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        if (cacheNames.contains(name)) {
+            Pending pending = pending(key);
+            if (pending != null) {
+                return pending.value;
+            }
+        }
+
+        return super.get(name, key);
+    }
+
+    /**
+     * 批量读，先查缓冲区，其余的批量读取
+     */
+    @Override
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        if (!cacheNames.contains(name)) {
+            return super.getAll(name, keys);
+        }
+
+        List<byte[]> result = new ArrayList<>(keys.size());
+        List<byte[]> misses = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            Pending pending = pending(key);
+            result.add(pending != null ? pending.value : null);
+            if (pending == null) {
+                misses.add(key);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        List<byte[]> values = super.getAll(name, misses);
+        for (int i = 0, j = 0; i < result.size(); i++) {
+            if (result.get(i) == null) {
+                result.set(i, values.get(j++));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        if (!cacheNames.contains(name)) {
+            return super.putIfAbsent(name, key, value, ttl);
+        }
+
+        flushLock.lock();
+        try {
+            Pending pending = buffer.get(ByteBuffer.wrap(key));
+            if (pending != null) {
+                return pending.value;
+            }
+
+            return super.putIfAbsent(name, key, value, ttl);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        if (!cacheNames.contains(name)) {
+            super.remove(name, key);
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            buffer.remove(ByteBuffer.wrap(key));
+            super.remove(name, key);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        if (!cacheNames.contains(name)) {
+            super.clean(name, pattern);
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            buffer.values().removeIf(pending -> name.equals(pending.name));
+            super.clean(name, pattern);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 写入缓冲区中的全部
+     * 失败时，未被新值覆盖的放回缓冲区
+     *
+     * @return 写入的数量
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            if (buffer.isEmpty()) {
+                return 0;
+            }
+
+            // 先发布写入中，再移出缓冲区，读取不会同时错过两者
+            Map<ByteBuffer, Pending> batch = new HashMap<>(buffer);
+            flushing = batch;
+
+            List<Pending> written = new ArrayList<>(batch.size());
+            batch.forEach((localKey, pending) -> {
+                // 移出失败时，已被新值覆盖，新值留在缓冲区
+                if (buffer.remove(localKey, pending)) {
+                    written.add(pending);
+                }
+            });
+
+            try {
+                write(written);
+            } catch (RuntimeException ex) {
+                written.forEach(pending -> buffer.putIfAbsent(ByteBuffer.wrap(pending.key), pending));
+                throw ex;
+            } finally {
+                flushing = Collections.emptyMap();
+            }
+
+            flushedCount.add(written.size());
+            return written.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 停止定时写入，并写入缓冲区中剩余的，之后的写入不再延迟
+     */
+    public void stop() {
+        stopped = true;
+        flushFuture.cancel(false);
+        flush();
+    }
+
+    /**
+     * 缓冲区或写入中的值
+     *
+     * @param key 缓存键
+     * @return 待写入，不存在时返回Null
+     */
+    private Pending pending(byte[] key) {
+        ByteBuffer localKey = ByteBuffer.wrap(key);
+        Pending result = buffer.get(localKey);
+        return result != null ? result : flushing.get(localKey);
+    }
+
+    private void submitFlush() {
+        if (flushSubmitted.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    flushSubmitted.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException ex) {
+                flushSubmitted.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            LOGGER.error("flush failed, buffered: {}, throwable: ", buffer.size(), ex);
+        }
+    }
+
+    /**
+     * 按缓存名分组，经过被装饰的写缓存批量写入
+     */
+    private void write(List<Pending> batch) {
+        Map<String, List<Pending>> groups = new HashMap<>();
+        for (Pending pending : batch) {
+            groups.computeIfAbsent(pending.name, name -> new ArrayList<>()).add(pending);
+        }
+
+        groups.forEach((name, group) -> {
+            List<byte[]> keys = new ArrayList<>(group.size());
+            List<byte[]> values = new ArrayList<>(group.size());
+            List<Duration> ttls = new ArrayList<>(group.size());
+            for (Pending pending : group) {
+                keys.add(pending.key);
+                values.add(pending.value);
+                ttls.add(pending.ttl);
+            }
+
+            super.putAll(name, keys, values, ttls);
+        });
+    }
+
+    /**
+     * 缓冲区中的数量
+     *
+     * @return 数量
+     */
+    public int getBufferedSize() {
+        return buffer.size();
+    }
+
+    public Set<String> getCacheNames() {
+        return cacheNames;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getBufferedCount() {
+        return bufferedCount.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    public long getBackPressureCount() {
+        return backPressureCount.sum();
+    }
+
+    /**
+     * 待写入
+     */
+    private static final class Pending {
+        /**
+         * 缓存名
+         */
+        final String name;
+
+        /**
+         * 缓存键
+         */
+        final byte[] key;
+
+        /**
+         * 缓存值
+         */
+        final byte[] value;
+
+        /**
+         * 过期时间
+         */
+        final Duration ttl;
+
+        Pending(String name, byte[] key, byte[] value, Duration ttl) {
+            this.name = name;
+            this.key = key;
+            this.value = value;
+            this.ttl = ttl;
+        }
+    }
+
+}
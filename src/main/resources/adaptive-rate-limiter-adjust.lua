@@ -0,0 +1,74 @@
+-- 分布式限流（自适应，固定时间窗口）
+-- 调整许可数，加性增、乘性减
+
+-- 当前许可数的存储名
+local limitName = KEYS[1]
+
+-- 初始许可数
+local initialPermits = tonumber(ARGV[1])
+
+-- 最小许可数
+local minPermits = tonumber(ARGV[2])
+
+-- 最大许可数
+local maxPermits = tonumber(ARGV[3])
+
+-- 每次增加的许可数
+local increaseStep = tonumber(ARGV[4])
+
+-- 每次减少的比例，新许可数 = 当前许可数 * 比例
+local decreaseFactor = tonumber(ARGV[5])
+
+-- 两次调整的最小间隔，单位：毫秒
+local cooldown = tonumber(ARGV[6])
+
+-- 调整方向，1：增加，0：减少
+local increase = tonumber(ARGV[7]) == 1
+
+-- 当前许可数的过期时间，单位：毫秒
+local limitTtl = tonumber(ARGV[8])
+
+-- 当前时间，单位：毫秒，取Redis服务端时间，不受客户端时钟偏差影响
+-- 先按效果复制，脚本内可先读时间再写入
+redis.replicate_commands()
+local time = redis.call('time')
+local nowTime = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local values = redis.call('hmget', limitName, 'limit', 'increasedAt', 'decreasedAt')
+
+local limit = tonumber(values[1])
+if limit == nil then
+    limit = initialPermits
+end
+
+local increasedAt = tonumber(values[2])
+if increasedAt == nil then
+    increasedAt = 0
+end
+
+local decreasedAt = tonumber(values[3])
+if decreasedAt == nil then
+    decreasedAt = 0
+end
+
+if increase then
+    -- 任一次调整后的间隔内，不再增加
+    if nowTime - increasedAt < cooldown or nowTime - decreasedAt < cooldown then
+        return limit
+    end
+
+    limit = math.min(maxPermits, limit + increaseStep)
+    redis.call('hset', limitName, 'limit', limit, 'increasedAt', nowTime)
+    redis.call('pexpire', limitName, limitTtl)
+else
+    -- 上次减少后的间隔内，不再减少，避免多个客户端同时报告拥塞时，许可数被连续减半
+    if nowTime - decreasedAt < cooldown then
+        return limit
+    end
+
+    limit = math.max(minPermits, math.floor(limit * decreaseFactor))
+    redis.call('hset', limitName, 'limit', limit, 'decreasedAt', nowTime)
+    redis.call('pexpire', limitName, limitTtl)
+end
+
+return limit
@@ -0,0 +1,48 @@
+-- 分布式限流（自适应，固定时间窗口）
+-- x秒内，许可n次，n由加性增、乘性减动态调整
+
+-- 名称
+local name = KEYS[1]
+
+-- 当前许可数的存储名
+local limitName = KEYS[2]
+
+-- 总秒数（x秒内）
+local totalSeconds = tonumber(ARGV[1])
+
+-- 初始许可数，未调整过时使用
+local totalPermits = tonumber(redis.call('hget', limitName, 'limit'))
+if totalPermits == nil then
+    totalPermits = tonumber(ARGV[2])
+end
+
+-- 已许可数
+local usedPermits = tonumber(redis.call('get', name))
+if usedPermits == nil then
+    usedPermits = 0
+end
+
+if usedPermits >= totalPermits then
+    -- x秒内，已许可n次
+    -- 拒绝请求，返回负的当前许可数
+    return -totalPermits
+end
+
+-- 已许可数 + 1
+usedPermits = redis.call('incr', name)
+
+if usedPermits == 1 or redis.call('ttl', name) == -1 then
+    -- x秒内，首次许可
+    -- 或
+    -- 未设过期时间
+    redis.call('expire', name, totalSeconds)
+end
+
+if usedPermits > totalPermits then
+    -- x秒内，已许可n次
+    -- 拒绝请求，返回负的当前许可数
+    return -totalPermits
+else
+    -- 通过请求，返回当前许可数
+    return totalPermits
+end
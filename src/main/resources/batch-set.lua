@@ -0,0 +1,22 @@
+-- 批量写入，同一个槽位的缓存键
+-- ARGV = [值1, 过期时间1, 值2, 过期时间2, ...]
+
+-- 缓存键数
+local count = #KEYS
+
+for i = 1, count do
+    -- 缓存值
+    local value = ARGV[i * 2 - 1]
+
+    -- 过期时间，单位：毫秒，小于等于0时不过期
+    local ttl = tonumber(ARGV[i * 2])
+
+    if ttl ~= nil and ttl > 0 then
+        redis.call('set', KEYS[i], value, 'px', ttl)
+    else
+        redis.call('set', KEYS[i], value)
+    end
+end
+
+-- 写入数
+return count
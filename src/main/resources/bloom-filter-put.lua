@@ -0,0 +1,12 @@
+-- 共享的布隆过滤器，写入
+-- ARGV = [位偏移1, 位偏移2, ...]
+
+-- 位数组
+local name = KEYS[1]
+
+for i = 1, #ARGV do
+    redis.call('setbit', name, ARGV[i], 1)
+end
+
+-- 写入的位数
+return #ARGV
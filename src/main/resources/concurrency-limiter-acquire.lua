@@ -0,0 +1,41 @@
+-- 分布式限流（并发数）
+-- 同时持有许可数，不超过n个
+
+-- 名称
+local name = KEYS[1]
+
+-- 最大并发数
+local maxConcurrency = tonumber(ARGV[1])
+
+-- 租约时长，单位：毫秒
+local leaseTime = tonumber(ARGV[2])
+
+-- 许可id
+local permit = ARGV[3]
+
+-- 当前时间，单位：毫秒，取Redis服务端时间，不受客户端时钟偏差影响
+-- 先按效果复制，脚本内可先读时间再写入
+redis.replicate_commands()
+local time = redis.call('time')
+local nowTime = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+-- 清理租约已过期的持有者
+redis.call('zremrangebyscore', name, '-inf', nowTime)
+
+if redis.call('zcard', name) >= maxConcurrency then
+    -- 已达最大并发数
+    -- 拒绝请求
+    return 0
+end
+
+-- 持有者，分值为租约到期时间
+redis.call('zadd', name, nowTime + leaseTime, permit)
+
+-- 最后一个持有者到期后，删除整个集合
+local ttl = redis.call('pttl', name)
+if ttl < leaseTime then
+    redis.call('pexpire', name, leaseTime)
+end
+
+-- 通过请求
+return 1
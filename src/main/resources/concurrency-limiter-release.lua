@@ -0,0 +1,23 @@
+-- 分布式限流（并发数）
+-- 归还许可
+
+-- 名称
+local name = KEYS[1]
+
+-- 当前时间，单位：毫秒，取Redis服务端时间，不受客户端时钟偏差影响
+-- 先按效果复制，脚本内可先读时间再写入
+redis.replicate_commands()
+local time = redis.call('time')
+local nowTime = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+-- 清理租约已过期的持有者
+redis.call('zremrangebyscore', name, '-inf', nowTime)
+
+-- 已归还许可数
+local released = 0
+
+for i = 1, #ARGV do
+    released = released + redis.call('zrem', name, ARGV[i])
+end
+
+return released
@@ -0,0 +1,42 @@
+-- 分布式限流（并发数）
+-- 批量续期
+
+-- 名称
+local name = KEYS[1]
+
+-- 租约时长，单位：毫秒
+local leaseTime = tonumber(ARGV[1])
+
+-- 当前时间，单位：毫秒，取Redis服务端时间，不受客户端时钟偏差影响
+-- 先按效果复制，脚本内可先读时间再写入
+redis.replicate_commands()
+local time = redis.call('time')
+local nowTime = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+-- 清理租约已过期的持有者
+redis.call('zremrangebyscore', name, '-inf', nowTime)
+
+-- 已续期许可数
+local renewed = 0
+
+-- 已丢失的许可，租约已过期或已归还
+local lost = {}
+
+for i = 2, #ARGV do
+    -- 仅续期仍持有的许可，已过期或已归还的许可不再加回
+    if redis.call('zscore', name, ARGV[i]) then
+        redis.call('zadd', name, nowTime + leaseTime, ARGV[i])
+        renewed = renewed + 1
+    else
+        lost[#lost + 1] = ARGV[i]
+    end
+end
+
+if renewed > 0 then
+    local ttl = redis.call('pttl', name)
+    if ttl < leaseTime then
+        redis.call('pexpire', name, leaseTime)
+    end
+end
+
+return lost
@@ -16,6 +16,9 @@ local nowTime = tonumber(ARGV[3])
 -- 待取令牌数
 local acquirePermits = tonumber(ARGV[4])
 
+-- 全取或不取？可取令牌数不足时，不取
+local allOrNothing = ARGV[5] == '1'
+
 -- 上次取令牌时间，单位：毫秒
 local lastTime = 0
 
@@ -65,8 +68,13 @@ if availablePermits < 0 then
 end
 
 -- 实取令牌数 = MIN(待取令牌数, 可取令牌数)
+-- 全取或不取时，不足则为0
 if acquirePermits > availablePermits then
-    acquirePermits = availablePermits
+    if allOrNothing then
+        acquirePermits = 0
+    else
+        acquirePermits = availablePermits
+    end
 end
 
 -- 本次取令牌后，剩余可取令牌数
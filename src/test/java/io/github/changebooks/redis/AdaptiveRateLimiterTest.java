@@ -0,0 +1,57 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveRateLimiterTest {
+
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        template = EmbeddedRedis.stringRedisTemplate();
+    }
+
+    @Test
+    void keysShareOneSlot() {
+        AdaptiveRateLimiter limiter = AdaptiveRateLimiter.create(template, "prefix::api", 1, 1, 10, 5);
+
+        List<String> keys = limiter.getKeys();
+        assertEquals("{prefix::api}", keys.get(0));
+        assertEquals("{prefix::api}:limit", keys.get(1));
+        assertEquals(ClusterSlotHashUtil.calculateSlot(keys.get(0)), ClusterSlotHashUtil.calculateSlot(keys.get(1)));
+    }
+
+    @Test
+    void decreaseOnFailureAndExpireLimit() {
+        AdaptiveRateLimiter limiter = AdaptiveRateLimiter.create(template, "api", 60, 1, 10, 4).
+                setLimitTtl(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.acquire());
+        }
+        assertFalse(limiter.acquire());
+
+        limiter.onFailure();
+        assertEquals(2, limiter.getLimit());
+        assertEquals("2", template.opsForHash().get("{api}:limit", "limit"));
+
+        Long ttl = template.getExpire("{api}:limit", TimeUnit.MILLISECONDS);
+        assertTrue(ttl != null && ttl > 0 && ttl <= 10000);
+
+        // 同一个时间窗口内，不再减少
+        limiter.onFailure();
+        assertEquals(2, limiter.getLimit());
+    }
+
+}
@@ -0,0 +1,68 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncRedisCacheWriterTest {
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private AsyncRedisCacheWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        connectionFactory = EmbeddedRedis.connectionFactory();
+
+        RedisCacheWriter batchWriter = new BatchRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), connectionFactory);
+        RedisCacheWriter chunkedWriter = new ChunkedRedisCacheWriter(batchWriter, connectionFactory,
+                Collections.singletonMap("report", 64), 32);
+        writer = new AsyncRedisCacheWriter(chunkedWriter, connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    void asyncReadsAndWrites() throws Exception {
+        ExtendedRedisCache cache = cache("product");
+
+        cache.putAsync("a", "1").get(5, TimeUnit.SECONDS);
+
+        assertEquals("1", cache.retrieve("a").get(5, TimeUnit.SECONDS).get());
+        assertEquals("1", cache.get("a", String.class));
+        assertTrue(cache.evictAsync("a").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void asyncIsRejectedWhenDecoratorsWouldBeBypassed() {
+        assertFalse(writer.supports("report"));
+        assertThrows(UnsupportedOperationException.class, () -> cache("report").retrieve("a"));
+        assertThrows(UnsupportedOperationException.class, () -> cache("report").putAsync("a", "1"));
+
+        ExtendedRedisCache nearCached = cache("product").setAsyncSupported(false);
+        assertThrows(UnsupportedOperationException.class, () -> nearCached.evictAsync("a"));
+    }
+
+    private ExtendedRedisCache cache(String name) {
+        return new ExtendedRedisCache(name, writer,
+                RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)), connectionFactory);
+    }
+
+}
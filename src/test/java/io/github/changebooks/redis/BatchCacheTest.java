@@ -0,0 +1,173 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCacheTest {
+
+    private static final String NAME = "product";
+
+    private RedisConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        connectionFactory = EmbeddedRedis.connectionFactory();
+    }
+
+    @Test
+    void getAllUnwrapsRefreshAheadValues() {
+        ExtendedRedisCache redisCache = cache(batchWriter());
+        BatchCache cache = new RefreshAheadCache(redisCache, Duration.ofMinutes(10), 1.0, null, Runnable::run);
+
+        cache.putAll(Collections.singletonMap("a", "1"));
+
+        assertEquals(Collections.singletonMap("a", "1"), cache.getAll(Arrays.asList("a", "b")));
+        assertInstanceOf(RefreshAheadValue.class, redisCache.getAll(Collections.singleton("a")).get("a"));
+    }
+
+    @Test
+    void tombstonesAreNullHits() {
+        ExtendedRedisCache redisCache = cache(batchWriter());
+        Map<String, String> values = new HashMap<>();
+        values.put("a", null);
+        values.put("b", "2");
+        new NegativeCache(redisCache, Duration.ofMinutes(1), 100, null).putAll(values);
+
+        // 进程内没有墓碑，从Redis读到墓碑
+        NegativeCache cache = new NegativeCache(redisCache, Duration.ofMinutes(1), 100, null);
+        List<Set<String>> loads = new ArrayList<>();
+        Map<String, String> result = cache.getAll(Arrays.asList("a", "b", "c"), misses -> {
+            loads.add(misses);
+            return Collections.singletonMap("c", "3");
+        });
+
+        assertEquals(Collections.singletonList(Collections.singleton("c")), loads);
+        assertTrue(result.containsKey("a"));
+        assertNull(result.get("a"));
+        assertEquals("2", result.get("b"));
+        assertEquals("3", result.get("c"));
+        assertEquals(1, cache.getRemoteTombstoneHits());
+    }
+
+    @Test
+    void writeBehindBufferIsReadAndCoalesced() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            WriteBehindRedisCacheWriter writer = new WriteBehindRedisCacheWriter(batchWriter(),
+                    Collections.singleton(NAME), Duration.ofHours(1), 100, 1000, executor);
+            ExtendedRedisCache cache = cache(writer);
+
+            cache.put("a", "old");
+            assertEquals("old", cache.getAll(Collections.singleton("a")).get("a"));
+
+            // 批量写与缓冲区合并，不被之后写入的旧值覆盖
+            cache.putAll(Collections.singletonMap("a", "new"));
+            writer.flush();
+
+            assertEquals("new", cache(batchWriter()).get("a", String.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void writeBehindFlushesThroughChunkedWriter() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ChunkedRedisCacheWriter chunkedWriter = new ChunkedRedisCacheWriter(batchWriter(), connectionFactory,
+                    Collections.singletonMap(NAME, 64), 32);
+            WriteBehindRedisCacheWriter writer = new WriteBehindRedisCacheWriter(chunkedWriter,
+                    Collections.singleton(NAME), Duration.ofHours(1), 100, 1000, executor);
+
+            String large = String.join("", Collections.nCopies(100, "chunk"));
+            cache(writer).put("a", large);
+            assertEquals(1, writer.flush());
+
+            assertEquals(1, chunkedWriter.getChunkedPutCount());
+            assertEquals(large, cache(chunkedWriter).get("a", String.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void putAllUpdatesNearCache() {
+        CacheNotifier notifier = new CacheNotifier(connectionFactory, EmbeddedRedis.stringRedisTemplate());
+        try {
+            NearCache cache = new NearCache(cache(batchWriter()), 100, Duration.ofMinutes(1), notifier, "near");
+
+            cache.put("a", "old");
+            cache.putAll(Collections.singletonMap("a", "new"));
+
+            assertEquals("new", cache.get("a", String.class));
+            assertEquals("new", cache.getAll(Collections.singleton("a")).get("a"));
+            assertEquals(2, cache.getLocalHits());
+        } finally {
+            notifier.stop();
+        }
+    }
+
+    @Test
+    void putAllEvictsStaleCopiesAndReplicas() {
+        StaleRedisCacheWriter staleWriter = new StaleRedisCacheWriter(batchWriter(),
+                Collections.singletonMap(NAME, Duration.ofMinutes(1)), 100, 1 << 20, new LogRateLimiter(Duration.ofMinutes(1)));
+        HotKeyRedisCacheWriter hotKeyWriter = new HotKeyRedisCacheWriter(staleWriter, HotKeyDetector.create(1024, 1),
+                Collections.singletonMap(NAME, Duration.ofMinutes(1)), 100);
+        ExtendedRedisCache cache = cache(hotKeyWriter);
+
+        cache.putAll(Collections.singletonMap("a", "1"));
+        assertEquals("1", cache.getAll(Collections.singleton("a")).get("a"));
+        assertEquals(1, staleWriter.getStaleSize(NAME));
+        assertEquals(1, hotKeyWriter.getReplicaSize(NAME));
+
+        cache.putAll(Collections.singletonMap("a", "2"));
+        assertEquals(0, staleWriter.getStaleSize(NAME));
+        assertEquals(0, hotKeyWriter.getReplicaSize(NAME));
+        assertEquals("2", cache.getAll(Collections.singleton("a")).get("a"));
+    }
+
+    @Test
+    void chunkedValuesAreWrittenAndReadInBatch() {
+        ChunkedRedisCacheWriter writer = new ChunkedRedisCacheWriter(batchWriter(), connectionFactory,
+                Collections.singletonMap(NAME, 64), 32);
+        ExtendedRedisCache cache = cache(writer);
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("chunk");
+        }
+
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("a", large.toString());
+        values.put("b", "small");
+        cache.putAll(values);
+
+        assertEquals(1, writer.getChunkedPutCount());
+        assertEquals(values, cache.getAll(Arrays.asList("a", "b")));
+        assertEquals(1, writer.getChunkedGetCount());
+    }
+
+    private RedisCacheWriter batchWriter() {
+        return new BatchRedisCacheWriter(RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), connectionFactory);
+    }
+
+    private ExtendedRedisCache cache(RedisCacheWriter cacheWriter) {
+        RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10));
+        return new ExtendedRedisCache(NAME, cacheWriter, cacheConfig, connectionFactory);
+    }
+
+}
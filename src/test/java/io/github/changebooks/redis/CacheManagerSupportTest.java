@@ -0,0 +1,130 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheManagerSupportTest {
+
+    private static final RedisSerializationContext.SerializationPair<String> CUSTOM_PAIR =
+            RedisSerializationContext.SerializationPair.fromSerializer(RedisSerializer.string());
+
+    @Test
+    void legacyHooksApplyToListedCaches() {
+        List<CacheNameTtl> cacheNameTtlList = new CachePrefixNameTtlSupport().
+                cacheNameTtlList(Arrays.asList("city&PT1H", "zip&PT1H&serializer=binary&nulls=false"));
+
+        CacheManagerSupport support = new CacheManagerSupport(null, true, "app", Duration.ofMinutes(5), cacheNameTtlList) {
+            @Override
+            public RedisSerializationContext.SerializationPair<?> valueSerializationPair() {
+                return CUSTOM_PAIR;
+            }
+
+            @Override
+            public RedisCacheConfiguration redisCacheConfiguration(Duration ttl) {
+                return super.redisCacheConfiguration(ttl).prefixCacheNameWith("custom:");
+            }
+        };
+
+        Map<String, RedisCacheConfiguration> configurations = support.redisCacheConfigurationMap();
+
+        RedisCacheConfiguration city = configurations.get("city");
+        assertSame(CUSTOM_PAIR, city.getValueSerializationPair());
+        assertEquals("custom:city::", city.getKeyPrefixFor("city"));
+        assertEquals(Duration.ofHours(1), city.getTtl());
+        assertTrue(city.getAllowCacheNullValues());
+
+        RedisCacheConfiguration zip = configurations.get("zip");
+        assertEquals("custom:zip::", zip.getKeyPrefixFor("zip"));
+        assertFalse(zip.getAllowCacheNullValues());
+        assertNotSame(CUSTOM_PAIR, zip.getValueSerializationPair());
+    }
+
+    @Test
+    void optionValuesAreParsedStrictly() {
+        CachePrefixNameTtlSupport support = new CachePrefixNameTtlSupport();
+
+        CacheOptions options = support.cacheNameTtl("city&PT1H&l1=10000&nulls=FALSE&snapshot").getOptions();
+        assertEquals(10000, options.getNearCacheSize());
+        assertEquals(Boolean.FALSE, options.getCacheNullValues());
+        assertTrue(options.isSnapshot());
+
+        assertThrows(IllegalArgumentException.class, () -> support.cacheNameTtl("city&PT1H&nulls=fasle"));
+        assertThrows(IllegalArgumentException.class, () -> support.cacheNameTtl("city&PT1H&snapshot=yes"));
+        assertThrows(NumberFormatException.class, () -> support.cacheNameTtl("city&PT1H&l1=10k"));
+    }
+
+    @Test
+    void internalKeysSurviveClear() {
+        EmbeddedRedis.flushAll();
+        StringRedisTemplate template = EmbeddedRedis.stringRedisTemplate();
+        CacheManagerSupport support = new CacheManagerSupport(null, true, "app::", Duration.ofMinutes(5), null);
+
+        String prefixedCacheName = support.prefixedCacheName("city");
+        String lock = KeyPrefix.internal(prefixedCacheName, "lock") + KeyPrefix.SEPARATOR + "a";
+        template.opsForValue().set(lock, "token");
+        String knownKeys = KeyPrefix.internal(prefixedCacheName, "known-keys");
+        template.opsForValue().setBit(knownKeys, 1, true);
+
+        RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig().
+                computePrefixWith(KeyPrefix.of(true, "app::"));
+        ExtendedRedisCache cache = new ExtendedRedisCache("city", RedisCacheWriter.nonLockingRedisCacheWriter(
+                EmbeddedRedis.connectionFactory()), cacheConfig, EmbeddedRedis.connectionFactory());
+        cache.put("lock:a", "value");
+        cache.put("known-keys", "value");
+
+        // 清空缓存只删除缓存键，不删除其它进程持有的锁和已知存在的键
+        cache.clear();
+        assertFalse(template.hasKey("app::city:lock:a"));
+        assertEquals("token", template.opsForValue().get(lock));
+        assertTrue(template.opsForValue().getBit(knownKeys, 1));
+    }
+
+    @Test
+    void generationIsStoredOutsideCacheKeySpace() {
+        CacheManagerSupport support = new CacheManagerSupport(null, true, "app::", Duration.ofMinutes(5), null);
+        CacheNotifier notifier = new CacheNotifier(EmbeddedRedis.connectionFactory(), EmbeddedRedis.stringRedisTemplate());
+        try {
+            CacheGeneration generation = new CacheGeneration(EmbeddedRedis.stringRedisTemplate(), notifier, support,
+                    "generation", Duration.ofSeconds(1));
+
+            // 快照和清空缓存的匹配模式是 "app::city:*"
+            assertEquals("app::city#generation", generation.key("city"));
+            assertFalse(generation.key("city").startsWith("app::city" + KeyPrefix.SEPARATOR));
+        } finally {
+            notifier.stop();
+        }
+    }
+
+    @Test
+    void compressionSerializerIsCreatedOncePerCache() {
+        List<CacheNameTtl> cacheNameTtlList = new CachePrefixNameTtlSupport().
+                cacheNameTtlList(Arrays.asList("report&PT1H&compress=1k&snapshot"));
+        CacheManagerSupport support = new CacheManagerSupport(null, true, "app", Duration.ofMinutes(5), cacheNameTtlList);
+
+        support.redisCacheConfigurationMap();
+        CompressionRedisSerializer<?> first = support.getCompressionSerializer("report");
+        assertNotNull(first);
+
+        support.redisCacheConfiguration("report", Duration.ofHours(1));
+        support.snapshotPrefixes();
+        assertSame(first, support.getCompressionSerializer("report"));
+    }
+
+}
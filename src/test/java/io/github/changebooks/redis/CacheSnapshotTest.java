@@ -0,0 +1,66 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CacheSnapshotTest {
+
+    private static final String NAME = "report";
+
+    private static final Map<String, String> PREFIXES = Collections.singletonMap(NAME, NAME + "::");
+
+    private RedisConnectionFactory connectionFactory;
+
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        connectionFactory = EmbeddedRedis.connectionFactory();
+        template = EmbeddedRedis.stringRedisTemplate();
+    }
+
+    @Test
+    void chunkedValuesAndNonStringKeysAreSkipped(@TempDir Path dir) throws IOException {
+        ExtendedRedisCache cache = cache();
+        cache.put("large", String.join("", Collections.nCopies(100, "chunk")));
+        cache.put("small", "1");
+        template.opsForHash().put(NAME + "::hash", "field", "value");
+
+        Path file = dir.resolve("cache.snapshot");
+        CacheSnapshot snapshot = new CacheSnapshot(connectionFactory, 2);
+
+        // 块哈希、清单、哈希被跳过
+        assertEquals(1, snapshot.dump(file, PREFIXES));
+
+        EmbeddedRedis.flushAll();
+        assertEquals(1, snapshot.load(file, PREFIXES));
+
+        ExtendedRedisCache loaded = cache();
+        assertEquals("1", loaded.get("small", String.class));
+        assertNull(loaded.get("large"));
+    }
+
+    private ExtendedRedisCache cache() {
+        RedisCacheWriter cacheWriter = new ChunkedRedisCacheWriter(new BatchRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), connectionFactory),
+                connectionFactory, Collections.singletonMap(NAME, 64), 32);
+        return new ExtendedRedisCache(NAME, cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)), connectionFactory);
+    }
+
+}
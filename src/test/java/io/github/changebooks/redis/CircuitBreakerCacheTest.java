@@ -0,0 +1,97 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerCacheTest {
+
+    @Test
+    void invalidationIsRejectedWhileOpen() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.create("city").setMinimumCalls(1);
+        CircuitBreakerCache cache = new CircuitBreakerCache(new ConcurrentMapCache("city"), circuitBreaker,
+                new LogRateLimiter(Duration.ofMinutes(1)));
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // 写入跳过，删除和清空抛出异常
+        cache.put("a", "1");
+        assertThrows(CircuitOpenException.class, () -> cache.evict("a"));
+        assertThrows(CircuitOpenException.class, () -> cache.evictIfPresent("a"));
+        assertThrows(CircuitOpenException.class, cache::clear);
+        assertThrows(CircuitOpenException.class, cache::invalidate);
+    }
+
+    @Test
+    void onlyProbeClosesHalfOpenCircuit() throws Exception {
+        CircuitBreaker circuitBreaker = CircuitBreaker.create("city").
+                setMinimumCalls(1).
+                setOpenDuration(Duration.ofMillis(10));
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        Thread.sleep(20);
+
+        assertTrue(CompletableFuture.supplyAsync(circuitBreaker::tryAcquire).get(5, TimeUnit.SECONDS));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        // 打开前放行、之后完成的调用，不改变状态
+        circuitBreaker.onSuccess(0);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void slowLoaderDoesNotOpenCircuit() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.create("city").
+                setMinimumCalls(1).
+                setSlowCallThreshold(Duration.ofMillis(50));
+        CircuitBreakerCache cache = new CircuitBreakerCache(new ConcurrentMapCache("city"), circuitBreaker,
+                new LogRateLimiter(Duration.ofMinutes(1)));
+
+        // 计算慢，不是Redis超时
+        assertEquals("1", cache.get("a", () -> {
+            Thread.sleep(100);
+            return "1";
+        }));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    void probeIsReleasedWhenCallThrowsError() throws Exception {
+        CircuitBreaker circuitBreaker = CircuitBreaker.create("city").
+                setMinimumCalls(1).
+                setOpenDuration(Duration.ofMillis(10));
+        CircuitBreakerCache cache = new CircuitBreakerCache(new ConcurrentMapCache("city") {
+            @Override
+            public ValueWrapper get(Object key) {
+                throw new AssertionError("unexpected");
+            }
+        }, circuitBreaker, new LogRateLimiter(Duration.ofMinutes(1)));
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        Thread.sleep(20);
+
+        // 探测调用抛出Error，视为失败，重新打开，不一直半开
+        assertThrows(AssertionError.class, () -> cache.get("a"));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(20);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess(0);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+}
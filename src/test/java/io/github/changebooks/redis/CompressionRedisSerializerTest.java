@@ -0,0 +1,83 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionRedisSerializerTest {
+
+    private static final RedisSerializer<byte[]> IDENTITY = RedisSerializer.byteArray();
+
+    @Test
+    void valuesBelowThresholdAreWrittenAsIs() {
+        CompressionRedisSerializer<String> serializer = new CompressionRedisSerializer<>(RedisSerializer.string(), 1024);
+
+        byte[] bytes = serializer.serialize("small");
+        assertArrayEquals("small".getBytes(StandardCharsets.UTF_8), bytes);
+
+        // 关闭压缩后，被装饰的序列化依然可读
+        assertEquals("small", RedisSerializer.string().deserialize(bytes));
+        assertEquals(0, serializer.getCompressCount());
+    }
+
+    @Test
+    void compressedValuesRoundTrip() {
+        CompressionRedisSerializer<String> serializer = new CompressionRedisSerializer<>(RedisSerializer.string(), 64);
+
+        String value = repeat("compressible ", 100);
+        byte[] bytes = serializer.serialize(value);
+        assertTrue(CompressionRedisSerializer.isCompressed(bytes));
+        assertTrue(bytes.length < value.length());
+        assertEquals(value, serializer.deserialize(bytes));
+        assertEquals(1, serializer.getCompressCount());
+        assertEquals(1, serializer.getDecompressCount());
+    }
+
+    @Test
+    void incompressibleValuesAreCountedAndWrittenAsIs() {
+        CompressionRedisSerializer<byte[]> serializer = new CompressionRedisSerializer<>(IDENTITY, 16);
+
+        byte[] random = new byte[256];
+        new Random(7).nextBytes(random);
+
+        assertArrayEquals(random, serializer.serialize(random));
+        assertEquals(1, serializer.getCompressCount());
+        assertEquals(1, serializer.getIncompressibleCount());
+        assertTrue(serializer.getCompressNanos() > 0);
+        assertEquals(1.0, serializer.getCompressionRatio());
+    }
+
+    @Test
+    void rawValuesStartingWithFormerTagsAreNotMisparsed() {
+        CompressionRedisSerializer<byte[]> serializer = new CompressionRedisSerializer<>(IDENTITY, 1024);
+
+        for (byte first : new byte[]{0x00, 0x01, 0x02}) {
+            byte[] raw = {first, 'a', 'b', 'c'};
+            assertArrayEquals(raw, serializer.deserialize(raw));
+        }
+
+        // 恰好以压缩头开头的未压缩内容
+        byte[] magic = Arrays.copyOf(CompressionRedisSerializer.MAGIC, 10);
+        magic[CompressionRedisSerializer.MAGIC.length] = DeflateCodec.ID;
+        assertArrayEquals(magic, serializer.deserialize(magic));
+        assertEquals(1, serializer.getDecompressErrorCount());
+        assertFalse(CompressionRedisSerializer.isCompressed(CompressionRedisSerializer.MAGIC));
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            result.append(value);
+        }
+        return result.toString();
+    }
+
+}
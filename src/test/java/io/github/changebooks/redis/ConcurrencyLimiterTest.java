@@ -0,0 +1,78 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        template = EmbeddedRedis.stringRedisTemplate();
+    }
+
+    @Test
+    void acquireUpToMaxConcurrency() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.create(template, "limiter", "client", 2);
+
+        String first = limiter.acquire(10, TimeUnit.SECONDS);
+        String second = limiter.acquire(10, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.acquire(10, TimeUnit.SECONDS));
+
+        assertTrue(limiter.release(first));
+        assertFalse(limiter.release(first));
+        assertNotNull(limiter.acquire(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void permitsOfInstancesSharingTokenDoNotCollide() {
+        ConcurrencyLimiter first = ConcurrencyLimiter.create(template, "limiter", "client", 2);
+        ConcurrencyLimiter second = ConcurrencyLimiter.create(template, "limiter", "client", 2);
+
+        String firstPermit = first.acquire(10, TimeUnit.SECONDS);
+        String secondPermit = second.acquire(10, TimeUnit.SECONDS);
+        assertNotNull(firstPermit);
+        assertNotNull(secondPermit);
+        assertNotEquals(firstPermit, secondPermit);
+        assertEquals(2L, template.opsForZSet().zCard("limiter"));
+    }
+
+    @Test
+    void renewalDropsLostPermits() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.create(template, "limiter", "client", 2);
+
+        String kept = limiter.acquire(10, TimeUnit.SECONDS);
+        String lost = limiter.acquire(10, TimeUnit.SECONDS);
+        template.opsForZSet().remove("limiter", lost);
+
+        assertEquals(1, limiter.renewal(10, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getHeldPermits());
+        assertNotNull(template.opsForZSet().score("limiter", kept));
+    }
+
+    @Test
+    void expiredLeaseIsReleased() throws InterruptedException {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.create(template, "limiter", "client", 1);
+
+        assertNotNull(limiter.acquire(50, TimeUnit.MILLISECONDS));
+        assertNull(limiter.acquire(10, TimeUnit.SECONDS));
+
+        Thread.sleep(100);
+        assertNotNull(limiter.acquire(10, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DedicatedConnectionFactoryTest {
+
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        port = EmbeddedRedis.connectionFactory().getPort();
+    }
+
+    @Test
+    void standaloneDatabaseIsCopied() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("127.0.0.1", port);
+        configuration.setDatabase(2);
+        LettuceConnectionFactory source = initialized(new LettuceConnectionFactory(configuration));
+        LettuceConnectionFactory dedicated = DedicatedConnectionFactory.create(source);
+        try {
+            new StringRedisTemplate(dedicated).opsForValue().set("a", "1");
+
+            assertEquals("1", new StringRedisTemplate(source).opsForValue().get("a"));
+            assertEquals(2, dedicated.getDatabase());
+        } finally {
+            dedicated.destroy();
+            source.destroy();
+        }
+    }
+
+    @Test
+    void staticMasterReplicaIsRejected() {
+        LettuceConnectionFactory source = initialized(new LettuceConnectionFactory(
+                new RedisStaticMasterReplicaConfiguration("127.0.0.1", port)));
+        try {
+            assertThrows(IllegalArgumentException.class, () -> DedicatedConnectionFactory.create(source));
+        } finally {
+            source.destroy();
+        }
+    }
+
+    private static LettuceConnectionFactory initialized(LettuceConnectionFactory connectionFactory) {
+        connectionFactory.afterPropertiesSet();
+        return connectionFactory;
+    }
+
+}
@@ -0,0 +1,97 @@
+package io.github.changebooks.redis;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * 测试用的Redis，进程内只启动一次，随机端口，不持久化
+ *
+ * @author changebooks@qq.com
+ */
+public final class EmbeddedRedis {
+
+    private static final Object LOCK = new Object();
+
+    private static RedisServer server;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private EmbeddedRedis() {
+    }
+
+    /**
+     * 连接工厂，首次调用时启动Redis
+     *
+     * @return 已初始化的 {@link LettuceConnectionFactory} 实例
+     */
+    public static LettuceConnectionFactory connectionFactory() {
+        synchronized (LOCK) {
+            if (connectionFactory == null) {
+                int port = freePort();
+                try {
+                    server = RedisServer.newRedisServer().
+                            port(port).
+                            setting("bind 127.0.0.1").
+                            setting("save \"\"").
+                            setting("appendonly no").
+                            build();
+                    server.start();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+                factory.afterPropertiesSet();
+                connectionFactory = factory;
+
+                Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedRedis::stop));
+            }
+
+            return connectionFactory;
+        }
+    }
+
+    public static StringRedisTemplate stringRedisTemplate() {
+        return new StringRedisTemplate(connectionFactory());
+    }
+
+    /**
+     * 清空全部数据，每个测试前调用
+     */
+    public static void flushAll() {
+        try (RedisConnection connection = connectionFactory().getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+    }
+
+    private static void stop() {
+        synchronized (LOCK) {
+            if (connectionFactory != null) {
+                connectionFactory.destroy();
+            }
+
+            if (server != null) {
+                try {
+                    server.stop();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtendedRedisCacheTest {
+
+    private static final String LONG_KEY = "a-key-longer-than-the-threshold";
+
+    private RedisConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        connectionFactory = EmbeddedRedis.connectionFactory();
+    }
+
+    @Test
+    void hashedKeysKeepNullValueCheck() {
+        ExtendedRedisCache cache = cache(RedisCacheConfiguration.defaultCacheConfig().disableCachingNullValues());
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> cache.put(LONG_KEY, null));
+        assertTrue(ex.getMessage().contains("does not allow 'null' values"));
+
+        assertNull(cache.putIfAbsent(LONG_KEY, null));
+        assertNull(cache.get(LONG_KEY));
+    }
+
+    @Test
+    void hashedKeysAreVerified() {
+        ExtendedRedisCache cache = cache(RedisCacheConfiguration.defaultCacheConfig());
+
+        cache.put(LONG_KEY, "1");
+        cache.put("b" + LONG_KEY, null);
+
+        assertEquals("1", cache.get(LONG_KEY, String.class));
+        assertEquals("1", cache.putIfAbsent(LONG_KEY, "2").get());
+        assertNotNull(cache.get("b" + LONG_KEY));
+        assertNull(cache.get("b" + LONG_KEY).get());
+    }
+
+    private ExtendedRedisCache cache(RedisCacheConfiguration cacheConfig) {
+        return new ExtendedRedisCache("product", RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory),
+                cacheConfig.entryTtl(Duration.ofMinutes(10)), connectionFactory).
+                setKeyHashThreshold(8).
+                setVerifyHashedKey(true);
+    }
+
+}
@@ -0,0 +1,65 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBoundsContainValue() {
+        int previous = 0;
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+
+            assertTrue(index >= previous);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+            }
+
+            // 相对误差不超过1/32
+            long upperBound = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(upperBound - value <= value / 32);
+            previous = index;
+        }
+    }
+
+    @Test
+    void largeValuesFallIntoLastBucket() {
+        int last = LatencyHistogram.bucketIndex(Long.MAX_VALUE);
+
+        assertEquals(1023, last);
+        assertEquals(last, LatencyHistogram.bucketIndex(1L << 36));
+        assertEquals(last, LatencyHistogram.bucketIndex((1L << 36) - 1));
+        assertEquals(last - 1, LatencyHistogram.bucketIndex((1L << 36) - (1L << 30) - 1));
+        assertEquals((1L << 36) - 1, LatencyHistogram.bucketUpperBound(last));
+    }
+
+    @Test
+    void stripesAreMergedOnRead() throws InterruptedException {
+        LatencyHistogram histogram = LatencyHistogram.create();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(8000, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), histogram.getValueAtPercentile(0.5));
+        assertEquals(1, LatencyHistogram.stripeCount(1));
+        assertEquals(8, LatencyHistogram.stripeCount(6));
+        assertEquals(8, LatencyHistogram.stripeCount(64));
+    }
+
+}
@@ -0,0 +1,84 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NearCacheTest {
+
+    private CacheNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        notifier = new CacheNotifier(EmbeddedRedis.connectionFactory(), EmbeddedRedis.stringRedisTemplate());
+    }
+
+    @AfterEach
+    void tearDown() {
+        notifier.stop();
+    }
+
+    @Test
+    void failedEvictStillRemovesLocalCopy() {
+        FailingCache delegate = new FailingCache();
+        NearCache cache = new NearCache(delegate, 100, Duration.ofMinutes(1), notifier, "near");
+
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a", String.class));
+        assertEquals(1, cache.getLocalHits());
+
+        delegate.failing = true;
+        assertThrows(IllegalStateException.class, () -> cache.evict("a"));
+        assertThrows(IllegalStateException.class, () -> cache.evictIfPresent("a"));
+        assertThrows(IllegalStateException.class, cache::clear);
+
+        // 一级缓存已删除，读二级缓存
+        delegate.failing = false;
+        delegate.evict("a");
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getLocalHits());
+    }
+
+    private static final class FailingCache extends ConcurrentMapCache {
+
+        private volatile boolean failing;
+
+        FailingCache() {
+            super("near");
+        }
+
+        @Override
+        public void evict(Object key) {
+            fail();
+            super.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            fail();
+            return super.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            fail();
+            super.clear();
+        }
+
+        private void fail() {
+            if (failing) {
+                throw new IllegalStateException("redis unavailable");
+            }
+        }
+
+    }
+
+}
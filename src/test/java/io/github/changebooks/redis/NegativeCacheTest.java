@@ -0,0 +1,127 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativeCacheTest {
+
+    private static final String KNOWN_KEYS = "product:known-keys";
+
+    private RedisConnectionFactory connectionFactory;
+
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        connectionFactory = EmbeddedRedis.connectionFactory();
+        template = EmbeddedRedis.stringRedisTemplate();
+    }
+
+    @Test
+    void knownKeysAreSharedBetweenProcesses() {
+        NegativeCache first = cache(BloomFilter.create(1000, 0.01).setShared(template, KNOWN_KEYS));
+        NegativeCache second = cache(BloomFilter.create(1000, 0.01).setShared(template, KNOWN_KEYS));
+
+        // 批量写入直接写Redis，开启拒绝时先同步
+        first.addKnownKeys(Arrays.asList(1, 2));
+        second.setRejectUnknown(true);
+        assertEquals("2", second.get(2, () -> "2"));
+        assertEquals(0, second.getRejectedCount());
+
+        // 单个写入不访问Redis，同步前另一进程拒绝
+        first.put(3, "3");
+        assertEquals(1, first.getKnownKeys().getPendingSize());
+        assertNull(second.get(3, () -> "loaded"));
+        assertEquals(1, second.getRejectedCount());
+
+        first.getKnownKeys().sync();
+        second.getKnownKeys().sync();
+        assertEquals(0, first.getKnownKeys().getPendingSize());
+        assertEquals("3", second.get(3, () -> "loaded"));
+
+        assertNull(second.get(4, () -> "4"));
+        assertEquals(2, second.getRejectedCount());
+    }
+
+    @Test
+    void syncMergesRedisBitmap() {
+        BloomFilter first = BloomFilter.create(100000, 0.01).setShared(template, KNOWN_KEYS);
+        BloomFilter second = BloomFilter.create(100000, 0.01).setShared(template, KNOWN_KEYS);
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            keys.add("key-" + i);
+            first.put("key-" + i);
+        }
+        first.sync();
+        second.sync();
+
+        for (String key : keys) {
+            assertTrue(second.mightContain(key));
+        }
+        assertFalse(second.mightContain("absent"));
+    }
+
+    @Test
+    void loaderIsSynchronizedAndNullBecomesTombstone() throws Exception {
+        NegativeCache cache = cache(null);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> cache.get("a", () -> {
+            started.countDown();
+            Thread.sleep(200);
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Object second = cache.get("a", () -> {
+            loads.incrementAndGet();
+            return "2";
+        });
+
+        assertNull(first.get(5, TimeUnit.SECONDS));
+        assertNull(second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getTombstoneWrites());
+
+        // 墓碑取短过期时间，不取缓存配置
+        long ttl = template.getExpire("product::a", TimeUnit.SECONDS);
+        assertTrue(ttl > 0 && ttl <= 60);
+    }
+
+    @Test
+    void rejectUnknownRequiresSharedKnownKeys() {
+        NegativeCache cache = cache(BloomFilter.create(1000, 0.01));
+
+        assertThrows(IllegalArgumentException.class, () -> cache.setRejectUnknown(true));
+    }
+
+    private NegativeCache cache(BloomFilter knownKeys) {
+        ExtendedRedisCache redisCache = new ExtendedRedisCache("product",
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory),
+                RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)), connectionFactory);
+        return new NegativeCache(redisCache, Duration.ofMinutes(1), 100, knownKeys);
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RefreshAheadCacheTest {
+
+    private RedisConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        connectionFactory = EmbeddedRedis.connectionFactory();
+    }
+
+    @Test
+    void refreshUsesRefreshLoader() throws InterruptedException {
+        List<Object> refreshed = new ArrayList<>();
+        RefreshAheadCache cache = new RefreshAheadCache(redisCache(), Duration.ofMinutes(10), 0,
+                Duration.ofMillis(1), Runnable::run, key -> {
+            refreshed.add(key);
+            return "fresh";
+        });
+
+        assertEquals("loaded", cache.get("a", () -> "loaded"));
+        Thread.sleep(10);
+
+        // 返回当前值，刷新不调用计算函数
+        assertEquals("loaded", cache.get("a", () -> {
+            throw new IllegalStateException("value loader must not be called");
+        }));
+        assertEquals(1, refreshed.size());
+        assertEquals("fresh", cache.get("a", String.class));
+    }
+
+    @Test
+    void nullValuesAreNotWrappedWhenDisallowed() throws InterruptedException {
+        RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig().
+                entryTtl(Duration.ofMinutes(10)).
+                disableCachingNullValues();
+        ExtendedRedisCache redisCache = new ExtendedRedisCache("city",
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), cacheConfig, connectionFactory);
+        RefreshAheadCache cache = new RefreshAheadCache(redisCache, Duration.ofMinutes(10), 0,
+                Duration.ofMillis(1), Runnable::run, key -> null);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.put("a", null));
+        assertNull(cache.putIfAbsent("a", null));
+        assertNull(redisCache.get("a"));
+
+        Map<String, String> values = new HashMap<>();
+        values.put("a", null);
+        values.put("b", "2");
+        cache.putAll(values);
+        assertNull(redisCache.get("a"));
+        assertEquals("2", cache.get("b", String.class));
+
+        // 刷新结果为Null，删除旧值
+        Thread.sleep(10);
+        assertEquals("2", cache.get("b", () -> "loaded"));
+        assertNull(redisCache.get("b"));
+    }
+
+    @Test
+    void shortestJitteredTtl() {
+        Duration ttl = Duration.ofSeconds(100);
+
+        assertEquals(Duration.ofSeconds(90), TtlJitter.ofRatio(0.1).min(ttl));
+        assertEquals(ttl, TtlJitter.ofWindow(Duration.ofSeconds(30)).min(ttl));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(TtlJitter.ofRatio(0.1).apply(ttl).compareTo(Duration.ofSeconds(90)) >= 0);
+        }
+    }
+
+    private ExtendedRedisCache redisCache() {
+        return new ExtendedRedisCache("city", RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory),
+                RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)), connectionFactory);
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentSequenceTest {
+
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        template = EmbeddedRedis.stringRedisTemplate();
+    }
+
+    @Test
+    void nextIsPrefetchedAndMonotonic() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SegmentSequence sequence = SegmentSequence.create(template, "sequence", 10, executor);
+
+            for (long i = 1; i <= 35; i++) {
+                assertEquals(i, sequence.next());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stalledPrefetchFallsBackToFetch() {
+        // 预取任务永不执行，切换号段时等待超时后同步取号段
+        SegmentSequence sequence = SegmentSequence.create(template, "sequence", 10, command -> {
+        }).setPrefetchTimeout(Duration.ofMillis(10));
+
+        long last = 0;
+        for (int i = 0; i < 35; i++) {
+            long result = sequence.next();
+            assertTrue(result > last);
+            last = result;
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package io.github.changebooks.redis;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotBatchTest {
+
+    private static RedisServer server;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    @BeforeAll
+    static void startCluster(@TempDir Path dir) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        // 单节点集群，持有全部槽位
+        server = RedisServer.newRedisServer().
+                port(port).
+                setting("bind 127.0.0.1").
+                setting("save \"\"").
+                setting("appendonly no").
+                setting("cluster-enabled yes").
+                setting("cluster-config-file " + dir.resolve("nodes.conf")).
+                build();
+        server.start();
+
+        RedisClient client = RedisClient.create("redis://127.0.0.1:" + port);
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            int[] slots = new int[16384];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = i;
+            }
+            connection.sync().clusterAddSlots(slots);
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!connection.sync().clusterInfo().contains("cluster_state:ok")) {
+                assertTrue(System.currentTimeMillis() < deadline, "cluster is not ready");
+                Thread.sleep(50);
+            }
+        } finally {
+            client.shutdown();
+        }
+
+        connectionFactory = new LettuceConnectionFactory(new RedisClusterConfiguration().clusterNode("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopCluster() throws IOException {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void setsAcrossSlotsWithScriptCacheMiss() {
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        List<Duration> ttls = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            keys.add(("product::" + i).getBytes(StandardCharsets.UTF_8));
+            values.add(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            ttls.add(i % 2 == 0 ? Duration.ofMinutes(1) : null);
+        }
+
+        try (RedisClusterConnection connection = connectionFactory.getClusterConnection()) {
+            connection.serverCommands().flushAll();
+            connection.scriptingCommands().scriptFlush();
+
+            // 首次NOSCRIPT，改用EVAL，之后EVALSHA命中
+            assertEquals(250, SlotBatch.set(connection, keys, values, ttls));
+            assertEquals(250, SlotBatch.set(connection, keys, values, ttls));
+
+            assertArrayEquals(values.get(7), connection.stringCommands().get(keys.get(7)));
+            assertTrue(connection.keyCommands().pTtl(keys.get(8)) > 0);
+            assertEquals(-1, connection.keyCommands().pTtl(keys.get(9)));
+        }
+    }
+
+}
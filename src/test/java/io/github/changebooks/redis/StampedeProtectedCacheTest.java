@@ -0,0 +1,95 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StampedeProtectedCacheTest {
+
+    private RedisConnectionFactory connectionFactory;
+
+    private StringRedisTemplate template;
+
+    private CacheNotifier first;
+
+    private CacheNotifier second;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        connectionFactory = EmbeddedRedis.connectionFactory();
+        template = EmbeddedRedis.stringRedisTemplate();
+        first = new CacheNotifier(connectionFactory, template);
+        second = new CacheNotifier(connectionFactory, template);
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    void lockIsRenewedWhileLoading() throws Exception {
+        StampedeProtectedCache cache = cache(first, Duration.ofMillis(300));
+
+        CompletableFuture<String> loading = CompletableFuture.supplyAsync(() -> cache.get("a", () -> {
+            Thread.sleep(1000);
+            return "1";
+        }));
+
+        Thread.sleep(700);
+        assertTrue(template.hasKey("lock:a"));
+
+        assertEquals("1", loading.get(5, TimeUnit.SECONDS));
+        assertFalse(template.hasKey("lock:a"));
+    }
+
+    @Test
+    void waitersFallBackWhenLoaderFails() throws Exception {
+        StampedeProtectedCache owner = cache(first, Duration.ofSeconds(30));
+        StampedeProtectedCache waiter = cache(second, Duration.ofSeconds(30));
+        Thread.sleep(300);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        CompletableFuture<String> failing = CompletableFuture.supplyAsync(() -> owner.get("a", () -> {
+            started.countDown();
+            fail.await();
+            throw new IllegalStateException("loader failed");
+        }));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        long startTime = System.nanoTime();
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> waiter.get("a", () -> "2"));
+
+        Thread.sleep(300);
+        fail.countDown();
+
+        assertEquals("2", waiting.get(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(10));
+        assertThrows(Exception.class, failing::join);
+    }
+
+    private StampedeProtectedCache cache(CacheNotifier notifier, Duration lockTime) {
+        Cache redisCache = new ExtendedRedisCache("product", RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory),
+                RedisCacheConfiguration.defaultCacheConfig(), connectionFactory);
+        return new StampedeProtectedCache(redisCache, template, notifier, "lock:", "stampede", lockTime);
+    }
+
+}
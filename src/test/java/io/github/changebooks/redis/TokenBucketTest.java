@@ -0,0 +1,47 @@
+package io.github.changebooks.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        template = EmbeddedRedis.stringRedisTemplate();
+    }
+
+    @Test
+    void tryAcquireKeepsPermitsWhenNotEnough() {
+        TokenBucket tokenBucket = full();
+
+        assertTrue(tokenBucket.tryAcquire(3));
+
+        // 可取令牌数不足，不取，令牌留在桶中
+        assertFalse(tokenBucket.tryAcquire(3));
+        assertTrue(tokenBucket.tryAcquire(2));
+    }
+
+    @Test
+    void acquireGrantsPartially() {
+        TokenBucket tokenBucket = full();
+
+        assertEquals(3L, tokenBucket.acquire(3));
+        assertEquals(2L, tokenBucket.acquire(3));
+        assertFalse(tokenBucket.tryAcquire(1));
+    }
+
+    private TokenBucket full() {
+        // 上次取令牌时间:剩余可取令牌数，满桶
+        template.opsForValue().set("bucket", System.currentTimeMillis() + ":5");
+        return TokenBucket.create(template, "bucket", 5, 1);
+    }
+
+}